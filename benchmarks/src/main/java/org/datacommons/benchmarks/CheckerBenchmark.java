@@ -0,0 +1,59 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import org.datacommons.proto.Mcf;
+import org.datacommons.util.McfChecker;
+import org.datacommons.util.McfMutator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+// Checks a single graph with numNodes nodes, as done for the merged instance MCF graph. The time
+// per operation should grow linearly with numNodes.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class CheckerBenchmark {
+  @Param({"10000", "100000", "1000000"})
+  public int numNodes;
+
+  private Mcf.McfGraph graph;
+
+  @Setup
+  public void setUp() {
+    graph =
+        McfMutator.mutate(
+            SyntheticData.parseInstanceMcf(numNodes).toBuilder(), SyntheticData.newLogCtx());
+  }
+
+  @Benchmark
+  public boolean checkGraph() throws IOException, InterruptedException {
+    return McfChecker.check(graph, null, null, SyntheticData.newLogCtx());
+  }
+}
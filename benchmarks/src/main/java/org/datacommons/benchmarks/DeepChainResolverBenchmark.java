@@ -0,0 +1,84 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.rmi.UnexpectedException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import org.datacommons.proto.Mcf;
+import org.datacommons.util.McfParser;
+import org.datacommons.util.McfResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Local resolution of chains of populations, each located in the previous one (by local
+// reference), with the first one located in a place with a DCID. Every link in a chain takes a
+// round of local-ref replacement and DCID assignment.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DeepChainResolverBenchmark {
+  @Param({"10000"})
+  public int numNodes;
+
+  @Param({"1", "10", "100", "1000"})
+  public int chainDepth;
+
+  private Mcf.McfGraph graph;
+
+  @Setup
+  public void setUp() {
+    StringBuilder mcf = new StringBuilder();
+    for (int c = 0; c < numNodes / chainDepth; c++) {
+      String prev = "place" + c;
+      mcf.append("Node: ")
+          .append(prev)
+          .append("\ntypeOf: dcs:County\ndcid: \"")
+          .append(String.format(Locale.ROOT, "geoId/%05d", c))
+          .append("\"\n\n");
+      for (int d = 0; d < chainDepth; d++) {
+        String id = "pop" + c + "_" + d;
+        mcf.append("Node: ")
+            .append(id)
+            .append("\ntypeOf: dcs:StatisticalPopulation\npopulationType: schema:Person\n")
+            .append("location: l:")
+            .append(prev)
+            .append("\n\n");
+        prev = id;
+      }
+    }
+    graph = McfParser.parseInstanceMcfString(mcf.toString(), false, SyntheticData.newLogCtx());
+  }
+
+  @Benchmark
+  public void resolve(Blackhole bh) throws UnexpectedException {
+    McfResolver resolver = new McfResolver(graph, false, null, SyntheticData.newLogCtx());
+    resolver.resolve();
+    bh.consume(resolver.resolvedGraph());
+  }
+}
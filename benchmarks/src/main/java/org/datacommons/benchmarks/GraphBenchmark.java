@@ -0,0 +1,105 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.datacommons.proto.Mcf;
+import org.datacommons.util.LogWrapper;
+import org.datacommons.util.McfChecker;
+import org.datacommons.util.McfMutator;
+import org.datacommons.util.McfUtil;
+import org.datacommons.util.StatChecker;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// The per-row steps that follow parsing in the tool's processTable(), each run over all the rows
+// of a synthetic CSV per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class GraphBenchmark {
+  @Param({"100000"})
+  public int numRows;
+
+  private List<Mcf.McfGraph> rows;
+  private List<Mcf.McfGraph> mutatedRows;
+
+  @Setup
+  public void setUp() throws IOException, InterruptedException {
+    Path dir = Files.createTempDirectory("graph-benchmark");
+    try {
+      SyntheticData.writeTmcfCsv(dir, numRows);
+      rows = SyntheticData.parseRows(dir);
+    } finally {
+      FileUtils.deleteDirectory(dir.toFile());
+    }
+    LogWrapper logCtx = SyntheticData.newLogCtx();
+    mutatedRows = new ArrayList<>(rows.size());
+    for (Mcf.McfGraph g : rows) {
+      mutatedRows.add(McfMutator.mutate(g.toBuilder(), logCtx));
+    }
+  }
+
+  @Benchmark
+  public void mutate(Blackhole bh) {
+    LogWrapper logCtx = SyntheticData.newLogCtx();
+    for (Mcf.McfGraph g : rows) {
+      bh.consume(McfMutator.mutate(g.toBuilder(), logCtx));
+    }
+  }
+
+  @Benchmark
+  public void check(Blackhole bh) throws IOException, InterruptedException {
+    LogWrapper logCtx = SyntheticData.newLogCtx();
+    for (Mcf.McfGraph g : mutatedRows) {
+      bh.consume(McfChecker.check(g, null, null, logCtx));
+    }
+  }
+
+  @Benchmark
+  public void extractStatsFromGraph(Blackhole bh) {
+    StatChecker statChecker = new StatChecker(SyntheticData.newLogCtx(), null);
+    for (Mcf.McfGraph g : mutatedRows) {
+      statChecker.extractStatsFromGraph(g);
+    }
+    bh.consume(statChecker);
+  }
+
+  @Benchmark
+  public void serializeMcfGraph(Blackhole bh) {
+    for (Mcf.McfGraph g : mutatedRows) {
+      bh.consume(McfUtil.serializeMcfGraph(g, false));
+    }
+  }
+}
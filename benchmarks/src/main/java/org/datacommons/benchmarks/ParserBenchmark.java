@@ -0,0 +1,91 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.datacommons.proto.Mcf;
+import org.datacommons.util.McfParser;
+import org.datacommons.util.TmcfCsvParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Parses a whole synthetic CSV (with TMCF) or instance MCF file per operation.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+  @Param({"100000"})
+  public int numRows;
+
+  private Path dir;
+
+  @Setup
+  public void setUp() throws IOException {
+    dir = Files.createTempDirectory("parser-benchmark");
+    SyntheticData.writeTmcfCsv(dir, numRows);
+    SyntheticData.writeMcf(dir, numRows);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    FileUtils.deleteDirectory(dir.toFile());
+  }
+
+  @Benchmark
+  public void parseNextRow(Blackhole bh) throws IOException, InterruptedException {
+    TmcfCsvParser parser =
+        TmcfCsvParser.init(
+            dir.resolve(SyntheticData.TMCF_FILE).toString(),
+            dir.resolve(SyntheticData.CSV_FILE).toString(),
+            ',',
+            SyntheticData.newLogCtx());
+    Mcf.McfGraph g;
+    while ((g = parser.parseNextRow()) != null) {
+      bh.consume(g);
+    }
+  }
+
+  @Benchmark
+  public void parseNextNode(Blackhole bh) throws IOException {
+    McfParser parser =
+        McfParser.init(
+            Mcf.McfType.INSTANCE_MCF,
+            dir.resolve(SyntheticData.MCF_FILE).toString(),
+            false,
+            SyntheticData.newLogCtx());
+    Mcf.McfGraph g;
+    while ((g = parser.parseNextNode()) != null) {
+      bh.consume(g);
+    }
+  }
+}
@@ -0,0 +1,86 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.rmi.UnexpectedException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.commons.io.FileUtils;
+import org.datacommons.proto.Mcf;
+import org.datacommons.util.DcidGenerator;
+import org.datacommons.util.LogWrapper;
+import org.datacommons.util.McfMutator;
+import org.datacommons.util.McfResolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Local resolution (no external IDs) of a synthetic instance MCF, and DCID generation for the
+// observations of a synthetic CSV.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ResolverBenchmark {
+  @Param({"100000"})
+  public int numRows;
+
+  private Mcf.McfGraph instanceGraph;
+  private List<Mcf.McfGraph> rows;
+
+  @Setup
+  public void setUp() throws IOException, InterruptedException {
+    LogWrapper logCtx = SyntheticData.newLogCtx();
+    instanceGraph = McfMutator.mutate(SyntheticData.parseInstanceMcf(numRows).toBuilder(), logCtx);
+    Path dir = Files.createTempDirectory("resolver-benchmark");
+    try {
+      SyntheticData.writeTmcfCsv(dir, numRows);
+      rows = SyntheticData.parseRows(dir);
+    } finally {
+      FileUtils.deleteDirectory(dir.toFile());
+    }
+  }
+
+  @Benchmark
+  public void resolve(Blackhole bh) throws UnexpectedException {
+    McfResolver resolver = new McfResolver(instanceGraph, false, null, SyntheticData.newLogCtx());
+    resolver.resolve();
+    bh.consume(resolver.resolvedGraph());
+  }
+
+  @Benchmark
+  public void forStatVarObs(Blackhole bh) {
+    for (Mcf.McfGraph g : rows) {
+      for (Map.Entry<String, Mcf.McfGraph.PropertyValues> node : g.getNodesMap().entrySet()) {
+        bh.consume(DcidGenerator.forStatVarObs(node.getKey(), node.getValue(), false));
+      }
+    }
+  }
+}
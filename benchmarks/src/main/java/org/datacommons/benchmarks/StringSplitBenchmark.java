@@ -0,0 +1,106 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.datacommons.util.StringUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+// Splits a batch of typical CSV cells per operation, with StringUtil.splitAndStripWithQuoteEscape()
+// and with the split-then-strip implementation that it replaced.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class StringSplitBenchmark {
+  private static final int NUM_CELLS = 1000;
+
+  @Param({"number", "reference", "quoted", "list"})
+  public String cellKind;
+
+  private String[] cells;
+  private final StringUtil.SplitAndStripArg arg = new StringUtil.SplitAndStripArg();
+
+  @Setup
+  public void setUp() {
+    cells = new String[NUM_CELLS];
+    for (int i = 0; i < NUM_CELLS; i++) {
+      switch (cellKind) {
+        case "number":
+          cells[i] = Integer.toString(i * 37) + ".5";
+          break;
+        case "reference":
+          cells[i] = "dcid:geoId/" + (10000 + i);
+          break;
+        case "quoted":
+          cells[i] = "\"Place " + i + ", Country\"";
+          break;
+        default:
+          cells[i] = "dcid:geoId/" + i + ", dcid:geoId/" + (i + 1) + ", dcid:geoId/" + (i + 2);
+          break;
+      }
+    }
+  }
+
+  @Benchmark
+  public void splitAndStrip(Blackhole bh) {
+    for (String cell : cells) {
+      bh.consume(StringUtil.splitAndStripWithQuoteEscape(cell, arg, null));
+    }
+  }
+
+  @Benchmark
+  public void splitThenStrip(Blackhole bh) {
+    for (String cell : cells) {
+      bh.consume(splitThenStrip(cell, arg));
+    }
+  }
+
+  // The previous implementation: a pre-scan for new-lines, a split into a list of parts, and a
+  // trimmed copy of each part.
+  private static List<String> splitThenStrip(String orig, StringUtil.SplitAndStripArg arg) {
+    List<String> results = new ArrayList<>();
+    if (orig.contains("\n")) {
+      return results;
+    }
+    List<String> parts = new ArrayList<>();
+    if (!StringUtil.SplitStructuredLineWithEscapes(orig, arg.delimiter, '"', parts)) {
+      return results;
+    }
+    for (String s : parts) {
+      String ss =
+          arg.stripEnclosingQuotes ? StringUtil.stripEnclosingQuotePair(s.trim()) : s.trim();
+      if (arg.includeEmpty || !ss.isEmpty()) {
+        results.add(arg.stripEscapesBeforeQuotes ? ss.replace("\\\"", "\"") : ss);
+      }
+    }
+    return results;
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import org.datacommons.proto.Debug;
+import org.datacommons.proto.Mcf;
+import org.datacommons.util.LogWrapper;
+import org.datacommons.util.McfParser;
+import org.datacommons.util.TmcfCsvParser;
+
+// Generates synthetic inputs of a given size for the benchmarks: a StatVarObservation TMCF with
+// its CSV, and an instance MCF of places and observations that refer to them by local reference.
+// The values come from a fixed seed, so the inputs are the same across runs.
+final class SyntheticData {
+  static final String TMCF_FILE = "synthetic.tmcf";
+  static final String CSV_FILE = "synthetic.csv";
+  static final String MCF_FILE = "synthetic.mcf";
+
+  private static final int NUM_PLACES = 1000;
+  private static final int NUM_STAT_VARS = 50;
+  private static final long SEED = 20260101L;
+
+  private static final String TMCF =
+      "Node: E:Synthetic->E0\n"
+          + "typeOf: dcs:StatVarObservation\n"
+          + "variableMeasured: C:Synthetic->StatVar\n"
+          + "observationAbout: C:Synthetic->Place\n"
+          + "observationDate: C:Synthetic->Year\n"
+          + "value: C:Synthetic->Value\n"
+          + "measurementMethod: dcs:SyntheticMethod\n"
+          + "unit: dcs:USDollar\n";
+
+  private SyntheticData() {}
+
+  static LogWrapper newLogCtx() {
+    return new LogWrapper(Debug.Log.newBuilder());
+  }
+
+  // Writes TMCF_FILE and CSV_FILE (with numRows rows) into dir.
+  static void writeTmcfCsv(Path dir, int numRows) throws IOException {
+    Files.writeString(dir.resolve(TMCF_FILE), TMCF);
+    Random random = new Random(SEED);
+    try (BufferedWriter writer = Files.newBufferedWriter(dir.resolve(CSV_FILE))) {
+      writer.write("StatVar,Place,Year,Value\n");
+      for (int i = 0; i < numRows; i++) {
+        writer.write(
+            "dcid:"
+                + statVar(i)
+                + ",dcid:"
+                + place(i)
+                + ","
+                + year(i)
+                + ","
+                + String.format(Locale.ROOT, "%.2f", random.nextDouble() * 1e6)
+                + "\n");
+      }
+    }
+  }
+
+  // Writes MCF_FILE with numObs observations into dir.
+  static void writeMcf(Path dir, int numObs) throws IOException {
+    Files.writeString(dir.resolve(MCF_FILE), instanceMcf(numObs), StandardCharsets.UTF_8);
+  }
+
+  // Returns an instance MCF with NUM_PLACES places (with dcids) and numObs observations about them.
+  static String instanceMcf(int numObs) {
+    Random random = new Random(SEED);
+    StringBuilder mcf = new StringBuilder();
+    for (int p = 0; p < Math.min(NUM_PLACES, numObs); p++) {
+      mcf.append("Node: p")
+          .append(p)
+          .append("\ntypeOf: dcs:County\ndcid: \"")
+          .append(place(p))
+          .append("\"\n\n");
+    }
+    for (int i = 0; i < numObs; i++) {
+      mcf.append("Node: obs")
+          .append(i)
+          .append("\ntypeOf: dcs:StatVarObservation\nvariableMeasured: dcs:")
+          .append(statVar(i))
+          .append("\nobservationAbout: l:p")
+          .append(i % NUM_PLACES)
+          .append("\nobservationDate: \"")
+          .append(year(i))
+          .append("\"\nvalue: ")
+          .append(String.format(Locale.ROOT, "%.2f", random.nextDouble() * 1e6))
+          .append("\n\n");
+    }
+    return mcf.toString();
+  }
+
+  // Parses the CSV written by writeTmcfCsv() into one graph per row.
+  static List<Mcf.McfGraph> parseRows(Path dir) throws IOException, InterruptedException {
+    TmcfCsvParser parser =
+        TmcfCsvParser.init(
+            dir.resolve(TMCF_FILE).toString(), dir.resolve(CSV_FILE).toString(), ',', newLogCtx());
+    List<Mcf.McfGraph> rows = new ArrayList<>();
+    Mcf.McfGraph g;
+    while ((g = parser.parseNextRow()) != null) {
+      rows.add(g);
+    }
+    return rows;
+  }
+
+  static Mcf.McfGraph parseInstanceMcf(int numObs) {
+    return McfParser.parseInstanceMcfString(instanceMcf(numObs), false, newLogCtx());
+  }
+
+  private static String place(int i) {
+    return String.format(Locale.ROOT, "geoId/%05d", i % NUM_PLACES);
+  }
+
+  private static String statVar(int i) {
+    return "Count_Synthetic_" + (i / NUM_PLACES) % NUM_STAT_VARS;
+  }
+
+  private static int year(int i) {
+    return 1900 + i / (NUM_PLACES * NUM_STAT_VARS);
+  }
+}
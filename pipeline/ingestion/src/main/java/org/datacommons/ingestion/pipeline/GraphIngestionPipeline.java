@@ -180,6 +180,8 @@ public class GraphIngestionPipeline {
     PCollection<McfGraph> graph;
     if (format == PipelineUtils.InputFormat.JSONLD) {
       graph = PipelineUtils.readJsonLdFiles(importName, graphPath, pipeline);
+    } else if (format == PipelineUtils.InputFormat.NDJSONLD) {
+      graph = PipelineUtils.readNdJsonLdFiles(importName, graphPath, pipeline);
     } else {
       graph = PipelineUtils.readMcfFiles(importName, graphPath, pipeline);
     }
@@ -6,10 +6,9 @@ import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
 import com.google.protobuf.InvalidProtocolBufferException;
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.channels.Channels;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Comparator;
@@ -58,6 +57,9 @@ public class PipelineUtils {
   // Length of prefix of object value to use for key.
   public static final int OBJECT_VALUE_PREFIX = 16;
 
+  // Size of the byte ranges that JSON-LD files are split into.
+  public static final long JSONLD_SPLIT_BYTES = 64L << 20;
+
   private static final Logger LOGGER = LoggerFactory.getLogger(PipelineUtils.class);
 
   // Predicates for which the object value should be stored as bytes.
@@ -173,6 +175,7 @@ public class PipelineUtils {
   // Input file formats supported by the ingestion pipeline.
   public enum InputFormat {
     JSONLD,
+    NDJSONLD,
     TFRECORD,
     MCF
   }
@@ -185,6 +188,9 @@ public class PipelineUtils {
     if (graphPath.contains("tfrecord")) {
       return InputFormat.TFRECORD;
     }
+    if (graphPath.contains(".ndjson")) {
+      return InputFormat.NDJSONLD;
+    }
     if (graphPath.contains(".jsonld")) {
       return InputFormat.JSONLD;
     }
@@ -194,26 +200,46 @@ public class PipelineUtils {
 
   /** Reads JSON-LD files and converts them to McfGraph protos. */
   public static PCollection<McfGraph> readJsonLdFiles(String name, String files, Pipeline p) {
+    return readJsonLdFiles(name, files, JSONLD_SPLIT_BYTES, p);
+  }
+
+  /**
+   * Reads JSON-LD files and converts them to McfGraph protos. Large files are split into byte
+   * ranges of splitBytes, whose nodes are read in parallel (see ReadJsonLdFn).
+   */
+  public static PCollection<McfGraph> readJsonLdFiles(
+      String name, String files, long splitBytes, Pipeline p) {
     return p.apply("MatchJsonLdFiles-" + name, FileIO.match().filepattern(files))
         .apply("ReadJsonLdFiles-" + name, FileIO.readMatches())
+        .apply("ParseJsonLd-" + name, ParDo.of(new ReadJsonLdFn(splitBytes)));
+  }
+
+  /**
+   * Reads newline-delimited JSON-LD files, where each line is a JSON-LD document (typically a
+   * single node with its own @context), and converts them to McfGraph protos. The files are split
+   * across workers like any text files.
+   */
+  public static PCollection<McfGraph> readNdJsonLdFiles(String name, String files, Pipeline p) {
+    return p.apply(
+            "ReadNdJsonLdFiles-" + name,
+            TextIO.read().from(files).withEmptyMatchTreatment(EmptyMatchTreatment.ALLOW))
         .apply(
-            "ParseJsonLd-" + name,
+            "ParseNdJsonLd-" + name,
             ParDo.of(
-                new DoFn<FileIO.ReadableFile, McfGraph>() {
+                new DoFn<String, McfGraph>() {
                   @ProcessElement
                   public void processElement(
-                      @Element FileIO.ReadableFile file, OutputReceiver<McfGraph> receiver) {
-                    try (InputStream is = Channels.newInputStream(file.open())) {
-                      McfGraph graph = JsonLdParser.parse(is);
-                      for (Map.Entry<String, org.datacommons.proto.Mcf.McfGraph.PropertyValues>
-                          entry : graph.getNodesMap().entrySet()) {
-                        McfGraph.Builder singleNodeGraph = McfGraph.newBuilder();
-                        singleNodeGraph.putNodes(entry.getKey(), entry.getValue());
-                        receiver.output(singleNodeGraph.build());
-                      }
+                      @Element String line, OutputReceiver<McfGraph> receiver) {
+                    if (line.isBlank()) {
+                      return;
+                    }
+                    try {
+                      ReadJsonLdFn.outputNodes(
+                          JsonLdParser.init(
+                              new ByteArrayInputStream(line.getBytes(StandardCharsets.UTF_8))),
+                          receiver);
                     } catch (IOException e) {
-                      throw new RuntimeException(
-                          "Failed to parse JSON-LD file: " + file.toString(), e);
+                      throw new RuntimeException("Failed to parse JSON-LD line: " + line, e);
                     }
                   }
                 }));
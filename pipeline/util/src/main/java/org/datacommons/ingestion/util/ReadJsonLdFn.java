@@ -0,0 +1,153 @@
+package org.datacommons.ingestion.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import org.apache.beam.sdk.io.Compression;
+import org.apache.beam.sdk.io.FileIO;
+import org.apache.beam.sdk.io.range.OffsetRange;
+import org.apache.beam.sdk.transforms.DoFn;
+import org.apache.beam.sdk.transforms.splittabledofn.OffsetRangeTracker;
+import org.apache.beam.sdk.transforms.splittabledofn.RestrictionTracker;
+import org.datacommons.proto.Mcf.McfGraph;
+import org.datacommons.util.parser.jsonld.JsonLdParser;
+
+/**
+ * Splittable DoFn that reads JSON-LD files into single-node McfGraph protos.
+ *
+ * <p>Uncompressed files in a shape that JsonLdParser can split (a top-level array of nodes, or a
+ * simple {@code @context} followed by a {@code @graph} array, with nodes that begin lines) are
+ * split into byte ranges of {@code splitBytes}, which the runner can hand to different workers and
+ * split further. A range reads the nodes that begin in it: it seeks to its start, resyncs to the
+ * next line that begins a node (see JsonLdParser.findNodeStart), and parses nodes from there until
+ * one begins past its end. Other files are read in full by the range that starts at offset 0.
+ */
+public class ReadJsonLdFn extends DoFn<FileIO.ReadableFile, McfGraph> {
+  private final long splitBytes;
+
+  public ReadJsonLdFn(long splitBytes) {
+    this.splitBytes = splitBytes;
+  }
+
+  @GetInitialRestriction
+  public OffsetRange getInitialRestriction(@Element FileIO.ReadableFile file) {
+    return new OffsetRange(0, file.getMetadata().sizeBytes());
+  }
+
+  @SplitRestriction
+  public void splitRestriction(
+      @Element FileIO.ReadableFile file,
+      @Restriction OffsetRange range,
+      OutputReceiver<OffsetRange> receiver)
+      throws IOException {
+    if (range.getTo() - range.getFrom() > splitBytes && findNodeLayout(file) != null) {
+      for (OffsetRange split : range.split(splitBytes, splitBytes)) {
+        receiver.output(split);
+      }
+    } else {
+      receiver.output(range);
+    }
+  }
+
+  @NewTracker
+  public RestrictionTracker<OffsetRange, Long> newTracker(@Restriction OffsetRange range) {
+    return new OffsetRangeTracker(range);
+  }
+
+  @GetRestrictionCoder
+  public OffsetRange.Coder getRestrictionCoder() {
+    return OffsetRange.Coder.of();
+  }
+
+  @ProcessElement
+  public void processElement(
+      @Element FileIO.ReadableFile file,
+      RestrictionTracker<OffsetRange, Long> tracker,
+      OutputReceiver<McfGraph> receiver) {
+    long from = tracker.currentRestriction().getFrom();
+    try {
+      JsonLdParser.NodeLayout layout = findNodeLayout(file);
+      if (layout == null) {
+        // The file is read in full, as a single position at offset 0.
+        if (from == 0) {
+          if (!tracker.tryClaim(0L)) {
+            return;
+          }
+          try (InputStream is = Channels.newInputStream(file.open())) {
+            outputNodes(JsonLdParser.init(is), receiver);
+          }
+        }
+      } else if (!outputNodesInRange(file, layout, tracker, receiver)) {
+        return;
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Failed to parse JSON-LD file: " + file.toString(), e);
+    }
+    // There are no more nodes in the range.
+    tracker.tryClaim(Long.MAX_VALUE);
+  }
+
+  // Returns the layout of the nodes of |file|, or null if it cannot be split.
+  private static JsonLdParser.NodeLayout findNodeLayout(FileIO.ReadableFile file)
+      throws IOException {
+    if (file.getCompression() != Compression.UNCOMPRESSED
+        || !file.getMetadata().isReadSeekEfficient()) {
+      return null;
+    }
+    try (InputStream is = Channels.newInputStream(file.open())) {
+      return JsonLdParser.findNodeLayout(is);
+    }
+  }
+
+  // Outputs the nodes that begin in the range of |tracker|, claiming their offsets. Returns false
+  // if a node begins past the range, and true if the nodes of the file end first.
+  private static boolean outputNodesInRange(
+      FileIO.ReadableFile file,
+      JsonLdParser.NodeLayout layout,
+      RestrictionTracker<OffsetRange, Long> tracker,
+      OutputReceiver<McfGraph> receiver)
+      throws IOException {
+    long from = tracker.currentRestriction().getFrom();
+    try (SeekableByteChannel channel = file.openSeekable()) {
+      long start = layout.firstNodeOffset;
+      if (from > start) {
+        channel.position(JsonLdParser.nodeScanOffset(from, layout));
+        start = JsonLdParser.findNodeStart(Channels.newInputStream(channel), from, layout);
+        if (start < 0) {
+          return true;
+        }
+      }
+      channel.position(start);
+      JsonLdParser parser =
+          JsonLdParser.initNodes(Channels.newInputStream(channel), layout.context);
+      long claimed = -1;
+      McfGraph node;
+      while ((node = parser.parseNextNode()) != null) {
+        long offset = start + parser.lastNodeOffset();
+        if (offset != claimed) {
+          if (!tracker.tryClaim(offset)) {
+            return false;
+          }
+          claimed = offset;
+        }
+        receiver.output(singleNodeGraph(node));
+      }
+    }
+    return true;
+  }
+
+  static void outputNodes(JsonLdParser parser, OutputReceiver<McfGraph> receiver)
+      throws IOException {
+    McfGraph node;
+    while ((node = parser.parseNextNode()) != null) {
+      receiver.output(singleNodeGraph(node));
+    }
+  }
+
+  private static McfGraph singleNodeGraph(McfGraph node) {
+    McfGraph.Builder singleNodeGraph = McfGraph.newBuilder();
+    singleNodeGraph.putAllNodes(node.getNodesMap());
+    return singleNodeGraph.build();
+  }
+}
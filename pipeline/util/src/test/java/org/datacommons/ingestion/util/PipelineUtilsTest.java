@@ -286,6 +286,84 @@ public class PipelineUtilsTest {
     java.nio.file.Files.delete(tempFile);
   }
 
+  @Test
+  public void testReadJsonLdFilesInRanges() throws java.io.IOException {
+    options.setStableUniqueNames(PipelineOptions.CheckEnabled.OFF);
+
+    java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("test", ".jsonld");
+    String jsonLdContent =
+        "{\n"
+            + "  \"@context\": {\n"
+            + "    \"name\": \"https://schema.org/name\"\n"
+            + "  },\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"dcid:Node1\", \"name\": \"One\" },\n"
+            + "    { \"@id\": \"dcid:Node2\", \"name\": \"Two\" },\n"
+            + "    { \"@id\": \"dcid:Node3\", \"name\": \"Three\" }\n"
+            + "  ]\n"
+            + "}";
+    java.nio.file.Files.write(
+        tempFile, jsonLdContent.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+    // Split the file into a range per node.
+    PCollection<McfGraph> result = PipelineUtils.readJsonLdFiles("test", tempFile.toString(), 1, p);
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            createNamedNode("dcid:Node1", "One"),
+            createNamedNode("dcid:Node2", "Two"),
+            createNamedNode("dcid:Node3", "Three"));
+    PipelineResult.State state = p.run().waitUntilFinish();
+    Assert.assertEquals(PipelineResult.State.DONE, state);
+
+    java.nio.file.Files.delete(tempFile);
+  }
+
+  @Test
+  public void testReadNdJsonLdFiles() throws java.io.IOException {
+    options.setStableUniqueNames(PipelineOptions.CheckEnabled.OFF);
+
+    java.nio.file.Path tempFile = java.nio.file.Files.createTempFile("test", ".ndjsonld");
+    String context = "\"@context\": {\"name\": \"https://schema.org/name\"}";
+    String ndJsonLdContent =
+        "{"
+            + context
+            + ", \"@id\": \"dcid:Node1\", \"name\": \"One\"}\n"
+            + "\n"
+            + "{"
+            + context
+            + ", \"@id\": \"dcid:Node2\", \"name\": \"Two\"}\n";
+    java.nio.file.Files.write(
+        tempFile, ndJsonLdContent.getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+    Assert.assertEquals(
+        PipelineUtils.InputFormat.NDJSONLD, PipelineUtils.resolveFormat(tempFile.toString()));
+    PCollection<McfGraph> result = PipelineUtils.readNdJsonLdFiles("test", tempFile.toString(), p);
+
+    PAssert.that(result)
+        .containsInAnyOrder(
+            createNamedNode("dcid:Node1", "One"), createNamedNode("dcid:Node2", "Two"));
+    PipelineResult.State state = p.run().waitUntilFinish();
+    Assert.assertEquals(PipelineResult.State.DONE, state);
+
+    java.nio.file.Files.delete(tempFile);
+  }
+
+  private McfGraph createNamedNode(String dcid, String name) {
+    PropertyValues.Builder pv = PropertyValues.newBuilder();
+    pv.putPvs(
+        "dcid",
+        Values.newBuilder()
+            .addTypedValues(TypedValue.newBuilder().setValue(dcid).setType(ValueType.TEXT))
+            .build());
+    pv.putPvs(
+        "name",
+        Values.newBuilder()
+            .addTypedValues(TypedValue.newBuilder().setValue(name).setType(ValueType.TEXT))
+            .build());
+    return McfGraph.newBuilder().putNodes(dcid, pv.build()).build();
+  }
+
   private McfGraph createGraph(Map<String, Map<String, List<String>>> nodeData) {
     McfGraph.Builder graph = McfGraph.newBuilder();
     for (Map.Entry<String, Map<String, List<String>>> nodeEntry : nodeData.entrySet()) {
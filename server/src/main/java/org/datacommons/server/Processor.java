@@ -55,8 +55,7 @@ public class Processor {
           logCtx.incrementInfoCounterBy("NumRowSuccesses", 1);
         }
         numNodesProcessed++;
-        for (String nodeId : g.getNodesMap().keySet()) {
-          Mcf.McfGraph.PropertyValues node = g.toBuilder().getNodesOrThrow(nodeId);
+        for (Mcf.McfGraph.PropertyValues node : g.getNodesMap().values()) {
           Observation o = new Observation();
           for (String typeOf : McfUtil.getPropVals(node, Vocabulary.TYPE_OF)) {
             if (Vocabulary.isStatVarObs(typeOf)) {
@@ -2,14 +2,17 @@ package org.datacommons.tool;
 
 import java.io.File;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import org.apache.logging.log4j.util.Strings;
 import org.datacommons.proto.Debug;
+import org.datacommons.util.ExternalIdMap;
 import org.datacommons.util.FileGroup;
 import org.datacommons.util.JsonLdFileGroup;
 import org.datacommons.util.LogWrapper;
+import org.datacommons.util.LongFloatHashMap;
 import org.datacommons.util.McfFileGroup;
 
 // Class representing the command line arguments to dc-import tool. Largely used as a struct.
@@ -18,6 +21,11 @@ class Args {
   public ResolutionMode resolutionMode = ResolutionMode.NONE;
   public boolean doCoordinatesResolution = false;
   public boolean doStatChecks = false;
+  public LongFloatHashMap.Storage statChecksValueStorage = LongFloatHashMap.Storage.HEAP;
+  public long statChecksExpectedObservations = 0;
+  public boolean internValues = false;
+  public boolean singlePassResolution = false;
+  public ExternalIdMap.Storage externalIdStorage = ExternalIdMap.Storage.HEAP;
   public List<String> samplePlaces = null;
   public boolean verbose = false;
   public FileGroup fileGroup = null;
@@ -30,6 +38,13 @@ class Args {
   public boolean allowNonNumericStatVarObservation = false;
   public boolean checkMeasurementResult = false;
   public boolean includeRuntimeMetadata = true;
+  public List<File> referenceKgFiles = null;
+  public boolean usePersistentCache = false;
+  public Duration persistentCacheTtl = Duration.ofHours(24);
+  // Not a flag: the minimum size of each chunk a CSV file is split into for parallel processing.
+  public long minCsvChunkBytes = Processor.MIN_CSV_CHUNK_BYTES;
+  // Not a flag: likewise for instance MCF files.
+  public long minMcfChunkBytes = Processor.MIN_MCF_CHUNK_BYTES;
 
   public String toString() {
     StringBuilder argStr = new StringBuilder();
@@ -43,6 +58,15 @@ class Args {
     argStr.append(", coordinates-resolution=" + doCoordinatesResolution);
     argStr.append(", num-threads=" + numThreads);
     argStr.append(", stat-checks=" + doStatChecks);
+    if (internValues) {
+      argStr.append(", intern-values=true");
+    }
+    if (singlePassResolution) {
+      argStr.append(", single-pass-resolution=true");
+    }
+    if (externalIdStorage != ExternalIdMap.Storage.HEAP) {
+      argStr.append(", external-id-storage=" + externalIdStorage.name());
+    }
     if (samplePlaces != null) {
       argStr.append(", sample-places=" + Strings.join(samplePlaces, ':'));
     }
@@ -50,6 +74,12 @@ class Args {
     argStr.append(", allow-non-numeric-svobs=" + allowNonNumericStatVarObservation);
     argStr.append(", check-measurement-result=" + checkMeasurementResult);
     argStr.append(", include-runtime-metadata=" + includeRuntimeMetadata);
+    if (referenceKgFiles != null) {
+      argStr.append(", reference-kg=" + Strings.join(referenceKgFiles, ':'));
+    }
+    if (usePersistentCache) {
+      argStr.append(", persistent-cache-ttl=" + persistentCacheTtl);
+    }
 
     return argStr.toString();
   }
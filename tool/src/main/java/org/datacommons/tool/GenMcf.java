@@ -18,6 +18,7 @@ import freemarker.template.TemplateException;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.HashMap;
 import java.util.concurrent.Callable;
 import org.apache.logging.log4j.LogManager;
@@ -34,8 +35,10 @@ class GenMcf implements Callable<Integer> {
       description =
           ("List of input files. The file extensions are used to infer the format. "
               + "Valid extensions include .tmcf for Template MCF, "
-              + ".csv for tabular text files delimited by comma (overridden with -d), and .tsv "
-              + "for tab-delimited tabular files. Note that .mcf is not a valid input."))
+              + ".csv for tabular text files delimited by comma (overridden with -d), .tsv "
+              + "for tab-delimited tabular files, and .parquet for Parquet tables. CSV/TSV files "
+              + "may be compressed with gzip (.gz, .bgz) or zstd (.zst), e.g., data.csv.gz. "
+              + "Note that .mcf is not a valid input."))
   private File[] files;
 
   @CommandLine.Option(
@@ -52,6 +55,13 @@ class GenMcf implements Callable<Integer> {
 
   @Override
   public Integer call() throws IOException, TemplateException {
+    // Process all the things.
+    return Processor.process(toArgs());
+  }
+
+  // Builds the Processor's Args from the command line. Tests can then set the Args that are not
+  // flags.
+  Args toArgs() {
     if (!parent.outputDir.exists()) {
       parent.outputDir.mkdirs();
     }
@@ -60,6 +70,11 @@ class GenMcf implements Callable<Integer> {
     args.resolutionMode = parent.resolutionMode;
     args.doCoordinatesResolution = parent.doCoordinatesResolution;
     args.doStatChecks = parent.doStatChecks;
+    args.statChecksValueStorage = parent.statChecksValueStorage;
+    args.statChecksExpectedObservations = parent.statChecksExpectedObservations;
+    args.internValues = parent.internValues;
+    args.singlePassResolution = parent.singlePassResolution;
+    args.externalIdStorage = parent.externalIdStorage;
     args.samplePlaces = parent.samplePlaces;
     args.numThreads = parent.numThreads;
     if (args.samplePlaces != null && !args.doStatChecks) {
@@ -80,7 +95,9 @@ class GenMcf implements Callable<Integer> {
     args.allowNonNumericStatVarObservation = parent.allowNonNumericStatVarObservation;
     args.checkMeasurementResult = parent.checkMeasurementResult;
     args.includeRuntimeMetadata = parent.includeRuntimeMetadata;
-    // Process all the things.
-    return Processor.process(args);
+    args.referenceKgFiles = parent.referenceKgFiles;
+    args.usePersistentCache = parent.usePersistentCache;
+    args.persistentCacheTtl = Duration.ofHours(parent.persistentCacheTtlHours);
+    return args;
   }
 }
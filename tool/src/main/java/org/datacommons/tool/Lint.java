@@ -17,6 +17,7 @@ package org.datacommons.tool;
 import freemarker.template.TemplateException;
 import java.io.File;
 import java.io.IOException;
+import java.time.Duration;
 import java.util.concurrent.Callable;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -35,8 +36,9 @@ class Lint implements Callable<Integer> {
           ("List of input files. The file extensions are used to infer the format. "
               + "Valid extensions include .mcf for Instance MCF, .tmcf for Template MCF, "
               + ".jsonld for JSON-LD instances, "
-              + ".csv for tabular text files delimited by comma (overridden with -d), and .tsv "
-              + "for tab-delimited tabular files."))
+              + ".csv for tabular text files delimited by comma (overridden with -d), .tsv "
+              + "for tab-delimited tabular files, and .parquet for Parquet tables. MCF and CSV/TSV "
+              + "files may be compressed with gzip (.gz, .bgz) or zstd (.zst), e.g., data.csv.gz."))
   private File[] files;
 
   @CommandLine.Option(
@@ -61,6 +63,11 @@ class Lint implements Callable<Integer> {
     args.resolutionMode = parent.resolutionMode;
     args.doCoordinatesResolution = parent.doCoordinatesResolution;
     args.doStatChecks = parent.doStatChecks;
+    args.statChecksValueStorage = parent.statChecksValueStorage;
+    args.statChecksExpectedObservations = parent.statChecksExpectedObservations;
+    args.internValues = parent.internValues;
+    args.singlePassResolution = parent.singlePassResolution;
+    args.externalIdStorage = parent.externalIdStorage;
     args.samplePlaces = parent.samplePlaces;
     args.numThreads = parent.numThreads;
     if (args.samplePlaces != null && !args.doStatChecks) {
@@ -76,6 +83,9 @@ class Lint implements Callable<Integer> {
     args.allowNonNumericStatVarObservation = parent.allowNonNumericStatVarObservation;
     args.checkMeasurementResult = parent.checkMeasurementResult;
     args.includeRuntimeMetadata = parent.includeRuntimeMetadata;
+    args.referenceKgFiles = parent.referenceKgFiles;
+    args.usePersistentCache = parent.usePersistentCache;
+    args.persistentCacheTtl = Duration.ofHours(parent.persistentCacheTtlHours);
     return Processor.process(args);
   }
 }
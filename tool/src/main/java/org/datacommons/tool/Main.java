@@ -16,6 +16,8 @@ package org.datacommons.tool;
 
 import java.io.File;
 import java.util.List;
+import org.datacommons.util.ExternalIdMap;
+import org.datacommons.util.LongFloatHashMap;
 import org.datacommons.util.RuntimeMetadataUtil;
 import picocli.CommandLine;
 
@@ -89,6 +91,47 @@ public class Main {
               + "Defaults to true.")
   public boolean doStatChecks;
 
+  @CommandLine.Option(
+      names = {"--stat-checks-value-storage"},
+      defaultValue = "HEAP",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "Where the values of StatVarObservations are kept for the value inconsistency checks: "
+              + "${COMPLETION-CANDIDATES}. OFF_HEAP and MAPPED_FILE (which spills to files in the "
+              + "output directory) keep them off the Java heap, for very large imports. "
+              + "Defaults to HEAP.")
+  public LongFloatHashMap.Storage statChecksValueStorage;
+
+  @CommandLine.Option(
+      names = {"--stat-checks-expected-observations"},
+      defaultValue = "0",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "Expected number of StatVarObservations, used to size the storage for the value "
+              + "inconsistency checks up front. Defaults to 0 (grow as needed).")
+  public long statChecksExpectedObservations;
+
+  @CommandLine.Option(
+      names = {"--intern-values"},
+      defaultValue = "false",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "Shares a single copy of values that repeat across rows and nodes (dcids, units, "
+              + "dates, property names, etc.) in the parsed graphs, through a bounded pool. "
+              + "Reduces heap use for large imports. Defaults to false.")
+  public boolean internValues;
+
+  @CommandLine.Option(
+      names = {"--single-pass-resolution"},
+      defaultValue = "false",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "With --resolution=FULL, parses the CSV files only once: the parsed rows are spooled "
+              + "to compressed temporary files in the output directory while the external IDs "
+              + "are looked up, and are then read back to be checked and resolved. Trades disk "
+              + "space for CSV parsing time. Defaults to false.")
+  public boolean singlePassResolution;
+
   @CommandLine.Option(
       names = {"--allow-non-numeric-obs-values"},
       defaultValue = "false",
@@ -167,6 +210,46 @@ public class Main {
               + "Defaults to true.")
   public boolean includeRuntimeMetadata;
 
+  @CommandLine.Option(
+      names = {"--reference-kg"},
+      scope = CommandLine.ScopeType.INHERIT,
+      split = ",",
+      description =
+          "Answers existence checks from a local snapshot of the Data Commons KG instead of "
+              + "making API calls. Takes either instance MCF files with the schema nodes, or a "
+              + "single reference_kg.idx file written to the output directory by a prior run "
+              + "given MCF files.")
+  public List<File> referenceKgFiles;
+
+  @CommandLine.Option(
+      names = {"--external-id-storage"},
+      defaultValue = "HEAP",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "Where the DCIDs of external IDs are kept with --resolution=FULL: "
+              + "${COMPLETION-CANDIDATES}. DISK spills them to sorted files in the output "
+              + "directory, for imports with tens of millions of external IDs. Defaults to HEAP.")
+  public ExternalIdMap.Storage externalIdStorage;
+
+  @CommandLine.Option(
+      names = {"--persistent-cache"},
+      defaultValue = "false",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "Caches the results of existence check, resolution and statType API calls in "
+              + "dc_api_cache.bin within the output directory, and reuses them in later runs "
+              + "with the same output directory. Defaults to false.")
+  public boolean usePersistentCache;
+
+  @CommandLine.Option(
+      names = {"--persistent-cache-ttl-hours"},
+      defaultValue = "24",
+      scope = CommandLine.ScopeType.INHERIT,
+      description =
+          "Number of hours after which entries in the persistent cache are re-fetched. "
+              + "Only applies with --persistent-cache. Defaults to 24.")
+  public long persistentCacheTtlHours;
+
   public static void main(String... args) {
     System.exit(
         new CommandLine(new Main()).setCaseInsensitiveEnumValuesAllowed(true).execute(args));
@@ -15,11 +15,16 @@
 package org.datacommons.tool;
 
 import freemarker.template.TemplateException;
+import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -31,6 +36,10 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 import org.apache.commons.io.FilenameUtils;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -45,16 +54,34 @@ import org.datacommons.util.parser.jsonld.JsonLdParser;
 
 public class Processor {
   private static final Logger logger = LogManager.getLogger(Processor.class);
+  // By default, CSV files are split for parallel processing only if every chunk would be at least
+  // this big (see Args.minCsvChunkBytes).
+  static final long MIN_CSV_CHUNK_BYTES = 64L * 1024 * 1024;
+  // Likewise for instance MCF files (see Args.minMcfChunkBytes).
+  static final long MIN_MCF_CHUNK_BYTES = 64L * 1024 * 1024;
+  private static final String REFERENCE_KG_INDEX_FILE = "reference_kg.idx";
   private final Args args;
   private ExistenceChecker existenceChecker;
   private ExternalIdResolver idResolver;
+  // The external IDs of idResolver, closed at the end of process() to delete any spilled runs.
+  private ExternalIdMap externalIdMap;
   private StatChecker statChecker;
   private StatVarState statVarState;
+  // Cross-run cache of DC API results, null unless args.usePersistentCache.
+  private PersistentCache persistentCache;
   private final List<Mcf.McfGraph> nodesForVariousChecks = new ArrayList<>();
+  // With existence checks (and no resolution), instance MCF files are read twice instead of being
+  // held in nodesForVariousChecks: the first pass only registers the nodes with existenceChecker,
+  // and the second pass (in checkNodes) re-reads and checks them. This keeps memory proportional
+  // to the set of DCIDs, rather than the whole graph.
+  private final boolean streamInstanceMcfs;
   private final ExecutorService execService;
+  // With single-pass resolution, the chunks of each CSV file (in the order of
+  // args.fileGroup.getCsvs()), whose rows were spooled by lookupExternalIds().
+  private List<List<TableChunk>> spooledChunksPerFile = null;
   private final LogWrapper logCtx;
   private HttpClient httpClient;
-  private int numMcfNodeSuccesses = 0;
+  private final AtomicInteger numMcfNodeSuccesses = new AtomicInteger();
 
   public static Integer process(Args args) throws IOException, TemplateException {
     Integer retVal = 0;
@@ -62,7 +89,11 @@ public class Processor {
     Processor processor = new Processor(args);
     try {
       // Load all the instance MCFs into memory, so we can do existence checks, resolution, etc.
-      if (args.doExistenceChecks) {
+      // (Without resolution, only the DCIDs are loaded for existence checks, see
+      // streamInstanceMcfs.)
+      if (processor.streamInstanceMcfs) {
+        logger.info("Loading DCIDs from Instance MCF files");
+      } else if (args.doExistenceChecks) {
         logger.info("Loading Instance MCF files into memory");
       } else {
         logger.info("Loading and Checking Instance MCF files (without Existence checks)");
@@ -98,7 +129,9 @@ public class Processor {
       if (!args.fileGroup.getCsvs().isEmpty()) {
         String threadStr = "(with numThreads=" + args.numThreads + ")";
         // Process all the tables.
-        if (args.resolutionMode == Args.ResolutionMode.FULL) {
+        if (args.resolutionMode == Args.ResolutionMode.FULL && args.singlePassResolution) {
+          logger.info("Checking and Resolving spooled Table MCF rows " + threadStr);
+        } else if (args.resolutionMode == Args.ResolutionMode.FULL) {
           logger.info("Re-loading, Checking and Resolving Table MCF files " + threadStr);
         } else if (args.resolutionMode == Args.ResolutionMode.LOCAL) {
           logger.info("Loading, Checking and Resolving Table MCF files " + threadStr);
@@ -119,24 +152,39 @@ public class Processor {
       // Only for DCTooManyFailuresException, we will dump the logCtx and exit.
       logger.error("Aborting prematurely, see report.json.");
       retVal = -1;
+    } finally {
+      if (processor.externalIdMap != null) {
+        processor.externalIdMap.close();
+      }
     }
 
     // Create and set runtime metadata before persisting log
     if (!LogWrapper.TEST_MODE && args.includeRuntimeMetadata) {
       long endTimeMillis = System.currentTimeMillis();
       Debug.RuntimeMetadata runtimeMetadata =
-          RuntimeMetadataUtil.createRuntimeMetadata(
-              startTimeMillis, endTimeMillis, Processor.class);
+          RuntimeMetadataUtil.createRuntimeMetadata(startTimeMillis, endTimeMillis, Processor.class)
+              .toBuilder()
+              .setMemoryMetrics(processor.getMemoryMetrics())
+              .build();
       processor.logCtx.setRuntimeMetadata(runtimeMetadata);
     }
 
     if (args.fileGroup instanceof McfFileGroup) {
       McfFileGroup mcfGroup = (McfFileGroup) args.fileGroup;
       if (mcfGroup.getMcfs() != null && !mcfGroup.getMcfs().isEmpty()) {
-        processor.logCtx.incrementInfoCounterBy("NumNodeSuccesses", processor.numMcfNodeSuccesses);
+        processor.logCtx.incrementInfoCounterBy(
+            "NumNodeSuccesses", processor.numMcfNodeSuccesses.get());
       }
     }
     processor.logCtx.persistLog();
+    if (processor.persistentCache != null) {
+      // The cache is only an optimization for later runs, so failing to write it is not fatal.
+      try {
+        processor.persistentCache.save();
+      } catch (IOException e) {
+        logger.warn("Failed to save the persistent cache: " + e.getMessage());
+      }
+    }
     if (args.generateSummaryReport) {
       SummaryReportGenerator.generateReportSummary(
           args.outputDir,
@@ -148,7 +196,7 @@ public class Processor {
     return retVal;
   }
 
-  private Processor(Args args) {
+  private Processor(Args args) throws IOException {
     logger.info("Command options: " + args.toString());
     logger.info("Tool Version: " + RuntimeMetadataUtil.getToolVersion(Processor.class));
     RuntimeMetadataUtil.getToolGitCommitHash()
@@ -159,33 +207,83 @@ public class Processor {
         .ifPresent(version -> logger.info("Java Version: " + version));
 
     this.args = args;
+    this.streamInstanceMcfs =
+        args.doExistenceChecks && args.resolutionMode == Args.ResolutionMode.NONE;
     this.logCtx =
         new LogWrapper(Debug.Log.newBuilder().setCommandArgs(args.toProto()), args.outputDir);
 
+    if (args.internValues) {
+      StringPool.enableShared(StringPool.DEFAULT_CAPACITY);
+    } else {
+      StringPool.disableShared();
+    }
+
     // we initialize an httpClient regardless of args.doExistenceChecks
     // because other features might still make API calls
     this.httpClient = HttpClient.newHttpClient();
-    if (args.doExistenceChecks) {
-      existenceChecker = new ExistenceChecker(this.httpClient, args.verbose, logCtx);
+    if (args.usePersistentCache) {
+      persistentCache =
+          PersistentCache.open(
+              args.outputDir.resolve(PersistentCache.FILE_NAME), args.persistentCacheTtl, logCtx);
+    }
+    if (args.doExistenceChecks && args.referenceKgFiles != null) {
+      existenceChecker = new ExistenceChecker(loadReferenceKg(), args.verbose, logCtx);
+    } else if (args.doExistenceChecks) {
+      existenceChecker =
+          new ExistenceChecker(
+              this.httpClient, args.verbose, args.numThreads, persistentCache, logCtx);
     }
     if (args.resolutionMode == Args.ResolutionMode.FULL) {
+      externalIdMap = new ExternalIdMap(args.externalIdStorage, args.outputDir);
       idResolver =
           new ExternalIdResolver(
-              this.httpClient, args.doCoordinatesResolution, args.verbose, logCtx);
+              this.httpClient,
+              args.doCoordinatesResolution,
+              args.verbose,
+              persistentCache,
+              externalIdMap,
+              logCtx);
     }
-    statVarState = new StatVarState(this.httpClient, logCtx);
+    statVarState = new StatVarState(this.httpClient, persistentCache, logCtx);
     if (args.doStatChecks) {
       Set<String> samplePlaces =
           args.samplePlaces == null ? null : new HashSet<>(args.samplePlaces);
       statChecker =
           new StatChecker(
-              logCtx, samplePlaces, statVarState, existenceChecker, args.checkMeasurementResult);
+              logCtx,
+              samplePlaces,
+              statVarState,
+              existenceChecker,
+              args.checkMeasurementResult,
+              new LongFloatHashMap(
+                  args.statChecksExpectedObservations,
+                  args.statChecksValueStorage,
+                  args.outputDir));
     }
     execService = Executors.newFixedThreadPool(args.numThreads);
   }
 
+  // Loads a prebuilt index, or builds one from MCF files (and saves it for later runs).
+  private ReferenceKgIndex loadReferenceKg() throws IOException {
+    if (args.referenceKgFiles.size() == 1
+        && args.referenceKgFiles.get(0).getName().endsWith(".idx")) {
+      logger.info("Loading reference KG index " + args.referenceKgFiles.get(0));
+      return ReferenceKgIndex.load(args.referenceKgFiles.get(0).toPath());
+    }
+    logger.info("Building reference KG index from " + args.referenceKgFiles.size() + " files");
+    ReferenceKgIndex index = ReferenceKgIndex.fromMcfFiles(args.referenceKgFiles);
+    index.save(args.outputDir.resolve(REFERENCE_KG_INDEX_FILE));
+    return index;
+  }
+
   private void processNodes(Mcf.McfType type)
       throws IOException, DCTooManyFailuresException, InterruptedException {
+    for (File f : getFiles(type)) {
+      processNodes(type, f);
+    }
+  }
+
+  private List<File> getFiles(Mcf.McfType type) {
     List<File> files;
 
     if (type == Mcf.McfType.INSTANCE_MCF) {
@@ -204,62 +302,163 @@ public class Processor {
       }
       files = ((McfFileGroup) args.fileGroup).getTmcfs();
     }
-
-    for (File f : files) {
-      processNodes(type, f);
-    }
+    return files;
   }
 
-  private void processLoadedGraph(Mcf.McfGraph n, Mcf.McfType type)
+  // This is a thread-safe function, invoked in parallel when an instance MCF file is split into
+  // chunks. The nodes to hold on to are added to mcfChunk.nodes.
+  private void processLoadedGraph(
+      Mcf.McfGraph n, Mcf.McfType type, LogWrapper parseLog, McfFileChunk mcfChunk)
       throws IOException, InterruptedException {
-    n = McfMutator.mutate(n.toBuilder(), logCtx);
+    n = McfMutator.mutate(n.toBuilder(), parseLog);
 
-    if (idResolver != null && type == Mcf.McfType.INSTANCE_MCF) {
-      idResolver.addLocalGraph(n);
-    }
     if (existenceChecker != null && type == Mcf.McfType.INSTANCE_MCF) {
       existenceChecker.addLocalGraph(n);
     } else {
       if (McfChecker.check(n, existenceChecker, statVarState, logCtx)) {
-        numMcfNodeSuccesses += n.getNodesCount();
+        numMcfNodeSuccesses.addAndGet(n.getNodesCount());
       }
     }
     if (args.checkMeasurementResult && type == Mcf.McfType.INSTANCE_MCF) {
       statVarState.addLocalGraph(n);
     }
+    if (streamInstanceMcfs && type == Mcf.McfType.INSTANCE_MCF) {
+      // The nodes will be re-read in checkNodes().
+      return;
+    }
     if (existenceChecker != null
         || args.resolutionMode != Args.ResolutionMode.NONE
         || statChecker != null) {
-      nodesForVariousChecks.add(n);
+      mcfChunk.nodes.add(n);
     }
   }
 
   private void processNodes(Mcf.McfType type, File file)
       throws IOException, DCTooManyFailuresException, InterruptedException {
-    long numNodesProcessed = 0;
     if (args.verbose) logger.info("Checking {}", file.getName());
 
+    // When streaming, parse and mutation messages are reported on the second pass, so drop them
+    // here.
+    LogWrapper parseLog =
+        streamInstanceMcfs && type == Mcf.McfType.INSTANCE_MCF
+            ? new LogWrapper(Debug.Log.newBuilder())
+            : logCtx;
+    List<McfFileChunk> mcfChunks;
     if (file.getPath().contains(".jsonld")) {
+      McfFileChunk mcfChunk = new McfFileChunk(null);
+      mcfChunks = List.of(mcfChunk);
       try (java.io.InputStream is = new java.io.FileInputStream(file)) {
-        Mcf.McfGraph n = JsonLdParser.parse(is);
-        processLoadedGraph(n, type);
-        numNodesProcessed = n.getNodesCount();
-        logCtx.trackStatus(numNodesProcessed, "nodes processed");
+        JsonLdParser parser = JsonLdParser.init(is);
+        Mcf.McfGraph n;
+        while ((n = parser.parseNextNode()) != null) {
+          processLoadedGraph(n, type, parseLog, mcfChunk);
+          mcfChunk.numNodesProcessed++;
+          if (!logCtx.trackStatus(1, "nodes processed")) {
+            throw new DCTooManyFailuresException("encountered too many failures");
+          }
+        }
       }
     } else {
-      McfParser parser = McfParser.init(type, file.getPath(), false, logCtx);
-      Mcf.McfGraph n;
-      while ((n = parser.parseNextNode()) != null) {
-        processLoadedGraph(n, type);
-        numNodesProcessed++;
-        if (!logCtx.trackStatus(1, "nodes processed")) {
-          throw new DCTooManyFailuresException("encountered too many failures");
+      mcfChunks = splitMcf(type, file);
+      processMcfChunks(
+          file,
+          mcfChunks,
+          mcfChunk -> {
+            McfParser parser =
+                McfParser.init(type, file.getPath(), false, parseLog, mcfChunk.chunk);
+            Mcf.McfGraph n;
+            while ((n = parser.parseNextNode()) != null) {
+              processLoadedGraph(n, type, parseLog, mcfChunk);
+              mcfChunk.numNodesProcessed++;
+              if (!logCtx.trackStatus(1, "nodes processed")) {
+                throw new DCTooManyFailuresException("encountered too many failures");
+              }
+            }
+          });
+    }
+
+    // Combine the outputs of the chunks in order, so that the results do not depend on how the
+    // file was split.
+    long numNodesProcessed = 0;
+    for (McfFileChunk mcfChunk : mcfChunks) {
+      numNodesProcessed += mcfChunk.numNodesProcessed;
+      if (idResolver != null && type == Mcf.McfType.INSTANCE_MCF) {
+        for (Mcf.McfGraph n : mcfChunk.nodes) {
+          idResolver.addLocalGraph(n);
         }
       }
+      nodesForVariousChecks.addAll(mcfChunk.nodes);
     }
     logger.info("Checked {} with {} nodes", file.getName(), numNodesProcessed);
   }
 
+  // A portion of an MCF file processed by a single thread, along with what it produced.
+  private static class McfFileChunk {
+    // Null if the whole file is processed as one chunk.
+    final McfParser.McfChunk chunk;
+    long numNodesProcessed = 0;
+    // Nodes to add to nodesForVariousChecks.
+    final List<Mcf.McfGraph> nodes = new ArrayList<>();
+
+    McfFileChunk(McfParser.McfChunk chunk) {
+      this.chunk = chunk;
+    }
+  }
+
+  private interface McfChunkProcessor {
+    void process(McfFileChunk mcfChunk)
+        throws IOException, InterruptedException, DCTooManyFailuresException;
+  }
+
+  // Large instance MCF files are split into chunks at node boundaries, so that a single file can
+  // use all the threads.
+  private List<McfFileChunk> splitMcf(Mcf.McfType type, File file) throws IOException {
+    int numChunks = (int) Math.min(args.numThreads, file.length() / args.minMcfChunkBytes);
+    if (type == Mcf.McfType.INSTANCE_MCF
+        && numChunks > 1
+        && !CompressedInput.isCompressed(file.getName())) {
+      List<McfParser.McfChunk> chunks = McfParser.splitIntoChunks(file.getPath(), numChunks);
+      if (chunks.size() > 1) {
+        logger.info("Splitting MCF {} into {} chunks", file.getName(), chunks.size());
+        List<McfFileChunk> mcfChunks = new ArrayList<>();
+        for (McfParser.McfChunk chunk : chunks) {
+          mcfChunks.add(new McfFileChunk(chunk));
+        }
+        return mcfChunks;
+      }
+    }
+    return List.of(new McfFileChunk(null));
+  }
+
+  // Runs processor over the chunks of an MCF file, in parallel if there is more than one.
+  private void processMcfChunks(
+      File file, List<McfFileChunk> mcfChunks, McfChunkProcessor processor)
+      throws IOException, DCTooManyFailuresException, InterruptedException {
+    if (mcfChunks.size() == 1) {
+      processor.process(mcfChunks.get(0));
+      return;
+    }
+    List<Callable<Void>> cbs = new ArrayList<>(mcfChunks.size());
+    for (McfFileChunk mcfChunk : mcfChunks) {
+      cbs.add(
+          () -> {
+            processor.process(mcfChunk);
+            return null;
+          });
+    }
+    for (var f : execService.invokeAll(cbs)) {
+      try {
+        f.get();
+      } catch (ExecutionException ex) {
+        if (ex.getCause() instanceof DCTooManyFailuresException) {
+          throw (DCTooManyFailuresException) ex.getCause();
+        }
+        ex.getCause().printStackTrace();
+        throw new DCTooManyFailuresException("Fatal error processing MCF " + file.getName());
+      }
+    }
+  }
+
   private void processTables()
       throws IOException, DCTooManyFailuresException, InterruptedException {
     // Parallelize
@@ -269,16 +468,26 @@ public class Processor {
       }
     }
 
+    // Large CSVs are split into chunks, so that a single file can use all the threads. The
+    // callables for all the chunks of all the files go into the same pool, and the outputs of a
+    // file's chunks are merged in order once they are all done.
     List<Callable<Void>> cbs = new ArrayList<Callable<Void>>(args.fileGroup.getCsvs().size());
-    for (File csvFile : args.fileGroup.getCsvs()) {
-      cbs.add(
-          new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-              processTable(csvFile);
-              return null;
-            }
-          });
+    List<List<TableChunk>> chunksPerFile = new ArrayList<>();
+    List<File> csvFiles = args.fileGroup.getCsvs();
+    for (int i = 0; i < csvFiles.size(); i++) {
+      List<TableChunk> tableChunks =
+          spooledChunksPerFile != null ? spooledChunksPerFile.get(i) : splitTable(csvFiles.get(i));
+      chunksPerFile.add(tableChunks);
+      for (TableChunk tableChunk : tableChunks) {
+        cbs.add(
+            new Callable<Void>() {
+              @Override
+              public Void call() throws Exception {
+                processTable(tableChunk);
+                return null;
+              }
+            });
+      }
     }
 
     var futures = execService.invokeAll(cbs);
@@ -290,39 +499,107 @@ public class Processor {
         throw new DCTooManyFailuresException("Fatal error processing CSVs!");
       }
     }
+    for (List<TableChunk> tableChunks : chunksPerFile) {
+      finishTable(tableChunks);
+    }
 
     if (existenceChecker != null) existenceChecker.drainRemoteCalls();
   }
 
-  // This is a thread-safe function invoked in parallel per CSV file.
-  private void processTable(File csvFile)
+  // A portion of a CSV file processed by a single thread, along with what it produced.
+  private static class TableChunk {
+    final File csvFile;
+    // Null if the whole file is processed as one chunk.
+    final TmcfCsvParser.CsvChunk chunk;
+    final int index;
+    int numNodeSuccesses = 0, numPVSuccesses = 0, numRowSuccesses = 0, numRowsProcessed = 0;
+    final Map<Mcf.McfStatVarObsSeries.Key, Mcf.McfStatVarObsSeries.Builder> groupedObservations =
+        new HashMap<>();
+    // Set if the rows were parsed into spoolFile when looking up external IDs. The spool file is
+    // null if the TMCF failed to load.
+    boolean spooled = false;
+    Path spoolFile = null;
+
+    TableChunk(File csvFile, TmcfCsvParser.CsvChunk chunk, int index) {
+      this.csvFile = csvFile;
+      this.chunk = chunk;
+      this.index = index;
+    }
+  }
+
+  private List<TableChunk> splitTable(File csvFile) throws IOException {
+    int numChunks = (int) Math.min(args.numThreads, csvFile.length() / args.minCsvChunkBytes);
+    if (numChunks > 1
+        && !TmcfCsvParser.isParquet(csvFile.getPath())
+        && !CompressedInput.isCompressed(csvFile.getName())) {
+      List<TmcfCsvParser.CsvChunk> chunks =
+          TmcfCsvParser.splitIntoChunks(csvFile.getPath(), args.fileGroup.delimiter(), numChunks);
+      if (chunks.size() > 1) {
+        logger.info("Splitting CSV {} into {} chunks", csvFile.getName(), chunks.size());
+        List<TableChunk> tableChunks = new ArrayList<>();
+        for (int i = 0; i < chunks.size(); i++) {
+          tableChunks.add(new TableChunk(csvFile, chunks.get(i), i));
+        }
+        return tableChunks;
+      }
+    }
+    return List.of(new TableChunk(csvFile, null, 0));
+  }
+
+  // This is a thread-safe function invoked in parallel per CSV chunk.
+  private void processTable(TableChunk tableChunk)
       throws IOException, DCTooManyFailuresException, InterruptedException {
-    logger.info("Checking CSV " + csvFile.getPath());
+    File csvFile = tableChunk.csvFile;
+    if (tableChunk.chunk == null) {
+      logger.info("Checking CSV " + csvFile.getPath());
+    } else if (args.verbose) {
+      logger.info("Checking CSV {} (chunk {})", csvFile.getPath(), tableChunk.index);
+    }
     interface GraphSupplier {
       Mcf.McfGraph get() throws java.io.IOException, InterruptedException;
     }
 
     GraphSupplier parser;
-    McfFileGroup mcfGroup = (McfFileGroup) args.fileGroup;
-    TmcfCsvParser tParser =
-        TmcfCsvParser.init(
-            mcfGroup.getTmcf().getPath(), csvFile.getPath(), args.fileGroup.delimiter(), logCtx);
-    if (tParser == null) {
-      throw new DCTooManyFailuresException("processTables encountered too many failures");
+    InputStream spool = null;
+    if (tableChunk.spooled) {
+      // The rows were parsed (and parse errors logged) when looking up external IDs.
+      if (tableChunk.spoolFile == null) {
+        throw new DCTooManyFailuresException("processTables encountered too many failures");
+      }
+      InputStream spoolIn =
+          new BufferedInputStream(
+              new InflaterInputStream(Files.newInputStream(tableChunk.spoolFile)));
+      spool = spoolIn;
+      parser = () -> Mcf.McfGraph.parseDelimitedFrom(spoolIn);
+    } else {
+      McfFileGroup mcfGroup = (McfFileGroup) args.fileGroup;
+      TmcfCsvParser tParser =
+          TmcfCsvParser.init(
+              mcfGroup.getTmcf().getPath(),
+              csvFile.getPath(),
+              args.fileGroup.delimiter(),
+              logCtx,
+              tableChunk.chunk);
+      if (tParser == null) {
+        throw new DCTooManyFailuresException("processTables encountered too many failures");
+      }
+      parser = () -> tParser.parseNextRow();
     }
-    parser = () -> tParser.parseNextRow();
 
     WriterPair writerPair =
         new WriterPair(
             args,
             Args.OutputFileType.TABLE_MCF_NODES,
             Args.OutputFileType.FAILED_TABLE_MCF_NODES,
-            csvFile);
+            csvFile,
+            tableChunk.chunk == null ? -1 : tableChunk.index);
+    // Rows are resolved one at a time, with a resolver that is reused across the chunk's rows.
+    McfResolver resolver =
+        args.resolutionMode != Args.ResolutionMode.NONE
+            ? new McfResolver(args.verbose, idResolver, logCtx)
+            : null;
 
     Mcf.McfGraph g;
-    int numNodeSuccesses = 0, numPVSuccesses = 0, numRowSuccesses = 0, numRowsProcessed = 0;
-    Map<Mcf.McfStatVarObsSeries.Key, Mcf.McfStatVarObsSeries.Builder> groupedObservations =
-        new HashMap<>();
     while ((g = parser.get()) != null) {
       g = McfMutator.mutate(g.toBuilder(), logCtx);
 
@@ -337,7 +614,7 @@ public class Processor {
               logCtx);
 
       if (args.resolutionMode != Args.ResolutionMode.NONE) {
-        g = resolveCommon(g, writerPair);
+        g = resolveCommon(resolver, g, writerPair);
       } else {
         if (args.outputFiles != null) {
           writerPair.writeSuccess(g);
@@ -347,13 +624,13 @@ public class Processor {
       // Add relevant nodes from graph to statChecker and check for value inconsistencies.
       success &= processStats(List.of(g));
       if (success) {
-        numRowSuccesses++;
-        numNodeSuccesses += g.getNodesCount();
+        tableChunk.numRowSuccesses++;
+        tableChunk.numNodeSuccesses += g.getNodesCount();
         for (var kv : g.getNodesMap().entrySet()) {
-          numPVSuccesses += kv.getValue().getPvsCount();
+          tableChunk.numPVSuccesses += kv.getValue().getPvsCount();
         }
       }
-      numRowsProcessed++;
+      tableChunk.numRowsProcessed++;
 
       if (args.generateOptimizedGraph) {
         // Extract observations immediately to free memory
@@ -361,7 +638,8 @@ public class Processor {
         // Group observations incrementally by key to reduce memory usage
         for (McfStatVarObsSeries obs : extractedObservations) {
           McfStatVarObsSeries.Key key = obs.getKey();
-          groupedObservations
+          tableChunk
+              .groupedObservations
               .computeIfAbsent(key, k -> McfStatVarObsSeries.newBuilder().setKey(k))
               .addAllSvObsList(obs.getSvObsListList());
         }
@@ -370,11 +648,51 @@ public class Processor {
         throw new DCTooManyFailuresException("encountered too many failures");
       }
     }
+    writerPair.close();
+    if (spool != null) {
+      spool.close();
+      Files.delete(tableChunk.spoolFile);
+    }
+  }
+
+  // Called once all the chunks of a CSV file are processed, to combine their outputs (in order).
+  private void finishTable(List<TableChunk> tableChunks) throws IOException {
+    File csvFile = tableChunks.get(0).csvFile;
+    if (tableChunks.size() > 1 && args.outputFiles != null) {
+      WriterPair.mergeParts(
+          args,
+          Args.OutputFileType.TABLE_MCF_NODES,
+          Args.OutputFileType.FAILED_TABLE_MCF_NODES,
+          csvFile,
+          tableChunks.size());
+    }
+
+    int numNodeSuccesses = 0, numPVSuccesses = 0, numRowSuccesses = 0, numRowsProcessed = 0;
+    Map<Mcf.McfStatVarObsSeries.Key, Mcf.McfStatVarObsSeries.Builder> groupedObservations =
+        tableChunks.get(0).groupedObservations;
+    for (TableChunk tableChunk : tableChunks) {
+      numNodeSuccesses += tableChunk.numNodeSuccesses;
+      numPVSuccesses += tableChunk.numPVSuccesses;
+      numRowSuccesses += tableChunk.numRowSuccesses;
+      numRowsProcessed += tableChunk.numRowsProcessed;
+      if (tableChunk.index == 0) continue;
+      for (var kv : tableChunk.groupedObservations.entrySet()) {
+        var existing = groupedObservations.get(kv.getKey());
+        if (existing == null) {
+          groupedObservations.put(kv.getKey(), kv.getValue());
+        } else {
+          existing.addAllSvObsList(kv.getValue().getSvObsListList());
+        }
+      }
+    }
+
     if (args.generateOptimizedGraph) {
       String filePath =
           Paths.get(
                   args.outputDir.toString(),
-                  FilenameUtils.removeExtension(csvFile.getName()) + "_optimized_graph.pb")
+                  FilenameUtils.removeExtension(
+                          CompressedInput.stripCompressionExtension(csvFile.getName()))
+                      + "_optimized_graph.pb")
               .toString();
       logger.info("Writing optimized graph file to {}", filePath);
       // Build and write optimized graphs directly from grouped observations
@@ -401,22 +719,65 @@ public class Processor {
         csvFile.getName(),
         numRowsProcessed,
         numNodeSuccesses);
-    writerPair.close();
   }
 
   // Called only when existenceChecker is enabled.
   private void checkNodes() throws IOException, InterruptedException, DCTooManyFailuresException {
-    for (Mcf.McfGraph n : nodesForVariousChecks) {
-      if (McfChecker.check(n, existenceChecker, statVarState, logCtx)) {
-        numMcfNodeSuccesses += n.getNodesCount();
+    if (streamInstanceMcfs) {
+      for (File file : getFiles(Mcf.McfType.INSTANCE_MCF)) {
+        checkNodes(file);
       }
-      if (!logCtx.trackStatus(n.getNodesCount(), "nodes checked")) {
-        throw new DCTooManyFailuresException("checkNodes encountered too many failures");
+    } else {
+      for (Mcf.McfGraph n : nodesForVariousChecks) {
+        checkNode(n);
       }
     }
     existenceChecker.drainRemoteCalls();
   }
 
+  // Second pass over an instance MCF file when streaming. Since the nodes are not kept around,
+  // their stats are also processed here.
+  private void checkNodes(File file)
+      throws IOException, InterruptedException, DCTooManyFailuresException {
+    if (args.verbose) logger.info("Checking {} (with Existence checks)", file.getName());
+    if (file.getPath().contains(".jsonld")) {
+      try (java.io.InputStream is = new java.io.FileInputStream(file)) {
+        JsonLdParser parser = JsonLdParser.init(is);
+        Mcf.McfGraph n;
+        while ((n = parser.parseNextNode()) != null) {
+          n = McfMutator.mutate(n.toBuilder(), logCtx);
+          checkNode(n);
+          processStats(List.of(n));
+        }
+      }
+    } else {
+      processMcfChunks(
+          file,
+          splitMcf(Mcf.McfType.INSTANCE_MCF, file),
+          mcfChunk -> {
+            McfParser parser =
+                McfParser.init(
+                    Mcf.McfType.INSTANCE_MCF, file.getPath(), false, logCtx, mcfChunk.chunk);
+            Mcf.McfGraph n;
+            while ((n = parser.parseNextNode()) != null) {
+              n = McfMutator.mutate(n.toBuilder(), logCtx);
+              checkNode(n);
+              processStats(List.of(n));
+            }
+          });
+    }
+  }
+
+  private void checkNode(Mcf.McfGraph n)
+      throws IOException, InterruptedException, DCTooManyFailuresException {
+    if (McfChecker.check(n, existenceChecker, statVarState, logCtx)) {
+      numMcfNodeSuccesses.addAndGet(n.getNodesCount());
+    }
+    if (!logCtx.trackStatus(n.getNodesCount(), "nodes checked")) {
+      throw new DCTooManyFailuresException("checkNodes encountered too many failures");
+    }
+  }
+
   // Called only when resolution is enabled.
   private Mcf.McfGraph resolveNodes() throws IOException {
     var writerPair =
@@ -432,10 +793,14 @@ public class Processor {
 
   private Mcf.McfGraph resolveCommon(Mcf.McfGraph mcfGraph, WriterPair writerPair)
       throws IOException {
-    McfResolver resolver = new McfResolver(mcfGraph, args.verbose, idResolver, logCtx);
-    resolver.resolve();
+    return resolveCommon(new McfResolver(args.verbose, idResolver, logCtx), mcfGraph, writerPair);
+  }
+
+  private Mcf.McfGraph resolveCommon(
+      McfResolver resolver, Mcf.McfGraph mcfGraph, WriterPair writerPair) throws IOException {
+    resolver.resolve(mcfGraph);
+    var resolved = resolver.resolvedGraph();
     if (args.outputFiles != null) {
-      var resolved = resolver.resolvedGraph();
       if (!resolved.getNodesMap().isEmpty()) {
         writerPair.writeSuccess(resolved);
       }
@@ -444,7 +809,17 @@ public class Processor {
         writerPair.writeFailure(failed);
       }
     }
-    return resolver.resolvedGraph();
+    return resolved;
+  }
+
+  private Debug.MemoryMetrics getMemoryMetrics() {
+    Debug.MemoryMetrics.Builder metrics = RuntimeMetadataUtil.createHeapMetrics();
+    if (idResolver != null) {
+      metrics.setResolvedExternalIds(idResolver.numResolvedIds());
+      metrics.setResolvedCoordinates(idResolver.numResolvedCoordinates());
+      metrics.setExternalIdStorage(idResolver.getIdStorage().name());
+    }
+    return metrics.build();
   }
 
   // Process all the CSV tables to load all external IDs.
@@ -472,15 +847,35 @@ public class Processor {
             + ")");
 
     List<Callable<Void>> cbs = new ArrayList<Callable<Void>>(args.fileGroup.getCsvs().size());
-    for (File csvFile : args.fileGroup.getCsvs()) {
-      cbs.add(
-          new Callable<Void>() {
-            @Override
-            public Void call() throws Exception {
-              lookupExternalIdsFromTable(csvFile, dummyLog);
-              return null;
-            }
-          });
+    if (args.singlePassResolution) {
+      // Parse each CSV only once: the rows are spooled for processTables() to replay, and so
+      // they are parsed by chunks, with parse errors reported here.
+      spooledChunksPerFile = new ArrayList<>();
+      for (File csvFile : args.fileGroup.getCsvs()) {
+        List<TableChunk> tableChunks = splitTable(csvFile);
+        spooledChunksPerFile.add(tableChunks);
+        for (TableChunk tableChunk : tableChunks) {
+          cbs.add(
+              new Callable<Void>() {
+                @Override
+                public Void call() throws Exception {
+                  spoolTable(tableChunk);
+                  return null;
+                }
+              });
+        }
+      }
+    } else {
+      for (File csvFile : args.fileGroup.getCsvs()) {
+        cbs.add(
+            new Callable<Void>() {
+              @Override
+              public Void call() throws Exception {
+                lookupExternalIdsFromTable(csvFile, dummyLog);
+                return null;
+              }
+            });
+      }
     }
 
     var futures = execService.invokeAll(cbs);
@@ -519,6 +914,45 @@ public class Processor {
     }
   }
 
+  // Like lookupExternalIdsFromTable(), but for a CSV chunk, and also writes the parsed rows to a
+  // spool file (as delimited protos) to be replayed by processTable(). This is a thread-safe
+  // function invoked in parallel per CSV chunk.
+  private void spoolTable(TableChunk tableChunk)
+      throws DCTooManyFailuresException, IOException, InterruptedException {
+    File csvFile = tableChunk.csvFile;
+    if (args.verbose) logger.info("Reading and spooling CSV " + csvFile.getPath());
+    tableChunk.spooled = true;
+    TmcfCsvParser parser =
+        TmcfCsvParser.init(
+            ((McfFileGroup) args.fileGroup).getTmcf().getPath(),
+            csvFile.getPath(),
+            args.fileGroup.delimiter(),
+            logCtx,
+            tableChunk.chunk);
+    if (parser == null) return;
+    Path spoolFile = Files.createTempFile(args.outputDir, "table_rows", ".spool");
+    spoolFile.toFile().deleteOnExit();
+    tableChunk.spoolFile = spoolFile;
+    // Rows are small and similar, so the fastest compression level already shrinks them a lot.
+    Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+    try (OutputStream out =
+        new BufferedOutputStream(
+            new DeflaterOutputStream(Files.newOutputStream(spoolFile), deflater))) {
+      Mcf.McfGraph g;
+      while ((g = parser.parseNextRow()) != null) {
+        for (var idAndNode : g.getNodesMap().entrySet()) {
+          idResolver.submitNode(idAndNode.getValue());
+        }
+        g.writeDelimitedTo(out);
+        if (!logCtx.trackStatus(1, "rows spooled")) {
+          throw new DCTooManyFailuresException("encountered too many failures");
+        }
+      }
+    } finally {
+      deflater.end();
+    }
+  }
+
   // If statCheck is not null, Add stats from graphs and check for any value inconsistencies. Return
   // false if there are value inconsistencies found. All stats will still be added even if there are
   // value inconsistencies.
@@ -4,27 +4,85 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import org.apache.commons.io.FilenameUtils;
 import org.datacommons.proto.Mcf;
+import org.datacommons.util.CompressedInput;
 import org.datacommons.util.McfUtil;
 
 // Encloses a pair of writers for success and corresponding failure types, and creates the file
 // on-demand when a write comes in.
+//
+// When a CSV is processed in chunks, each chunk writes to its own part files, which are then
+// concatenated in order by mergeParts().
 class WriterPair {
   private final Args args;
   private final Args.OutputFileType successType;
   private final Args.OutputFileType failureType;
   private final File csvFile;
+  private final int partIndex;
   private BufferedWriter successWriter = null;
   private BufferedWriter failureWriter = null;
 
   public WriterPair(
       Args args, Args.OutputFileType successType, Args.OutputFileType failureType, File csvFile)
       throws IOException {
+    this(args, successType, failureType, csvFile, -1);
+  }
+
+  // Writes to part "partIndex" of the output files for csvFile. The parts are combined with
+  // mergeParts() once all of them are written.
+  public WriterPair(
+      Args args,
+      Args.OutputFileType successType,
+      Args.OutputFileType failureType,
+      File csvFile,
+      int partIndex)
+      throws IOException {
     this.args = args;
     this.successType = successType;
     this.failureType = failureType;
     this.csvFile = csvFile;
+    this.partIndex = partIndex;
+  }
+
+  // Concatenates (and deletes) the part files written for csvFile, in part order.
+  public static void mergeParts(
+      Args args,
+      Args.OutputFileType successType,
+      Args.OutputFileType failureType,
+      File csvFile,
+      int numParts)
+      throws IOException {
+    for (Args.OutputFileType type : new Args.OutputFileType[] {successType, failureType}) {
+      String filePath = outputPath(args, type, csvFile);
+      FileChannel out = null;
+      for (int i = 0; i < numParts; i++) {
+        Path partPath = Paths.get(partPath(filePath, i));
+        if (!Files.exists(partPath)) continue;
+        if (out == null) {
+          out =
+              FileChannel.open(
+                  Paths.get(filePath),
+                  StandardOpenOption.CREATE,
+                  StandardOpenOption.WRITE,
+                  StandardOpenOption.TRUNCATE_EXISTING);
+        }
+        try (FileChannel in = FileChannel.open(partPath)) {
+          long size = in.size();
+          long pos = 0;
+          while (pos < size) {
+            pos += in.transferTo(pos, size - pos, out);
+          }
+        }
+        Files.delete(partPath);
+      }
+      if (out != null) out.close();
+    }
   }
 
   public void writeSuccess(Mcf.McfGraph g) throws IOException {
@@ -47,11 +105,26 @@ class WriterPair {
   }
 
   private BufferedWriter newWriter(Args.OutputFileType type) throws IOException {
+    String filePath = outputPath(args, type, csvFile);
+    if (partIndex >= 0) {
+      filePath = partPath(filePath, partIndex);
+    }
+    return new BufferedWriter(new FileWriter(filePath));
+  }
+
+  private static String outputPath(Args args, Args.OutputFileType type, File csvFile) {
     String filePath = args.outputFiles.get(type).toString();
     if (csvFile != null) {
-      String fileSuffix = FilenameUtils.removeExtension(csvFile.getName()) + ".mcf";
+      String fileSuffix =
+          FilenameUtils.removeExtension(
+                  CompressedInput.stripCompressionExtension(csvFile.getName()))
+              + ".mcf";
       filePath = FilenameUtils.removeExtension(filePath) + "_" + fileSuffix;
     }
-    return new BufferedWriter(new FileWriter(filePath));
+    return filePath;
+  }
+
+  private static String partPath(String filePath, int partIndex) {
+    return filePath + ".part" + partIndex;
   }
 }
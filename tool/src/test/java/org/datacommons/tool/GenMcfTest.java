@@ -86,8 +86,6 @@ public class GenMcfTest {
     LogWrapper.TEST_MODE = true;
 
     String goldenFilesPrefix = System.getProperty("goldenFilesPrefix");
-    Main app = new Main();
-    CommandLine cmd = new CommandLine(app);
     File[] testDirectories = new File(resourceFile("genmcf")).listFiles(File::isDirectory);
     for (File directory : testDirectories) {
       String testName = directory.getName();
@@ -95,73 +93,95 @@ public class GenMcfTest {
         System.err.printf("SKIPPING FLAKY FILE: %s\n", testName);
         continue;
       }
-      System.err.println(testName + ": BEGIN");
-      assertTrue(EXPECTED_FILES_TO_CHECK.containsKey(testName));
-      List<String> argsList = new ArrayList<>();
-      argsList.add("genmcf");
-      File[] inputFiles = new File(Path.of(directory.getPath(), "input").toString()).listFiles();
-      List<String> expectedOutputFiles =
-          new ArrayList<>(
-              List.of(
-                  "report.json",
-                  "instance_mcf_nodes.mcf",
-                  "failed_instance_mcf_nodes.mcf",
-                  "summary_report.html"));
-      for (File inputFile : inputFiles) {
-        String fName = inputFile.getName();
-
-        if (fName.equals(ARGS_TXT_FNAME)) {
-          List<String> argsFromFile = TestUtil.readLinesFromFile(inputFile);
-          argsList.addAll(argsFromFile);
-        } else {
-          argsList.add(inputFile.getPath());
-          if (fName.endsWith(".csv") || fName.endsWith(".tsv")) {
-            expectedOutputFiles.add(
-                "table_mcf_nodes_" + FilenameUtils.removeExtension(fName) + ".mcf");
-            expectedOutputFiles.add(
-                "failed_table_mcf_nodes_" + FilenameUtils.removeExtension(fName) + ".mcf");
-          }
+      runTest(directory, List.of(), goldenFilesPrefix);
+    }
+  }
+
+  @Test
+  public void GenMcfTest_singlePassResolution() throws IOException {
+    TmcfCsvParser.TEST_mode = true;
+    SummaryReportGenerator.TEST_mode = true;
+    LogWrapper.TEST_MODE = true;
+
+    // Replaying the spooled rows should produce the same outputs as parsing the CSVs again.
+    for (String testName : List.of("fataltmcf", "resolution", "localidresolution")) {
+      runTest(
+          new File(resourceFile("genmcf"), testName), List.of("--single-pass-resolution"), null);
+    }
+  }
+
+  private void runTest(File directory, List<String> extraArgs, String goldenFilesPrefix)
+      throws IOException {
+    Main app = new Main();
+    CommandLine cmd = new CommandLine(app);
+    String testName = directory.getName();
+    System.err.println(testName + ": BEGIN");
+    assertTrue(EXPECTED_FILES_TO_CHECK.containsKey(testName));
+    List<String> argsList = new ArrayList<>();
+    argsList.add("genmcf");
+    File[] inputFiles = new File(Path.of(directory.getPath(), "input").toString()).listFiles();
+    List<String> expectedOutputFiles =
+        new ArrayList<>(
+            List.of(
+                "report.json",
+                "instance_mcf_nodes.mcf",
+                "failed_instance_mcf_nodes.mcf",
+                "summary_report.html"));
+    for (File inputFile : inputFiles) {
+      String fName = inputFile.getName();
+
+      if (fName.equals(ARGS_TXT_FNAME)) {
+        List<String> argsFromFile = TestUtil.readLinesFromFile(inputFile);
+        argsList.addAll(argsFromFile);
+      } else {
+        argsList.add(inputFile.getPath());
+        if (fName.endsWith(".csv") || fName.endsWith(".tsv")) {
+          expectedOutputFiles.add(
+              "table_mcf_nodes_" + FilenameUtils.removeExtension(fName) + ".mcf");
+          expectedOutputFiles.add(
+              "failed_table_mcf_nodes_" + FilenameUtils.removeExtension(fName) + ".mcf");
         }
       }
+    }
 
-      argsList.add("--resolution=FULL");
-      argsList.add("--output-dir=" + Paths.get(testFolder.getRoot().getPath(), testName));
-      String[] args = argsList.toArray(new String[argsList.size()]);
-      cmd.execute(args);
+    argsList.add("--resolution=FULL");
+    argsList.addAll(extraArgs);
+    argsList.add("--output-dir=" + Paths.get(testFolder.getRoot().getPath(), testName));
+    String[] args = argsList.toArray(new String[argsList.size()]);
+    cmd.execute(args);
 
-      Integer numChecked = 0;
-      if (goldenFilesPrefix != null && !goldenFilesPrefix.isEmpty()) {
-        for (var f : expectedOutputFiles) {
-          Path actual = TestUtil.getTestFilePath(testFolder, testName, f);
-          if (!f.equals("report.json") && !new File(actual.toString()).exists()) continue;
+    Integer numChecked = 0;
+    if (goldenFilesPrefix != null && !goldenFilesPrefix.isEmpty()) {
+      for (var f : expectedOutputFiles) {
+        Path actual = TestUtil.getTestFilePath(testFolder, testName, f);
+        if (!f.equals("report.json") && !new File(actual.toString()).exists()) continue;
 
-          Path golden = Path.of(goldenFilesPrefix, "genmcf", testName, "output", f);
-          Files.copy(actual, golden, REPLACE_EXISTING);
-          numChecked++;
-        }
-      } else {
-        for (var f : expectedOutputFiles) {
-          Path actual = TestUtil.getTestFilePath(testFolder, testName, f);
-          if (!f.equals("report.json") && !new File(actual.toString()).exists()) continue;
-
-          Path expected = TestUtil.getOutputFilePath(directory.getPath(), f);
-          if (f.equals("report.json")) {
-            TestUtil.assertReportFilesAreSimilar(
-                expect, TestUtil.readStringFromPath(expected), TestUtil.readStringFromPath(actual));
-          } else if (f.equals("summary_report.html")) {
-            TestUtil.assertHtmlFilesAreSimilar(
-                TestUtil.readStringFromPath(expected), TestUtil.readStringFromPath(actual));
-          } else {
-            assertEquals(
-                org.datacommons.util.TestUtil.mcfFromFile(expected.toString()),
-                org.datacommons.util.TestUtil.mcfFromFile(actual.toString()));
-          }
-          numChecked++;
+        Path golden = Path.of(goldenFilesPrefix, "genmcf", testName, "output", f);
+        Files.copy(actual, golden, REPLACE_EXISTING);
+        numChecked++;
+      }
+    } else {
+      for (var f : expectedOutputFiles) {
+        Path actual = TestUtil.getTestFilePath(testFolder, testName, f);
+        if (!f.equals("report.json") && !new File(actual.toString()).exists()) continue;
+
+        Path expected = TestUtil.getOutputFilePath(directory.getPath(), f);
+        if (f.equals("report.json")) {
+          TestUtil.assertReportFilesAreSimilar(
+              expect, TestUtil.readStringFromPath(expected), TestUtil.readStringFromPath(actual));
+        } else if (f.equals("summary_report.html")) {
+          TestUtil.assertHtmlFilesAreSimilar(
+              TestUtil.readStringFromPath(expected), TestUtil.readStringFromPath(actual));
+        } else {
+          assertEquals(
+              org.datacommons.util.TestUtil.mcfFromFile(expected.toString()),
+              org.datacommons.util.TestUtil.mcfFromFile(actual.toString()));
         }
+        numChecked++;
       }
-      assertEquals(numChecked, EXPECTED_FILES_TO_CHECK.get(testName));
-      System.err.println(testName + ": PASSED");
     }
+    assertEquals(numChecked, EXPECTED_FILES_TO_CHECK.get(testName));
+    System.err.println(testName + ": PASSED");
   }
 
   private String resourceFile(String resource) {
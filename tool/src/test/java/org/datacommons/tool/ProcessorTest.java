@@ -0,0 +1,114 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.tool;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import org.datacommons.util.LogWrapper;
+import org.datacommons.util.McfParser;
+import org.datacommons.util.SummaryReportGenerator;
+import org.datacommons.util.TmcfCsvParser;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import picocli.CommandLine;
+
+// Runs the genmcf test cases (see GenMcfTest) with Args that are not flags, such as chunk sizes
+// small enough to split the test inputs, and checks that the output MCF files are byte-identical
+// to the golden files.
+public class ProcessorTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private static final int NUM_THREADS = 4;
+
+  @Before
+  public void setUp() {
+    // Set this so that the generated node IDs are deterministic
+    TmcfCsvParser.TEST_mode = true;
+    SummaryReportGenerator.TEST_mode = true;
+    LogWrapper.TEST_MODE = true;
+  }
+
+  @Test
+  public void csvChunks() throws Exception {
+    for (String testName : List.of("resolution", "statchecks")) {
+      Args args = genMcfArgs(testName);
+      // Small enough to split the CSV files into a chunk per thread.
+      args.minCsvChunkBytes = 16;
+      runTest(testName, args);
+    }
+  }
+
+  @Test
+  public void mcfChunks() throws Exception {
+    // Splitting misc.mcf evenly by size would cut nodes in two, so the chunks must be moved to
+    // start at the next nodes.
+    File mcfFile = Path.of(resourceFile("resolution"), "input", "misc.mcf").toFile();
+    List<McfParser.McfChunk> chunks = McfParser.splitIntoChunks(mcfFile.getPath(), NUM_THREADS);
+    assertEquals(NUM_THREADS, chunks.size());
+    for (int i = 1; i < NUM_THREADS; i++) {
+      assertNotEquals(mcfFile.length() * i / NUM_THREADS, chunks.get(i).startOffset);
+    }
+
+    for (String testName : List.of("resolution", "localidresolution")) {
+      Args args = genMcfArgs(testName);
+      // Small enough to split the instance MCF files into a chunk per thread.
+      args.minMcfChunkBytes = 16;
+      runTest(testName, args);
+    }
+  }
+
+  // Returns the Args that GenMcfTest runs the test case with.
+  private Args genMcfArgs(String testName) {
+    List<String> argsList = new ArrayList<>();
+    argsList.add("genmcf");
+    for (File inputFile : Path.of(resourceFile(testName), "input").toFile().listFiles()) {
+      argsList.add(inputFile.getPath());
+    }
+    argsList.add("--resolution=FULL");
+    argsList.add("--num-threads=" + NUM_THREADS);
+    argsList.add("--output-dir=" + Paths.get(testFolder.getRoot().getPath(), testName));
+    CommandLine.ParseResult parsed =
+        new CommandLine(new Main()).parseArgs(argsList.toArray(new String[0]));
+    return ((GenMcf) parsed.subcommand().commandSpec().userObject()).toArgs();
+  }
+
+  private void runTest(String testName, Args args) throws Exception {
+    System.err.println(testName + ": BEGIN");
+    assertEquals(0, (int) Processor.process(args));
+    int numChecked = 0;
+    for (File golden : Path.of(resourceFile(testName), "output").toFile().listFiles()) {
+      if (!golden.getName().endsWith(".mcf")) continue;
+      Path actual = TestUtil.getTestFilePath(testFolder, testName, golden.getName());
+      assertEquals(golden.getName(), Files.readString(golden.toPath()), Files.readString(actual));
+      numChecked++;
+    }
+    assertTrue(numChecked > 0);
+    System.err.println(testName + ": PASSED");
+  }
+
+  private String resourceFile(String testName) {
+    return this.getClass().getResource("genmcf/" + testName).getPath();
+  }
+}
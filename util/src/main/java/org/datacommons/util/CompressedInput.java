@@ -0,0 +1,370 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import com.github.luben.zstd.Zstd;
+import com.github.luben.zstd.ZstdInputStream;
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+
+// Opens input files that may be gzip (.gz, .bgz) or zstd (.zst) compressed, as streams of the
+// decompressed bytes.
+//
+// Files that are made of independently compressed blocks with a known layout are decompressed in
+// parallel, a window of blocks ahead of the reader: BGZF files (as written by bgzip), whose gzip
+// members record their own size, and seekable zstd files, which end with a table of their frames.
+// Other files (e.g., a gzip file with a single member) are decompressed sequentially.
+public final class CompressedInput {
+  private static final String[] EXTENSIONS = {".gz", ".bgz", ".zst"};
+
+  // Blocks are grouped into batches of about this many compressed bytes, to be decompressed by a
+  // single task.
+  private static final int BATCH_BYTES = 1 << 20;
+  private static final int NUM_THREADS = Runtime.getRuntime().availableProcessors();
+
+  private static final int GZIP_HEADER_BYTES = 10;
+  private static final int GZIP_TRAILER_BYTES = 8;
+  private static final int GZIP_FEXTRA = 4;
+  private static final int ZSTD_SEEKABLE_MAGIC = 0x8F92EAB1;
+  private static final int ZSTD_SEEKABLE_FOOTER_BYTES = 9;
+  private static final int ZSTD_SKIPPABLE_HEADER_BYTES = 8;
+
+  private static ExecutorService executor;
+
+  private CompressedInput() {}
+
+  public static boolean isCompressed(String fileName) {
+    return !stripCompressionExtension(fileName).equals(fileName);
+  }
+
+  // Returns the file name without a compression extension, e.g., "data.csv" for "data.csv.gz".
+  public static String stripCompressionExtension(String fileName) {
+    String lower = fileName.toLowerCase();
+    for (String extension : EXTENSIONS) {
+      if (lower.endsWith(extension)) {
+        return fileName.substring(0, fileName.length() - extension.length());
+      }
+    }
+    return fileName;
+  }
+
+  // Opens a file, decompressing it based on its extension.
+  public static InputStream open(Path file) throws IOException {
+    String lower = file.getFileName().toString().toLowerCase();
+    if (lower.endsWith(".zst")) {
+      List<Block> frames = seekableZstdFrames(file);
+      if (frames != null) {
+        Iterator<Block> it = frames.iterator();
+        return new ParallelBlockInputStream(
+            FileChannel.open(file), () -> it.hasNext() ? it.next() : null, true);
+      }
+      return new ZstdInputStream(new BufferedInputStream(Files.newInputStream(file)));
+    }
+    if (lower.endsWith(".gz") || lower.endsWith(".bgz")) {
+      FileChannel channel = FileChannel.open(file);
+      if (BgzfBlocks.blockSize(channel, 0) > 0) {
+        return new ParallelBlockInputStream(channel, new BgzfBlocks(channel)::next, false);
+      }
+      channel.close();
+      return new GZIPInputStream(Files.newInputStream(file), 1 << 16);
+    }
+    return Files.newInputStream(file);
+  }
+
+  private static synchronized ExecutorService executor() {
+    if (executor == null) {
+      executor =
+          Executors.newFixedThreadPool(
+              NUM_THREADS,
+              r -> {
+                Thread t = new Thread(r, "decompress");
+                t.setDaemon(true);
+                return t;
+              });
+    }
+    return executor;
+  }
+
+  // A compressed block (a gzip member or a zstd frame) and its decompressed size.
+  private static final class Block {
+    final long offset;
+    final int size;
+    final int decompressedSize;
+
+    Block(long offset, int size, int decompressedSize) {
+      this.offset = offset;
+      this.size = size;
+      this.decompressedSize = decompressedSize;
+    }
+  }
+
+  private interface BlockSupplier {
+    // Returns the next block, or null after the last one.
+    Block next() throws IOException;
+  }
+
+  // Returns the frames listed in the seek table of a seekable zstd file, or null if the file does
+  // not have one.
+  private static List<Block> seekableZstdFrames(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file)) {
+      long size = channel.size();
+      if (size < ZSTD_SKIPPABLE_HEADER_BYTES + ZSTD_SEEKABLE_FOOTER_BYTES) return null;
+      ByteBuffer footer = readFully(channel, size - ZSTD_SEEKABLE_FOOTER_BYTES, 9);
+      if (footer.getInt(5) != ZSTD_SEEKABLE_MAGIC) return null;
+      long numFrames = footer.getInt(0) & 0xffffffffL;
+      int entryBytes = (footer.get(4) & 0x80) != 0 ? 12 : 8;
+      long tableStart = size - ZSTD_SEEKABLE_FOOTER_BYTES - numFrames * entryBytes;
+      if (tableStart < ZSTD_SKIPPABLE_HEADER_BYTES || numFrames * entryBytes > Integer.MAX_VALUE) {
+        return null;
+      }
+      ByteBuffer table = readFully(channel, tableStart, (int) (numFrames * entryBytes));
+      List<Block> frames = new ArrayList<>();
+      long offset = 0;
+      for (int i = 0; i < numFrames; i++) {
+        int compressedSize = table.getInt(i * entryBytes);
+        int decompressedSize = table.getInt(i * entryBytes + 4);
+        if (compressedSize < 0 || decompressedSize < 0) return null;
+        frames.add(new Block(offset, compressedSize, decompressedSize));
+        offset += compressedSize;
+      }
+      // The frames are followed by the skippable frame with the seek table.
+      if (offset != tableStart - ZSTD_SKIPPABLE_HEADER_BYTES) return null;
+      return frames;
+    }
+  }
+
+  // Walks the members of a BGZF file, each of which has its compressed size in a "BC" field of
+  // its gzip header, and its decompressed size in its trailer.
+  private static final class BgzfBlocks {
+    private final FileChannel channel;
+    private long offset = 0;
+
+    BgzfBlocks(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    Block next() throws IOException {
+      if (offset >= channel.size()) return null;
+      int blockSize = blockSize(channel, offset);
+      if (blockSize < 0) {
+        throw new IOException("Malformed BGZF block at offset " + offset);
+      }
+      ByteBuffer trailer = readFully(channel, offset + blockSize - 4, 4);
+      Block block = new Block(offset, blockSize, trailer.getInt(0));
+      offset += blockSize;
+      return block;
+    }
+
+    // Returns the size of the gzip member at |offset| from its "BC" field, or -1 if it has none.
+    static int blockSize(FileChannel channel, long offset) throws IOException {
+      long size = channel.size();
+      if (size - offset < GZIP_HEADER_BYTES + 2) return -1;
+      ByteBuffer header = readFully(channel, offset, GZIP_HEADER_BYTES + 2);
+      if (header.get(0) != 0x1f
+          || header.get(1) != (byte) 0x8b
+          || (header.get(3) & GZIP_FEXTRA) == 0) {
+        return -1;
+      }
+      int extraLength = header.getShort(GZIP_HEADER_BYTES) & 0xffff;
+      if (size - offset < GZIP_HEADER_BYTES + 2 + extraLength) return -1;
+      ByteBuffer extra = readFully(channel, offset + GZIP_HEADER_BYTES + 2, extraLength);
+      for (int i = 0; i + 4 <= extraLength; ) {
+        int fieldLength = extra.getShort(i + 2) & 0xffff;
+        if (extra.get(i) == 'B' && extra.get(i + 1) == 'C' && fieldLength == 2) {
+          int blockSize = (extra.getShort(i + 4) & 0xffff) + 1;
+          return offset + blockSize <= size ? blockSize : -1;
+        }
+        i += 4 + fieldLength;
+      }
+      return -1;
+    }
+  }
+
+  // Decompresses batches of blocks in parallel, and returns their bytes in order.
+  private static final class ParallelBlockInputStream extends InputStream {
+    private final FileChannel channel;
+    private final BlockSupplier blocks;
+    private final boolean zstd;
+    private final Deque<Future<byte[]>> pending = new ArrayDeque<>();
+    private boolean noMoreBlocks = false;
+    private byte[] current = new byte[0];
+    private int pos = 0;
+
+    ParallelBlockInputStream(FileChannel channel, BlockSupplier blocks, boolean zstd) {
+      this.channel = channel;
+      this.blocks = blocks;
+      this.zstd = zstd;
+    }
+
+    @Override
+    public int read() throws IOException {
+      if (pos == current.length && !nextBatch()) return -1;
+      return current[pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (pos == current.length && !nextBatch()) return -1;
+      int n = Math.min(len, current.length - pos);
+      System.arraycopy(current, pos, b, off, n);
+      pos += n;
+      return n;
+    }
+
+    @Override
+    public void close() throws IOException {
+      for (Future<byte[]> f : pending) {
+        f.cancel(true);
+      }
+      pending.clear();
+      channel.close();
+    }
+
+    private boolean nextBatch() throws IOException {
+      do {
+        fillWindow();
+        if (pending.isEmpty()) return false;
+        try {
+          current = pending.poll().get();
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new InterruptedIOException("Interrupted while decompressing");
+        } catch (ExecutionException e) {
+          if (e.getCause() instanceof IOException) throw (IOException) e.getCause();
+          throw new IOException("Failed to decompress", e.getCause());
+        }
+        pos = 0;
+      } while (current.length == 0);
+      return true;
+    }
+
+    // Submits batches until there are two per thread in flight.
+    private void fillWindow() throws IOException {
+      while (!noMoreBlocks && pending.size() < 2 * NUM_THREADS) {
+        List<Block> batch = new ArrayList<>();
+        long batchBytes = 0;
+        while (batchBytes < BATCH_BYTES) {
+          Block block = blocks.next();
+          if (block == null) {
+            noMoreBlocks = true;
+            break;
+          }
+          batch.add(block);
+          batchBytes += block.size;
+        }
+        if (batch.isEmpty()) break;
+        pending.add(executor().submit(() -> decompress(batch)));
+      }
+    }
+
+    private byte[] decompress(List<Block> batch) throws IOException {
+      long outputSize = 0;
+      for (Block block : batch) {
+        outputSize += block.decompressedSize & 0xffffffffL;
+      }
+      if (outputSize > Integer.MAX_VALUE - 8) {
+        throw new IOException("Compressed block is too large");
+      }
+      Block first = batch.get(0);
+      Block last = batch.get(batch.size() - 1);
+      ByteBuffer input =
+          readFully(channel, first.offset, (int) (last.offset + last.size - first.offset));
+      byte[] output = new byte[(int) outputSize];
+      int outputOffset = 0;
+      for (Block block : batch) {
+        int inputOffset = (int) (block.offset - first.offset);
+        if (zstd) {
+          long n =
+              Zstd.decompressByteArray(
+                  output,
+                  outputOffset,
+                  block.decompressedSize,
+                  input.array(),
+                  inputOffset,
+                  block.size);
+          if (Zstd.isError(n) || n != block.decompressedSize) {
+            throw new IOException("Malformed zstd frame at offset " + block.offset);
+          }
+        } else {
+          inflateGzipMember(input, inputOffset, block, output, outputOffset);
+        }
+        outputOffset += block.decompressedSize;
+      }
+      return output;
+    }
+
+    private static void inflateGzipMember(
+        ByteBuffer input, int inputOffset, Block block, byte[] output, int outputOffset)
+        throws IOException {
+      int extraLength = input.getShort(inputOffset + GZIP_HEADER_BYTES) & 0xffff;
+      int dataOffset = inputOffset + GZIP_HEADER_BYTES + 2 + extraLength;
+      int dataLength = block.size - (dataOffset - inputOffset) - GZIP_TRAILER_BYTES;
+      if (dataLength < 0) {
+        throw new IOException("Malformed gzip member at offset " + block.offset);
+      }
+      Inflater inflater = new Inflater(true);
+      try {
+        inflater.setInput(input.slice(dataOffset, dataLength));
+        int n = inflater.inflate(output, outputOffset, block.decompressedSize);
+        if (n != block.decompressedSize || (n > 0 && !inflater.finished())) {
+          throw new IOException("Malformed gzip member at offset " + block.offset);
+        }
+      } catch (DataFormatException e) {
+        throw new IOException("Malformed gzip member at offset " + block.offset, e);
+      } finally {
+        inflater.end();
+      }
+      CRC32 crc = new CRC32();
+      crc.update(output, outputOffset, block.decompressedSize);
+      if ((int) crc.getValue() != input.getInt(dataOffset + dataLength)) {
+        throw new IOException("CRC mismatch in gzip member at offset " + block.offset);
+      }
+    }
+  }
+
+  // Reads |length| bytes at |position| into a little-endian buffer.
+  private static ByteBuffer readFully(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of file at offset " + position);
+      }
+    }
+    return buffer.flip();
+  }
+}
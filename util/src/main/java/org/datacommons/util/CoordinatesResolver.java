@@ -2,7 +2,6 @@ package org.datacommons.util;
 
 import static java.util.stream.Collectors.toList;
 
-import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -11,19 +10,40 @@ import org.datacommons.proto.Mcf.McfGraph.Values;
 import org.datacommons.proto.Mcf.ValueType;
 import org.datacommons.proto.Resolve.ResolveRequest;
 import org.datacommons.proto.Resolve.ResolveResponse;
-import org.datacommons.proto.Resolve.ResolveResponse.Entity.Candidate;
 
 /** Resolves nodes with lat-lngs by calling the DC coordinates resolution API. */
 // TODO: Add counters for errors.
 final class CoordinatesResolver {
+  // A lat-lng, kept as two doubles rather than as its "<lat>#<lng>" string, which is the format
+  // used by the V2 resolve API.
+  record Coordinate(double lat, double lng) {
+    @Override
+    public String toString() {
+      return String.format("%s#%s", lat, lng);
+    }
+
+    // Returns the coordinate for a "<lat>#<lng>" string, if it is one.
+    static Optional<Coordinate> parse(String coordinate) {
+      int sep = coordinate.indexOf('#');
+      if (sep < 0) return Optional.empty();
+      try {
+        return Optional.of(
+            new Coordinate(
+                Double.parseDouble(coordinate.substring(0, sep)),
+                Double.parseDouble(coordinate.substring(sep + 1))));
+      } catch (NumberFormatException e) {
+        return Optional.empty();
+      }
+    }
+  }
+
   // Coordinates to be resolved.
-  // The coordinates are maintained as strings in the following format: "<lat>#<lng>".
-  // This format is used since it is the format used by the V2 resolve API as well.
-  private final Set<String> resolveCoordinates = ConcurrentHashMap.newKeySet();
+  private final Set<Coordinate> resolveCoordinates = ConcurrentHashMap.newKeySet();
 
   // Coordinates that were resolved to DCIDs.
-  // The Map maintains mappings from coordinate string to Set of candidate DCIDs.
-  private final ConcurrentHashMap<String, Set<String>> resolvedCoordinates =
+  // The Map maintains mappings from coordinate to the first candidate DCID, which is the only one
+  // used for resolution.
+  private final ConcurrentHashMap<Coordinate, String> resolvedCoordinates =
       new ConcurrentHashMap<>();
 
   private final ReconClient client;
@@ -33,7 +53,7 @@ final class CoordinatesResolver {
   }
 
   boolean submit(PropertyValues node) {
-    Optional<String> optionalCoordinate = getCoordinate(node);
+    Optional<Coordinate> optionalCoordinate = getCoordinate(node);
     if (optionalCoordinate.isPresent()) {
       resolveCoordinates.add(optionalCoordinate.get());
       return true;
@@ -45,7 +65,7 @@ final class CoordinatesResolver {
     if (!resolveCoordinates.isEmpty()) {
       ResolveRequest request =
           ResolveRequest.newBuilder()
-              .addAllNodes(resolveCoordinates)
+              .addAllNodes(resolveCoordinates.stream().map(Coordinate::toString).collect(toList()))
               .setProperty("<-geoCoordinate->dcid")
               .build();
       ResolveResponse response = client.resolve(request);
@@ -54,9 +74,11 @@ final class CoordinatesResolver {
   }
 
   Optional<String> resolve(PropertyValues node) {
-    return getCoordinate(node)
-        .filter(resolvedCoordinates::containsKey)
-        .flatMap(coordinate -> resolvedCoordinates.get(coordinate).stream().findFirst());
+    return getCoordinate(node).map(resolvedCoordinates::get);
+  }
+
+  long numResolvedCoordinates() {
+    return resolvedCoordinates.size();
   }
 
   private void populateResolvedCandidates(ResolveResponse response) {
@@ -65,17 +87,15 @@ final class CoordinatesResolver {
         .forEach(
             entity -> {
               if (entity.getCandidatesCount() > 0) {
-                resolvedCoordinates.put(
-                    entity.getNode(),
-                    new LinkedHashSet<>(
-                        entity.getCandidatesList().stream()
-                            .map(Candidate::getDcid)
-                            .collect(toList())));
+                Coordinate.parse(entity.getNode())
+                    .ifPresent(
+                        coordinate ->
+                            resolvedCoordinates.put(coordinate, entity.getCandidates(0).getDcid()));
               }
             });
   }
 
-  private static Optional<String> getCoordinate(PropertyValues node) {
+  private static Optional<Coordinate> getCoordinate(PropertyValues node) {
     if (node.containsPvs(Vocabulary.LATITUDE) && node.containsPvs(Vocabulary.LONGITUDE)) {
 
       Optional<Double> optLat = getDoubleValue(node.getPvsMap().get(Vocabulary.LATITUDE));
@@ -86,7 +106,7 @@ final class CoordinatesResolver {
         double lng = optLng.get();
 
         if (!Double.isNaN(lat) && !Double.isNaN(lng)) {
-          return Optional.of(String.format("%s#%s", lat, lng));
+          return Optional.of(new Coordinate(lat, lng));
         }
       }
     }
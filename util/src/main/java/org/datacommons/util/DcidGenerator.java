@@ -3,6 +3,7 @@ package org.datacommons.util;
 import static org.datacommons.util.Vocabulary.*;
 
 import com.google.common.base.Charsets;
+import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
 import java.util.*;
 import org.datacommons.proto.Debug;
@@ -35,6 +36,8 @@ public class DcidGenerator {
   // Max number of bits of a 32-bit encoding
   private static final int MAX_NUM_BITS = 5;
 
+  private static final HashFunction FARM_HASH = Hashing.farmHashFingerprint64();
+
   // Set of place types that use random short-ID. Typically though their IDs are derived from
   // external IDs (like geoId/06).
   private static final Set<String> TYPES_USING_SHORT_ID =
@@ -119,6 +122,9 @@ public class DcidGenerator {
 
   private static final LogWrapper dummyLogCtx = new LogWrapper(Debug.Log.newBuilder());
 
+  // Per-thread buffers for the content hash of a node, reused across nodes.
+  private static final ThreadLocal<KeyHasher> KEY_HASHER = ThreadLocal.withInitial(KeyHasher::new);
+
   public static class Result {
     // The dcid will be empty if there were any errors in the node. These should have been
     // reported earlier by McfChecker.
@@ -131,6 +137,13 @@ public class DcidGenerator {
 
   // The logic generally assumes "pvs" have already been sanity-checked.
   public static Result forStatVar(String nodeId, Mcf.McfGraph.PropertyValues pvs) {
+    return forStatVar(nodeId, pvs, true);
+  }
+
+  // If withKeyString is false, Result.keyString is left empty, which saves building it when only
+  // the dcid is needed.
+  public static Result forStatVar(
+      String nodeId, Mcf.McfGraph.PropertyValues pvs, boolean withKeyString) {
     List<String> props = new ArrayList<>();
     for (Map.Entry<String, Mcf.McfGraph.Values> pv : pvs.getPvsMap().entrySet()) {
       String p = pv.getKey();
@@ -150,7 +163,7 @@ public class DcidGenerator {
     if (typeOf.isEmpty()) {
       return result;
     }
-    List<String> keyParts = new ArrayList<>();
+    KeyHasher key = KEY_HASHER.get().reset();
     var pvMap = pvs.getPvsMap();
     for (var prop : props) {
       if (!pvMap.containsKey(prop)) continue;
@@ -164,25 +177,28 @@ public class DcidGenerator {
             // Failed. Return empty Result.
             return result;
           }
-          keyParts.add(prop + "=" + cvp.getDcid());
+          key.append(prop).append('=').append(cvp.getDcid());
         } else {
-          keyParts.add(prop + "=" + tv.getValue());
+          key.append(prop).append('=').append(tv.getValue());
         }
       }
     }
-    result.keyString = String.join("", keyParts);
-    result.dcid = forSerializedPropVals(typeOf, result.keyString);
-    return result;
+    return key.toResult(typeOf, withKeyString);
   }
 
   public static Result forStatVarObs(String nodeId, Mcf.McfGraph.PropertyValues pvs) {
+    return forStatVarObs(nodeId, pvs, true);
+  }
+
+  public static Result forStatVarObs(
+      String nodeId, Mcf.McfGraph.PropertyValues pvs, boolean withKeyString) {
     String typeOf = McfUtil.getPropVal(pvs, Vocabulary.TYPE_OF);
     Result result = new Result();
     if (typeOf.isEmpty()) {
       return result;
     }
 
-    List<String> keyParts = new ArrayList<>();
+    KeyHasher key = KEY_HASHER.get().reset();
     for (int i = 0; i < ORDERED_STAT_VAR_OBS_KEY_PROPS.size(); i++) {
       var prop = ORDERED_STAT_VAR_OBS_KEY_PROPS.get(i);
       var tvs = McfUtil.getPropTvs(pvs, prop);
@@ -203,11 +219,9 @@ public class DcidGenerator {
         // One of the values is still a local-ref, cannot assign DCID.
         return result;
       }
-      keyParts.add(prop + "=" + val);
+      key.append(prop).append('=').append(val);
     }
-    result.keyString = String.join("", keyParts);
-    result.dcid = forSerializedPropVals(typeOf, result.keyString);
-    return result;
+    return key.toResult(typeOf, withKeyString);
   }
 
   public static Result forPlace(Mcf.McfGraph.PropertyValues pvs) {
@@ -235,6 +249,11 @@ public class DcidGenerator {
   }
 
   public static Result forPopulation(String nodeId, Mcf.McfGraph.PropertyValues pvs) {
+    return forPopulation(nodeId, pvs, true);
+  }
+
+  public static Result forPopulation(
+      String nodeId, Mcf.McfGraph.PropertyValues pvs, boolean withKeyString) {
     Result result = new Result();
     // Do a pass to build pvConstraints if provided. Also strip refs.
     Map<String, String> pvMap = new HashMap<>();
@@ -283,28 +302,28 @@ public class DcidGenerator {
     }
     Collections.sort(ordered_cprops);
 
-    List<String> keyParts = new ArrayList<>();
-
     var popType = McfUtil.getPropVal(pvs, Vocabulary.POPULATION_TYPE);
     if (popType.isEmpty()) return result;
-    keyParts.add(popType);
 
     var location = McfUtil.getPropVal(pvs, Vocabulary.LOCATION);
     if (location.isEmpty()) return result;
-    keyParts.add(location);
 
-    keyParts.add(McfUtil.getPropVal(pvs, Vocabulary.MEMBER_OF));
+    KeyHasher key = KEY_HASHER.get().reset();
+    key.append(popType).append(location).append(McfUtil.getPropVal(pvs, Vocabulary.MEMBER_OF));
     for (var cprop : ordered_cprops) {
-      keyParts.add(cprop + pvMap.get(cprop));
+      key.append(cprop).append(pvMap.get(cprop));
     }
-    result.keyString = String.join("", keyParts);
-    result.dcid = forSerializedPropVals(Vocabulary.LEGACY_POPULATION_TYPE_SUFFIX, result.keyString);
-    return result;
+    return key.toResult(Vocabulary.LEGACY_POPULATION_TYPE_SUFFIX, withKeyString);
   }
 
   public static Result forObservation(String nodeId, Mcf.McfGraph.PropertyValues pvs) {
+    return forObservation(nodeId, pvs, true);
+  }
+
+  public static Result forObservation(
+      String nodeId, Mcf.McfGraph.PropertyValues pvs, boolean withKeyString) {
     Result result = new Result();
-    List<String> keyParts = new ArrayList<>();
+    KeyHasher key = KEY_HASHER.get().reset();
     for (int i = 0; i < ORDERED_LEGACY_OBS_KEY_PROPS.size(); i++) {
       var prop = ORDERED_LEGACY_OBS_KEY_PROPS.get(i);
       var tvs = McfUtil.getPropTvs(pvs, prop);
@@ -324,21 +343,24 @@ public class DcidGenerator {
         // One of the values is still a local-ref, cannot assign DCID.
         return result;
       }
-      keyParts.add(prop + "=" + val);
+      key.append(prop).append('=').append(val);
     }
-    result.keyString = String.join("", keyParts);
-    result.dcid =
-        forSerializedPropVals(Vocabulary.LEGACY_OBSERVATION_TYPE_SUFFIX, result.keyString);
-    return result;
+    return key.toResult(Vocabulary.LEGACY_OBSERVATION_TYPE_SUFFIX, withKeyString);
   }
 
   private static String forSerializedPropVals(String schemaType, String serializedPropVals) {
+    return forFingerprint(
+        schemaType, FARM_HASH.hashString(serializedPropVals, Charsets.UTF_8).asLong());
+  }
+
+  // Returns the dcid for a node of schemaType, given the fingerprint of its serialized PVs.
+  private static String forFingerprint(String schemaType, long fp) {
     if (schemaType.endsWith(Vocabulary.LEGACY_POPULATION_TYPE_SUFFIX)) {
-      return DC_NAMESPACE + POP_NAMESPACE + getLongId(serializedPropVals);
+      return getLongId(DC_NAMESPACE + POP_NAMESPACE, fp);
     } else if (schemaType.equals(Vocabulary.STAT_VAR_OBSERVATION_TYPE)) {
-      return DC_NAMESPACE + SVOBS_NAMESPACE + getLongId(serializedPropVals);
+      return getLongId(DC_NAMESPACE + SVOBS_NAMESPACE, fp);
     } else if (schemaType.endsWith(Vocabulary.LEGACY_OBSERVATION_TYPE_SUFFIX)) {
-      return DC_NAMESPACE + OBS_NAMESPACE + getLongId(serializedPropVals);
+      return getLongId(DC_NAMESPACE + OBS_NAMESPACE, fp);
     } else if (TYPES_USING_SHORT_ID.contains(schemaType)) {
       throw new UnsupportedOperationException(
           "Opaque short ID for type "
@@ -346,19 +368,20 @@ public class DcidGenerator {
               + " is "
               + "unsupported! Please use the DC prod tooling!");
     } else {
-      return DC_NAMESPACE + getLongId(serializedPropVals);
+      return getLongId(DC_NAMESPACE, fp);
     }
   }
 
-  // Performs base32 encoding and returns the number of bytes of id_buf filled up.
-  private static int base32Encode(char[] id_buf, int buf_sz, Long id) {
+  // Performs base32 encoding into id_buf, starting at offset, and returns the number of chars
+  // filled up.
+  private static int base32Encode(char[] id_buf, int offset, int buf_sz, long id) {
     int i = 0;
     for (; i < buf_sz; ++i) {
       int v = Math.toIntExact(id & 0x1f);
       if (v < 0 || v >= DCID_BASE32_MAP.length) {
         throw new NumberFormatException("Unexpected integer arithmetic error: " + v);
       }
-      id_buf[i] = DCID_BASE32_MAP[v];
+      id_buf[offset + i] = DCID_BASE32_MAP[v];
       // NOTE: It is important that this is a logical right shift (>>>) without sign extension.
       id = id >>> MAX_NUM_BITS;
       if (id == 0) return i + 1;
@@ -367,10 +390,67 @@ public class DcidGenerator {
         "Unexpected base32Encoding error: '" + new String(id_buf) + "' : " + i);
   }
 
-  private static String getLongId(String input) {
-    char[] buf = new char[MAX_LONG_ID_LEN];
-    Long fp = Hashing.farmHashFingerprint64().hashString(input, Charsets.UTF_8).asLong();
-    int l = base32Encode(buf, MAX_LONG_ID_LEN, fp);
-    return new String(buf, 0, l);
+  // Returns prefix followed by the base32 encoding of fp.
+  private static String getLongId(String prefix, long fp) {
+    char[] buf = KEY_HASHER.get().idBuf(prefix.length() + MAX_LONG_ID_LEN);
+    prefix.getChars(0, prefix.length(), buf, 0);
+    int l = base32Encode(buf, prefix.length(), MAX_LONG_ID_LEN, fp);
+    return new String(buf, 0, prefix.length() + l);
+  }
+
+  // Accumulates the serialized PVs of a node (the key string), and fingerprints them as the UTF-8
+  // bytes of the key string, without building it (unless asked to) or the parts that go into it.
+  private static final class KeyHasher {
+    private final StringBuilder key = new StringBuilder();
+    private byte[] bytes = new byte[256];
+    private char[] idBuf = new char[32];
+
+    KeyHasher reset() {
+      key.setLength(0);
+      return this;
+    }
+
+    KeyHasher append(String s) {
+      key.append(s);
+      return this;
+    }
+
+    KeyHasher append(char c) {
+      key.append(c);
+      return this;
+    }
+
+    Result toResult(String schemaType, boolean withKeyString) {
+      Result result = new Result();
+      if (withKeyString) {
+        result.keyString = key.toString();
+      }
+      result.dcid = forFingerprint(schemaType, fingerprint());
+      return result;
+    }
+
+    // Same as hashing key.toString() with FARM_HASH and UTF-8.
+    private long fingerprint() {
+      int len = key.length();
+      if (bytes.length < len) {
+        bytes = new byte[Math.max(len, bytes.length * 2)];
+      }
+      for (int i = 0; i < len; i++) {
+        char c = key.charAt(i);
+        if (c >= 0x80) {
+          // Leave multi-byte chars (and unpaired surrogates) to the UTF-8 encoder.
+          return FARM_HASH.hashString(key, Charsets.UTF_8).asLong();
+        }
+        bytes[i] = (byte) c;
+      }
+      return FARM_HASH.hashBytes(bytes, 0, len).asLong();
+    }
+
+    private char[] idBuf(int size) {
+      if (idBuf.length < size) {
+        idBuf = new char[size];
+      }
+      return idBuf;
+    }
   }
 }
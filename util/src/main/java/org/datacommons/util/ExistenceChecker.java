@@ -4,6 +4,15 @@ import com.google.gson.JsonObject;
 import java.io.IOException;
 import java.net.http.HttpClient;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.logging.log4j.util.Strings;
@@ -39,37 +48,111 @@ public class ExistenceChecker {
   // Node is just the DCID. Triple is "s,p,o" and the property just includes SCHEMA_PROPERTIES.
   private final Set<String> existingNodesOrTriples; // Existence cache
   private final Set<String> missingNodesOrTriples; // Absence cache
+  // Results of DC calls from prior runs, consulted before making a call. May be null.
+  private final PersistentCache persistentCache;
+  // If set, checks are answered from this snapshot of the KG, and no DC calls are made.
+  private final ReferenceKgIndex referenceKg;
 
   // To amortize DC call latency we batch calls up to DC_CALL_BATCH_LIMIT. The batching happens
-  // per (triple) predicate.
+  // per (triple) predicate, and each predicate's batch is guarded by its own lock.
   //
   // Batch map:  predicate -> subject -> object -> list of pending call-contexts
   //
   // We batch based on the number of subjects in a predicate. To avoid worst case memory
   // usage, if all checks are for the same node, we have a global limit of max pending calls.
-  private final Map<String, Map<String, Map<String, List<LogCb>>>> remoteBatchMap;
-  private int totalPendingCallCount = 0;
+  private final ConcurrentMap<String, PredicateBatch> remoteBatchMap;
+  private final AtomicInteger totalPendingCallCount = new AtomicInteger();
+
+  // Full batches are sent to DC on dispatchService, with at most maxInFlightCalls calls
+  // outstanding (beyond that, the submitting thread waits). With maxInFlightCalls of 0, calls are
+  // made synchronously by the submitting thread.
+  private final int maxInFlightCalls;
+  private final ExecutorService dispatchService;
+  private final Semaphore inFlightCalls;
+  // The first failure from a dispatched call, rethrown on the next submit or drain.
+  private final AtomicReference<Exception> dispatchFailure = new AtomicReference<>();
+
+  private static final class PredicateBatch {
+    private Map<String, Map<String, List<LogCb>>> subMap = new HashMap<>();
+
+    // Returns the pending calls, leaving the batch empty. Must be called with the lock held.
+    Map<String, Map<String, List<LogCb>>> take() {
+      var result = subMap;
+      subMap = new HashMap<>();
+      return result;
+    }
+  }
 
   public ExistenceChecker(HttpClient httpClient, boolean verbose, LogWrapper logCtx) {
+    this(httpClient, verbose, 0, null, logCtx);
+  }
+
+  public ExistenceChecker(
+      HttpClient httpClient, boolean verbose, int maxInFlightCalls, LogWrapper logCtx) {
+    this(httpClient, verbose, maxInFlightCalls, null, logCtx);
+  }
+
+  public ExistenceChecker(
+      HttpClient httpClient,
+      boolean verbose,
+      int maxInFlightCalls,
+      PersistentCache persistentCache,
+      LogWrapper logCtx) {
+    this(httpClient, null, verbose, maxInFlightCalls, persistentCache, logCtx);
+  }
+
+  // Checks against a snapshot of the KG, without making DC calls.
+  public ExistenceChecker(ReferenceKgIndex referenceKg, boolean verbose, LogWrapper logCtx) {
+    this(null, referenceKg, verbose, 0, null, logCtx);
+  }
+
+  private ExistenceChecker(
+      HttpClient httpClient,
+      ReferenceKgIndex referenceKg,
+      boolean verbose,
+      int maxInFlightCalls,
+      PersistentCache persistentCache,
+      LogWrapper logCtx) {
     this.httpClient = httpClient;
+    this.referenceKg = referenceKg;
+    this.persistentCache = persistentCache;
     this.logCtx = logCtx;
     this.verbose = verbose;
-    existingNodesOrTriples = new HashSet<>();
-    missingNodesOrTriples = new HashSet<>();
-    remoteBatchMap = new HashMap<>();
+    existingNodesOrTriples = ConcurrentHashMap.newKeySet();
+    missingNodesOrTriples = ConcurrentHashMap.newKeySet();
+    remoteBatchMap = new ConcurrentHashMap<>();
+    this.maxInFlightCalls = maxInFlightCalls;
+    if (maxInFlightCalls > 0) {
+      dispatchService =
+          Executors.newFixedThreadPool(
+              maxInFlightCalls,
+              r -> {
+                Thread t = new Thread(r, "existence-checker");
+                t.setDaemon(true);
+                return t;
+              });
+      inFlightCalls = new Semaphore(maxInFlightCalls, true);
+    } else {
+      dispatchService = null;
+      inFlightCalls = null;
+    }
   }
 
-  public synchronized void submitNodeCheck(String node, LogCb logCb)
-      throws IOException, InterruptedException {
+  public void submitNodeCheck(String node, LogCb logCb) throws IOException, InterruptedException {
+    rethrowDispatchFailure();
     logCtx.incrementInfoCounterBy("Existence_NumChecks", 1);
     if (checkLocal(node, Vocabulary.TYPE_OF, "", logCb)) {
       return;
     }
     assert !node.isEmpty();
+    if (referenceKg != null) {
+      checkReferenceKg(node, Vocabulary.TYPE_OF, "", logCb);
+      return;
+    }
     batchRemoteCall(node, Vocabulary.TYPE_OF, "", logCb);
   }
 
-  public synchronized void submitTripleCheck(String sub, String pred, String obj, LogCb logCb)
+  public void submitTripleCheck(String sub, String pred, String obj, LogCb logCb)
       throws IOException, InterruptedException {
     if (pred.equals(Vocabulary.DOMAIN_INCLUDES) && (sub.contains("/") || sub.equals("count"))) {
       // Don't bother with domain checks for schema-less properties.
@@ -77,15 +160,31 @@ public class ExistenceChecker {
       // of a set.
       return;
     }
+    rethrowDispatchFailure();
     logCtx.incrementInfoCounterBy("Existence_NumChecks", 1);
     if (checkLocal(sub, pred, obj, logCb)) {
       return;
     }
     assert !sub.isEmpty();
+    if (referenceKg != null) {
+      checkReferenceKg(sub, pred, obj, logCb);
+      return;
+    }
     batchRemoteCall(sub, pred, obj, logCb);
   }
 
-  public synchronized void addLocalGraph(Mcf.McfGraph graph) {
+  public void addLocalGraph(Mcf.McfGraph graph) {
+    forEachKey(
+        graph,
+        key -> {
+          existingNodesOrTriples.add(key);
+          missingNodesOrTriples.remove(key);
+        });
+  }
+
+  // Calls |consumer| with the existence key of every node (and checked triple) defined in
+  // |graph|.
+  static void forEachKey(Mcf.McfGraph graph, Consumer<String> consumer) {
     for (Map.Entry<String, Mcf.McfGraph.PropertyValues> node : graph.getNodesMap().entrySet()) {
       // Skip doing anything with StatVarObs.
       String typeOf = McfUtil.getPropVal(node.getValue(), Vocabulary.TYPE_OF);
@@ -99,10 +198,7 @@ public class ExistenceChecker {
         continue;
       }
 
-      existingNodesOrTriples.add(dcid);
-      if (missingNodesOrTriples.contains(dcid)) {
-        missingNodesOrTriples.remove(dcid);
-      }
+      consumer.accept(dcid);
 
       if (!typeOf.equals(Vocabulary.CLASS_TYPE) && !typeOf.equals(Vocabulary.PROPERTY_TYPE)) {
         continue;
@@ -110,83 +206,104 @@ public class ExistenceChecker {
       for (Map.Entry<String, Mcf.McfGraph.Values> pv : node.getValue().getPvsMap().entrySet()) {
         if (SCHEMA_PROPERTIES.contains(pv.getKey())) {
           for (Mcf.McfGraph.TypedValue tv : pv.getValue().getTypedValuesList()) {
-            var key = makeKey(dcid, pv.getKey(), tv.getValue());
-            existingNodesOrTriples.add(key);
-            if (missingNodesOrTriples.contains(key)) {
-              missingNodesOrTriples.remove(key);
-            }
+            consumer.accept(makeKey(dcid, pv.getKey(), tv.getValue()));
           }
         }
       }
     }
   }
 
-  public synchronized void drainRemoteCalls() throws IOException, InterruptedException {
-    // To avoid mutating map while iterating, get the keys first.
-    List<String> preds = new ArrayList<>(remoteBatchMap.keySet());
-    for (var pred : preds) {
+  // Sends out all the pending batches and waits for all outstanding calls to complete.
+  public void drainRemoteCalls() throws IOException, InterruptedException {
+    for (var entry : remoteBatchMap.entrySet()) {
+      var pred = entry.getKey();
+      Map<String, Map<String, List<LogCb>>> subMap;
+      synchronized (entry.getValue()) {
+        subMap = entry.getValue().take();
+      }
+      if (subMap.isEmpty()) continue;
       if (verbose) {
-        logger.info("Draining " + remoteBatchMap.get(pred).size() + " dcids for predicate " + pred);
+        logger.info("Draining " + subMap.size() + " dcids for predicate " + pred);
       }
-      drainRemoteCallsForPredicate(pred, remoteBatchMap.get(pred));
-      remoteBatchMap.remove(pred);
+      dispatch(pred, subMap);
+    }
+    if (inFlightCalls != null) {
+      // Wait for all the in-flight calls.
+      inFlightCalls.acquire(maxInFlightCalls);
+      inFlightCalls.release(maxInFlightCalls);
     }
+    rethrowDispatchFailure();
   }
 
   private void batchRemoteCall(String sub, String pred, String obj, LogCb logCb)
       throws IOException, InterruptedException {
-    Map<String, Map<String, List<LogCb>>> subMap = null;
-    if (remoteBatchMap.containsKey(pred)) {
-      subMap = remoteBatchMap.get(pred);
-    } else {
-      subMap = new HashMap<>();
-    }
-
-    Map<String, List<LogCb>> objMap = null;
-    if (subMap.containsKey(sub)) {
-      objMap = subMap.get(sub);
-    } else {
-      objMap = new HashMap<>();
-    }
-
-    List<LogCb> calls = null;
-    if (objMap.containsKey(obj)) {
-      calls = objMap.get(obj);
-    } else {
-      calls = new ArrayList<>();
+    PredicateBatch batch = remoteBatchMap.computeIfAbsent(pred, k -> new PredicateBatch());
+    Map<String, Map<String, List<LogCb>>> fullBatch = null;
+    synchronized (batch) {
+      // Add pending call.
+      batch
+          .subMap
+          .computeIfAbsent(sub, k -> new HashMap<>())
+          .computeIfAbsent(obj, k -> new ArrayList<>())
+          .add(logCb);
+      if (batch.subMap.size() >= DC_CALL_BATCH_LIMIT) {
+        fullBatch = batch.take();
+      }
     }
-
-    // Add pending call.
-    calls.add(logCb);
-    objMap.put(obj, calls);
-    subMap.put(sub, objMap);
-    totalPendingCallCount++;
-    remoteBatchMap.put(pred, subMap);
+    int pendingCallCount = totalPendingCallCount.incrementAndGet();
 
     // Maybe drain the batch.
-    if (totalPendingCallCount >= MAX_PENDING_CALLS) {
-      if (verbose) logger.info("Draining remote calls due to MAX_PENDING_CALLS");
-      drainRemoteCalls();
-    } else if (subMap.size() >= DC_CALL_BATCH_LIMIT) {
+    if (fullBatch != null) {
       if (verbose) {
         logger.info(
             "Draining due to batching limit with "
-                + subMap.size()
+                + fullBatch.size()
                 + " dcids for "
                 + "predicate "
                 + pred);
       }
-      drainRemoteCallsForPredicate(pred, subMap);
-      remoteBatchMap.remove(pred);
+      dispatch(pred, fullBatch);
+    } else if (pendingCallCount >= MAX_PENDING_CALLS) {
+      if (verbose) logger.info("Draining remote calls due to MAX_PENDING_CALLS");
+      drainRemoteCalls();
     }
   }
 
-  private void drainRemoteCallsForPredicate(
-      String pred, Map<String, Map<String, List<LogCb>>> subMap)
+  // Makes the DC call for a batch that is no longer shared, either right away or on
+  // dispatchService.
+  private void dispatch(String pred, Map<String, Map<String, List<LogCb>>> subMap)
       throws IOException, InterruptedException {
-    performDcCall(pred, new ArrayList<>(subMap.keySet()), subMap);
+    if (dispatchService == null) {
+      performDcCall(pred, new ArrayList<>(subMap.keySet()), subMap);
+      return;
+    }
+    inFlightCalls.acquire();
+    try {
+      dispatchService.execute(
+          () -> {
+            try {
+              performDcCall(pred, new ArrayList<>(subMap.keySet()), subMap);
+            } catch (IOException | InterruptedException | RuntimeException e) {
+              dispatchFailure.compareAndSet(null, e);
+            } finally {
+              inFlightCalls.release();
+            }
+          });
+    } catch (RejectedExecutionException e) {
+      inFlightCalls.release();
+      throw e;
+    }
   }
 
+  private void rethrowDispatchFailure() throws IOException, InterruptedException {
+    Exception e = dispatchFailure.get();
+    if (e == null) return;
+    if (e instanceof IOException) throw (IOException) e;
+    if (e instanceof InterruptedException) throw (InterruptedException) e;
+    throw (RuntimeException) e;
+  }
+
+  // Called with exclusive ownership of subMap.
   private void performDcCall(
       String pred, List<String> subs, Map<String, Map<String, List<LogCb>>> subMap)
       throws IOException, InterruptedException {
@@ -207,7 +324,7 @@ public class ExistenceChecker {
           for (var cb : cbs) {
             cb.logError("Existence_FailedDcCall", "Failed DC Call");
           }
-          totalPendingCallCount -= cbs.size();
+          totalPendingCallCount.addAndGet(-cbs.size());
         }
         subMap.remove(subs.get(0));
         return;
@@ -242,7 +359,11 @@ public class ExistenceChecker {
         var obj = kv.getKey();
         var cbs = kv.getValue();
         var key = makeKey(sub, pred, obj);
-        if (checkOneResult(obj, nodeJson)) {
+        boolean exists = checkOneResult(obj, nodeJson);
+        if (persistentCache != null) {
+          persistentCache.put(PersistentCache.EXISTENCE, key, exists ? "1" : "0");
+        }
+        if (exists) {
           existingNodesOrTriples.add(key);
         } else {
           if (verbose) {
@@ -254,7 +375,7 @@ public class ExistenceChecker {
             logEntry(cb, obj);
           }
         }
-        totalPendingCallCount -= cbs.size();
+        totalPendingCallCount.addAndGet(-cbs.size());
       }
       subMap.remove(sub);
     }
@@ -289,9 +410,34 @@ public class ExistenceChecker {
       logEntry(logCb, obj);
       return true;
     }
+    if (persistentCache != null) {
+      String cached = persistentCache.get(PersistentCache.EXISTENCE, key);
+      if ("1".equals(cached)) {
+        existingNodesOrTriples.add(key);
+        return true;
+      }
+      if ("0".equals(cached)) {
+        missingNodesOrTriples.add(key);
+        logEntry(logCb, obj);
+        return true;
+      }
+    }
     return false;
   }
 
+  private void checkReferenceKg(String sub, String pred, String obj, LogCb logCb) {
+    var key = makeKey(sub, pred, obj);
+    if (referenceKg.contains(sub, pred, obj)) {
+      existingNodesOrTriples.add(key);
+      return;
+    }
+    if (verbose) {
+      logger.info("Missing " + (obj.isEmpty() ? "node" : "triple") + " in reference KG " + key);
+    }
+    missingNodesOrTriples.add(key);
+    logEntry(logCb, obj);
+  }
+
   private static void logEntry(LogCb logCb, String obj) {
     String message, counter;
     if (obj.isEmpty()) {
@@ -304,7 +450,7 @@ public class ExistenceChecker {
     logCb.logError(counter, message);
   }
 
-  private static String makeKey(String s, String p, String o) {
+  static String makeKey(String s, String p, String o) {
     if (o.isEmpty()) {
       return s;
     }
@@ -0,0 +1,512 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import com.google.common.io.CountingOutputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// A map from external IDs (e.g., wikidataId Q62 or isoCode US), by property, to their candidate
+// DCIDs.
+//
+// Nearly all external IDs have a single candidate, which is stored as a bare String. Only IDs with
+// several candidates get a String[] (in the order they were added, without duplicates). With HEAP
+// storage, the IDs of each property are in a ConcurrentHashMap, at ~60 bytes per ID plus the
+// strings, versus ~200 bytes with a LinkedHashSet of candidates per ID.
+//
+// With DISK storage, for very large ID sets, IDs are buffered in memory and spilled in sorted runs
+// to files in a temporary directory under a spill directory, each with a sparse in-memory index
+// (the key of every INDEX_INTERVAL-th entry). Properties are interned as chars, which prefix the
+// IDs in the keys. seal() merges the runs into one, after which a lookup is a binary search of the
+// index and a read of one block of the file. close() deletes the directory.
+//
+// This class is thread-safe, except that seal() and close() must not run concurrently with other
+// calls.
+public final class ExternalIdMap implements AutoCloseable {
+  public enum Storage {
+    HEAP,
+    DISK,
+  }
+
+  // Default number of IDs buffered in memory before they are spilled to a run, with DISK storage.
+  static final int MAX_BUFFERED_IDS = 1 << 20;
+  private static final int INDEX_INTERVAL = 64;
+
+  private final Storage storage;
+  private final Store store;
+
+  public ExternalIdMap() {
+    this(Storage.HEAP, null);
+  }
+
+  // |spillDir| is where the run files go with DISK storage, and is unused otherwise.
+  public ExternalIdMap(Storage storage, Path spillDir) {
+    this(storage, spillDir, MAX_BUFFERED_IDS);
+  }
+
+  ExternalIdMap(Storage storage, Path spillDir, int maxBufferedIds) {
+    if (storage == Storage.DISK && spillDir == null) {
+      throw new IllegalArgumentException("DISK storage needs a spill directory");
+    }
+    this.storage = storage;
+    this.store =
+        storage == Storage.DISK ? new DiskStore(spillDir, maxBufferedIds) : new HeapStore();
+  }
+
+  public Storage getStorage() {
+    return storage;
+  }
+
+  public boolean contains(String prop, String id) {
+    return store.get(prop, id) != null;
+  }
+
+  // Returns the first candidate of |id|, or null if there is none.
+  public String getFirst(String prop, String id) {
+    Object candidates = store.get(prop, id);
+    if (candidates == null) return null;
+    return candidates instanceof String ? (String) candidates : ((String[]) candidates)[0];
+  }
+
+  // Returns the candidates of |id|, or an empty list if there is none.
+  public List<String> get(String prop, String id) {
+    Object candidates = store.get(prop, id);
+    if (candidates == null) return List.of();
+    return candidates instanceof String
+        ? List.of((String) candidates)
+        : Arrays.asList((String[]) candidates);
+  }
+
+  // Replaces the candidates of |id| with |dcids|, which must not be empty.
+  public void put(String prop, String id, List<String> dcids) {
+    if (dcids.isEmpty()) {
+      throw new IllegalArgumentException("No candidates for " + prop + " " + id);
+    }
+    Object candidates = null;
+    for (String dcid : dcids) {
+      candidates = withCandidate(candidates, dcid);
+    }
+    store.put(prop, id, candidates);
+  }
+
+  // Adds |dcid| to the candidates of |id|, unless it is already one.
+  public void add(String prop, String id, String dcid) {
+    store.add(prop, id, dcid);
+  }
+
+  // Marks the end of a phase of updates, after which lookups are expected to dominate.
+  public void seal() {
+    store.seal();
+  }
+
+  // Returns the number of IDs. With DISK storage, this is exact only after seal() (and before any
+  // later updates), since an ID may otherwise be counted in more than one run.
+  public long size() {
+    return store.size();
+  }
+
+  // Deletes the run files of DISK storage. Only size() may be called afterwards.
+  @Override
+  public void close() {
+    store.close();
+  }
+
+  private static Object withCandidate(Object candidates, String dcid) {
+    dcid = StringPool.internShared(dcid);
+    if (candidates == null) {
+      return dcid;
+    }
+    if (candidates instanceof String) {
+      return candidates.equals(dcid) ? candidates : new String[] {(String) candidates, dcid};
+    }
+    String[] existing = (String[]) candidates;
+    for (String candidate : existing) {
+      if (candidate.equals(dcid)) return existing;
+    }
+    String[] updated = Arrays.copyOf(existing, existing.length + 1);
+    updated[existing.length] = dcid;
+    return updated;
+  }
+
+  // Candidates are passed around as a String or a String[] of 2 or more DCIDs.
+  private interface Store {
+    Object get(String prop, String id);
+
+    void put(String prop, String id, Object candidates);
+
+    void add(String prop, String id, String dcid);
+
+    void seal();
+
+    long size();
+
+    void close();
+  }
+
+  private static final class HeapStore implements Store {
+    private final Map<String, Map<String, Object>> idsByProp = new ConcurrentHashMap<>();
+
+    @Override
+    public Object get(String prop, String id) {
+      Map<String, Object> ids = idsByProp.get(prop);
+      return ids == null ? null : ids.get(id);
+    }
+
+    @Override
+    public void put(String prop, String id, Object candidates) {
+      idsByProp.computeIfAbsent(prop, k -> new ConcurrentHashMap<>()).put(id, candidates);
+    }
+
+    @Override
+    public void add(String prop, String id, String dcid) {
+      idsByProp
+          .computeIfAbsent(prop, k -> new ConcurrentHashMap<>())
+          .compute(id, (k, candidates) -> withCandidate(candidates, dcid));
+    }
+
+    @Override
+    public void seal() {}
+
+    @Override
+    public void close() {}
+
+    @Override
+    public long size() {
+      long size = 0;
+      for (Map<String, Object> ids : idsByProp.values()) {
+        size += ids.size();
+      }
+      return size;
+    }
+  }
+
+  private static final class DiskStore implements Store {
+    private final Path spillDir;
+    private final int maxBufferedIds;
+    // Holds the run files, created under spillDir on the first spill.
+    private Path runDir = null;
+    private final Map<String, Character> propIds = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPropId = new AtomicInteger();
+    // Updates since the last spill, which take precedence over the runs.
+    private final ConcurrentSkipListMap<String, Object> buffer = new ConcurrentSkipListMap<>();
+    private int numBuffered = 0;
+    // Oldest first. A run is added before the buffer is cleared, so lookups that check the
+    // buffer and then the runs do not miss entries being spilled.
+    private volatile List<Run> runs = List.of();
+
+    DiskStore(Path spillDir, int maxBufferedIds) {
+      this.spillDir = spillDir;
+      this.maxBufferedIds = maxBufferedIds;
+    }
+
+    @Override
+    public Object get(String prop, String id) {
+      Character propId = propIds.get(prop);
+      return propId == null ? null : get(propId + id);
+    }
+
+    private Object get(String key) {
+      Object candidates = buffer.get(key);
+      if (candidates != null) return candidates;
+      List<Run> current = runs;
+      for (int i = current.size() - 1; i >= 0; i--) {
+        candidates = current.get(i).find(key);
+        if (candidates != null) return candidates;
+      }
+      return null;
+    }
+
+    @Override
+    public synchronized void put(String prop, String id, Object candidates) {
+      buffer(internProp(prop) + id, candidates);
+    }
+
+    @Override
+    public synchronized void add(String prop, String id, String dcid) {
+      String key = internProp(prop) + id;
+      buffer(key, withCandidate(get(key), dcid));
+    }
+
+    private char internProp(String prop) {
+      return propIds.computeIfAbsent(prop, k -> (char) nextPropId.getAndIncrement());
+    }
+
+    private void buffer(String key, Object candidates) {
+      if (buffer.put(key, candidates) == null) {
+        numBuffered++;
+      }
+      if (numBuffered >= maxBufferedIds) {
+        spill();
+      }
+    }
+
+    private void spill() {
+      if (buffer.isEmpty()) return;
+      try {
+        if (runDir == null) {
+          runDir = Files.createTempDirectory(spillDir, "external_ids");
+        }
+        RunWriter writer = new RunWriter(runDir);
+        for (Map.Entry<String, Object> entry : buffer.entrySet()) {
+          writer.write(entry.getKey(), entry.getValue());
+        }
+        List<Run> updated = new ArrayList<>(runs);
+        updated.add(writer.finish());
+        runs = Collections.unmodifiableList(updated);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      buffer.clear();
+      numBuffered = 0;
+    }
+
+    @Override
+    public synchronized void seal() {
+      spill();
+      if (runs.size() <= 1) return;
+      try {
+        Run merged = Run.merge(runDir, runs);
+        for (Run run : runs) {
+          run.delete();
+        }
+        runs = List.of(merged);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public long size() {
+      long size = buffer.size();
+      for (Run run : runs) {
+        size += run.numEntries;
+      }
+      return size;
+    }
+
+    @Override
+    public synchronized void close() {
+      if (runDir == null) return;
+      try {
+        // The runs are kept for size().
+        for (Run run : runs) {
+          run.delete();
+        }
+        // Also removes the file of a run that failed to be written.
+        try (Stream<Path> files = Files.list(runDir)) {
+          for (Path file : (Iterable<Path>) files::iterator) {
+            Files.delete(file);
+          }
+        }
+        Files.delete(runDir);
+        runDir = null;
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+  }
+
+  // A file of entries sorted by key. Each entry is the key, the number of candidates, and the
+  // candidates, written with DataOutputStream.
+  private static final class Run {
+    private final Path file;
+    private final FileChannel channel;
+    private final long fileSize;
+    // The keys and file offsets of every INDEX_INTERVAL-th entry.
+    private final String[] indexKeys;
+    private final long[] indexOffsets;
+    final long numEntries;
+
+    Run(Path file, String[] indexKeys, long[] indexOffsets, long numEntries) throws IOException {
+      this.file = file;
+      this.channel = FileChannel.open(file);
+      this.fileSize = channel.size();
+      this.indexKeys = indexKeys;
+      this.indexOffsets = indexOffsets;
+      this.numEntries = numEntries;
+    }
+
+    // Returns the candidates for |key|, or null if it is not in this run.
+    Object find(String key) {
+      int pos = Arrays.binarySearch(indexKeys, key);
+      int block = pos >= 0 ? pos : -pos - 2;
+      if (block < 0) return null;
+      long start = indexOffsets[block];
+      long end = block + 1 < indexOffsets.length ? indexOffsets[block + 1] : fileSize;
+      byte[] bytes = new byte[(int) (end - start)];
+      try {
+        ByteBuffer buf = ByteBuffer.wrap(bytes);
+        while (buf.hasRemaining()) {
+          // Positional reads leave the channel's position alone, so they can run concurrently.
+          if (channel.read(buf, start + buf.position()) < 0) {
+            throw new IOException("Unexpected end of " + file);
+          }
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        while (in.available() > 0) {
+          int cmp = in.readUTF().compareTo(key);
+          if (cmp == 0) return readCandidates(in);
+          if (cmp > 0) return null;
+          skipCandidates(in);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+      return null;
+    }
+
+    void delete() throws IOException {
+      channel.close();
+      Files.deleteIfExists(file);
+    }
+
+    // Merges |runs| (oldest first) into a new run. For keys in several runs, the newest wins.
+    static Run merge(Path dir, List<Run> runs) throws IOException {
+      PriorityQueue<Cursor> queue =
+          new PriorityQueue<>(
+              (a, b) -> {
+                int cmp = a.key.compareTo(b.key);
+                return cmp != 0 ? cmp : Integer.compare(b.age, a.age);
+              });
+      for (int i = 0; i < runs.size(); i++) {
+        Cursor cursor = new Cursor(runs.get(i), i);
+        if (cursor.next()) queue.add(cursor);
+      }
+      RunWriter writer = new RunWriter(dir);
+      String lastKey = null;
+      while (!queue.isEmpty()) {
+        Cursor cursor = queue.poll();
+        if (!cursor.key.equals(lastKey)) {
+          writer.write(cursor.key, cursor.candidates);
+          lastKey = cursor.key;
+        }
+        if (cursor.next()) {
+          queue.add(cursor);
+        }
+      }
+      return writer.finish();
+    }
+
+    private static Object readCandidates(DataInputStream in) throws IOException {
+      int n = in.readInt();
+      if (n == 1) return in.readUTF();
+      String[] candidates = new String[n];
+      for (int i = 0; i < n; i++) {
+        candidates[i] = in.readUTF();
+      }
+      return candidates;
+    }
+
+    private static void skipCandidates(DataInputStream in) throws IOException {
+      int n = in.readInt();
+      for (int i = 0; i < n; i++) {
+        in.skipBytes(in.readUnsignedShort());
+      }
+    }
+  }
+
+  // Reads the entries of a run in order.
+  private static final class Cursor {
+    private final DataInputStream in;
+    private final int age;
+    private long remaining;
+    String key;
+    Object candidates;
+
+    Cursor(Run run, int age) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run.file)));
+      this.age = age;
+      this.remaining = run.numEntries;
+    }
+
+    // Moves to the next entry, returning false (and closing the file) past the last one.
+    boolean next() throws IOException {
+      if (remaining == 0) {
+        in.close();
+        return false;
+      }
+      key = in.readUTF();
+      candidates = Run.readCandidates(in);
+      remaining--;
+      return true;
+    }
+  }
+
+  // Writes the entries of a run, which must come in key order.
+  private static final class RunWriter {
+    private final Path file;
+    private final CountingOutputStream counter;
+    private final DataOutputStream out;
+    private final List<String> indexKeys = new ArrayList<>();
+    private long[] indexOffsets = new long[16];
+    private long numEntries = 0;
+
+    RunWriter(Path dir) throws IOException {
+      file = Files.createTempFile(dir, "external_ids", ".run");
+      counter = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+      out = new DataOutputStream(counter);
+    }
+
+    void write(String key, Object candidates) throws IOException {
+      if (numEntries % INDEX_INTERVAL == 0) {
+        if (indexKeys.size() == indexOffsets.length) {
+          indexOffsets = Arrays.copyOf(indexOffsets, indexOffsets.length * 2);
+        }
+        indexOffsets[indexKeys.size()] = counter.getCount();
+        indexKeys.add(key);
+      }
+      out.writeUTF(key);
+      if (candidates instanceof String) {
+        out.writeInt(1);
+        out.writeUTF((String) candidates);
+      } else {
+        String[] dcids = (String[]) candidates;
+        out.writeInt(dcids.length);
+        for (String dcid : dcids) {
+          out.writeUTF(dcid);
+        }
+      }
+      numEntries++;
+    }
+
+    Run finish() throws IOException {
+      out.close();
+      return new Run(
+          file,
+          indexKeys.toArray(new String[0]),
+          Arrays.copyOf(indexOffsets, indexKeys.size()),
+          numEntries);
+    }
+  }
+}
@@ -39,14 +39,37 @@ public class ExternalIdResolver {
   private final ReadWriteLock rwlock = new ReentrantReadWriteLock();
 
   private final PropertyResolver propertyResolver;
+  private final ExternalIdMap idMap;
 
   public ExternalIdResolver(
       HttpClient httpClient, boolean doCoordinatesResolution, boolean verbose, LogWrapper logCtx) {
+    this(httpClient, doCoordinatesResolution, verbose, null, logCtx);
+  }
+
+  public ExternalIdResolver(
+      HttpClient httpClient,
+      boolean doCoordinatesResolution,
+      boolean verbose,
+      PersistentCache persistentCache,
+      LogWrapper logCtx) {
+    this(
+        httpClient, doCoordinatesResolution, verbose, persistentCache, new ExternalIdMap(), logCtx);
+  }
+
+  // |idMap| holds the DCIDs of the external IDs, and may keep them on disk for very large imports.
+  public ExternalIdResolver(
+      HttpClient httpClient,
+      boolean doCoordinatesResolution,
+      boolean verbose,
+      PersistentCache persistentCache,
+      ExternalIdMap idMap,
+      LogWrapper logCtx) {
     this.httpClient = httpClient;
     this.verbose = verbose;
     this.logCtx = logCtx;
+    this.idMap = idMap;
     ReconClient reconClient = new ReconClient(httpClient, logCtx, MAX_RESOLUTION_BATCH_IDS);
-    this.propertyResolver = new PropertyResolver(reconClient, logCtx);
+    this.propertyResolver = new PropertyResolver(reconClient, persistentCache, idMap, logCtx);
     if (doCoordinatesResolution) {
       this.coordinatesResolver = new CoordinatesResolver(reconClient);
     } else {
@@ -151,6 +174,20 @@ public class ExternalIdResolver {
     }
   }
 
+  public ExternalIdMap.Storage getIdStorage() {
+    return idMap.getStorage();
+  }
+
+  // Returns the number of external IDs with DCIDs (from the API, the persistent cache, or local
+  // nodes).
+  public long numResolvedIds() {
+    return propertyResolver.numResolvedIds();
+  }
+
+  public long numResolvedCoordinates() {
+    return coordinatesResolver == null ? 0 : coordinatesResolver.numResolvedCoordinates();
+  }
+
   // Returns true if this node is of a type that is resolvable by the ID mapper.
 
   private void addToMappedIds(String prop, String extId, String dcid) {
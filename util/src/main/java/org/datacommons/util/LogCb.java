@@ -57,6 +57,12 @@ public class LogCb {
     return this;
   }
 
+  // Allows reusing a callback across lines of the same file.
+  public org.datacommons.util.LogCb setLineNumber(long lineNum) {
+    this.lineNum = lineNum;
+    return this;
+  }
+
   public org.datacommons.util.LogCb setCounterPrefix(String prefix) {
     counter_prefix = prefix;
     return this;
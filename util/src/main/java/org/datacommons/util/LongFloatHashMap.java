@@ -0,0 +1,278 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// A hash map from primitive long keys to float values. Entries are stored in open-addressing
+// tables with linear probing, taking 12 bytes each (plus slack), versus ~80 bytes for an entry of
+// a ConcurrentHashMap<Long, Float>.
+//
+// The map is split into stripes, chosen by the high bits of the key's hash, each with its own lock
+// and its own table that grows independently. The tables can be kept on the Java heap, in direct
+// (off-heap) memory, or in memory-mapped files in a spill directory, so that maps with hundreds of
+// millions of entries need not live on the heap.
+//
+// This class is thread-safe.
+public final class LongFloatHashMap {
+  public enum Storage {
+    HEAP,
+    OFF_HEAP,
+    MAPPED_FILE,
+  }
+
+  private static final int STRIPE_BITS = 6;
+  private static final int NUM_STRIPES = 1 << STRIPE_BITS;
+  private static final int MIN_STRIPE_CAPACITY = 16;
+  private static final int ENTRY_BYTES = Long.BYTES + Float.BYTES;
+  // Largest power-of-2 capacity whose entries fit in one ByteBuffer.
+  private static final int MAX_BUFFER_CAPACITY =
+      Integer.highestOneBit(Integer.MAX_VALUE / ENTRY_BYTES);
+
+  private final Storage storage;
+  private final Path spillDir;
+  private final Stripe[] stripes = new Stripe[NUM_STRIPES];
+
+  public LongFloatHashMap(long expectedSize) {
+    this(expectedSize, Storage.HEAP, null);
+  }
+
+  // |spillDir| is where the files backing the tables go with MAPPED_FILE storage, and is unused
+  // otherwise.
+  public LongFloatHashMap(long expectedSize, Storage storage, Path spillDir) {
+    if (storage == Storage.MAPPED_FILE && spillDir == null) {
+      throw new IllegalArgumentException("MAPPED_FILE storage needs a spill directory");
+    }
+    this.storage = storage;
+    this.spillDir = spillDir;
+    int capacity = stripeCapacity(expectedSize / NUM_STRIPES);
+    for (int i = 0; i < NUM_STRIPES; i++) {
+      stripes[i] = new Stripe(newTable(capacity));
+    }
+  }
+
+  // Returns the value associated with |key|, first associating it with |value| if there is none.
+  public float getOrPut(long key, float value) {
+    long hash = mix(key);
+    return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))].getOrPut(key, hash, value);
+  }
+
+  public boolean containsKey(long key) {
+    long hash = mix(key);
+    return stripes[(int) (hash >>> (Long.SIZE - STRIPE_BITS))].containsKey(key, hash);
+  }
+
+  public long size() {
+    long size = 0;
+    for (Stripe stripe : stripes) {
+      size += stripe.size();
+    }
+    return size;
+  }
+
+  private static int stripeCapacity(long expectedSize) {
+    // Keep the load factor under 0.75.
+    long capacity = Math.max(MIN_STRIPE_CAPACITY, expectedSize + expectedSize / 3 + 1);
+    if (capacity > MAX_BUFFER_CAPACITY) {
+      throw new IllegalStateException("LongFloatHashMap is too large: " + capacity * NUM_STRIPES);
+    }
+    return Integer.highestOneBit((int) capacity - 1) << 1;
+  }
+
+  private Table newTable(int capacity) {
+    switch (storage) {
+      case OFF_HEAP:
+        return new BufferTable(ByteBuffer.allocateDirect(capacity * ENTRY_BYTES), capacity);
+      case MAPPED_FILE:
+        return new BufferTable(mapSpillFile(capacity * ENTRY_BYTES), capacity);
+      default:
+        return new HeapTable(capacity);
+    }
+  }
+
+  // Maps a new zero-filled file. The file is deleted right away, and its space is reclaimed once
+  // the buffer is garbage collected.
+  private ByteBuffer mapSpillFile(int size) {
+    try {
+      Path file = Files.createTempFile(spillDir, "longfloatmap", ".tmp");
+      try (FileChannel channel =
+          FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+        return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+      } finally {
+        try {
+          Files.delete(file);
+        } catch (IOException e) {
+          file.toFile().deleteOnExit();
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Failed to create spill file in " + spillDir, e);
+    }
+  }
+
+  // Finalizer of MurmurHash3, to spread out keys that are not already random.
+  private static long mix(long key) {
+    key ^= key >>> 33;
+    key *= 0xff51afd7ed558ccdL;
+    key ^= key >>> 33;
+    key *= 0xc4ceb9fe1a85ec53L;
+    key ^= key >>> 33;
+    return key;
+  }
+
+  // Fixed-capacity storage of entries. A key of 0 marks an empty slot.
+  private interface Table {
+    int capacity();
+
+    long key(int slot);
+
+    float value(int slot);
+
+    void put(int slot, long key, float value);
+  }
+
+  private static final class HeapTable implements Table {
+    private final long[] keys;
+    private final float[] values;
+
+    HeapTable(int capacity) {
+      keys = new long[capacity];
+      values = new float[capacity];
+    }
+
+    @Override
+    public int capacity() {
+      return keys.length;
+    }
+
+    @Override
+    public long key(int slot) {
+      return keys[slot];
+    }
+
+    @Override
+    public float value(int slot) {
+      return values[slot];
+    }
+
+    @Override
+    public void put(int slot, long key, float value) {
+      keys[slot] = key;
+      values[slot] = value;
+    }
+  }
+
+  private static final class BufferTable implements Table {
+    private final ByteBuffer buffer;
+    private final int capacity;
+
+    BufferTable(ByteBuffer buffer, int capacity) {
+      this.buffer = buffer;
+      this.capacity = capacity;
+    }
+
+    @Override
+    public int capacity() {
+      return capacity;
+    }
+
+    @Override
+    public long key(int slot) {
+      return buffer.getLong(slot * ENTRY_BYTES);
+    }
+
+    @Override
+    public float value(int slot) {
+      return buffer.getFloat(slot * ENTRY_BYTES + Long.BYTES);
+    }
+
+    @Override
+    public void put(int slot, long key, float value) {
+      buffer.putLong(slot * ENTRY_BYTES, key);
+      buffer.putFloat(slot * ENTRY_BYTES + Long.BYTES, value);
+    }
+  }
+
+  private final class Stripe {
+    private Table table;
+    private int size = 0;
+    // Key 0 marks empty slots, so it is kept outside the table.
+    private boolean hasZeroKey = false;
+    private float zeroKeyValue;
+
+    Stripe(Table table) {
+      this.table = table;
+    }
+
+    synchronized float getOrPut(long key, long hash, float value) {
+      if (key == 0) {
+        if (!hasZeroKey) {
+          hasZeroKey = true;
+          zeroKeyValue = value;
+        }
+        return zeroKeyValue;
+      }
+      int slot = find(table, key, hash);
+      if (table.key(slot) == key) {
+        return table.value(slot);
+      }
+      table.put(slot, key, value);
+      if (++size > table.capacity() / 4 * 3) {
+        grow();
+      }
+      return value;
+    }
+
+    synchronized boolean containsKey(long key, long hash) {
+      if (key == 0) return hasZeroKey;
+      return table.key(find(table, key, hash)) == key;
+    }
+
+    synchronized int size() {
+      return size + (hasZeroKey ? 1 : 0);
+    }
+
+    private void grow() {
+      if (table.capacity() >= MAX_BUFFER_CAPACITY) {
+        throw new IllegalStateException("LongFloatHashMap stripe is full: " + size);
+      }
+      Table newTable = newTable(table.capacity() * 2);
+      for (int slot = 0; slot < table.capacity(); slot++) {
+        long key = table.key(slot);
+        if (key != 0) {
+          newTable.put(find(newTable, key, mix(key)), key, table.value(slot));
+        }
+      }
+      table = newTable;
+    }
+
+    // Returns the slot holding |key|, or else the empty slot where it would go.
+    private int find(Table table, long key, long hash) {
+      int mask = table.capacity() - 1;
+      int slot = (int) hash & mask;
+      while (true) {
+        long k = table.key(slot);
+        if (k == key || k == 0) return slot;
+        slot = (slot + 1) & mask;
+      }
+    }
+  }
+}
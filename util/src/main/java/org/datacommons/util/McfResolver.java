@@ -1,12 +1,16 @@
 package org.datacommons.util;
 
 import java.rmi.UnexpectedException;
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.datacommons.proto.Debug;
@@ -15,36 +19,123 @@ import org.datacommons.proto.Mcf;
 // Resolves an in-memory sub-graph by assigning DCIDs to nodes and replacing local-refs with DCIDs,
 // doing so over multiple rounds as long as IDs are being assigned or replaced.
 //
+// The first round visits every node, and records which nodes refer to which. After that, a round
+// only visits the nodes whose inputs changed in the previous one: the referrers of nodes that got a
+// DCID or failed (for local-ref replacement), and the nodes that had local-refs replaced (for DCID
+// assignment). So a chain of local-refs N deep takes N rounds, but each node is visited only a few
+// times, rather than once per round.
+//
 // If a node is left with an unassigned DCID or an unreplaced local-ref, it is considered failed.
+//
+// A resolver can be reused for a sequence of small sub-graphs (e.g., the rows of a CSV) with
+// resolve(subGraph), to avoid setting up its state again for each one.
 public class McfResolver {
   private static final Logger logger = LogManager.getLogger(McfResolver.class);
   private static final int ROUND_PROGRESS_LOG_INTERVAL = 1000;
+  // By default, DCID assignment rounds that visit at least this many nodes generate the DCIDs of
+  // StatVarObservation, StatisticalPopulation and Observation nodes in parallel.
+  static final int MIN_NODES_FOR_PARALLEL_ASSIGNMENT = 10000;
 
   private final ExternalIdResolver idResolver;
   private final Mcf.McfGraph.Builder output;
   private final Mcf.McfGraph.Builder failed;
   private final LogWrapper logCtx;
   private final boolean verbose;
+  private final int minNodesForParallelAssignment;
+
+  // Built on first use, after resolution, and dropped by the next resolve().
+  private Mcf.McfGraph resolvedGraph = null;
+  private Mcf.McfGraph failedGraph = null;
+
+  // The IDs of the nodes in the input order, which is the order nodes are visited in every round.
+  private final List<String> nodeIds = new ArrayList<>();
+  private final Map<String, Integer> nodePositions = new HashMap<>();
+  // Node ID -> positions of the nodes with a local-ref to it that is yet to be replaced.
+  private final Map<String, List<Integer>> referrers = new HashMap<>();
+  // Nodes to visit in the next local-ref replacement round.
+  private BitSet nodesToRevisit = new BitSet();
+  // Nodes that failed since the last local-ref replacement and DCID assignment rounds.
+  private final BitSet failedSinceReplacement = new BitSet();
+  private final BitSet failedSinceAssignment = new BitSet();
+  // The nodes waiting on a local-ref (without l: prefix), as of the last local-ref replacement and
+  // DCID assignment rounds, by position.
+  private final TreeMap<Integer, String> unreplacedRefs = new TreeMap<>();
+  private final TreeMap<Integer, String> unassignedRefs = new TreeMap<>();
 
   public McfResolver(
       Mcf.McfGraph subGraph, boolean verbose, ExternalIdResolver idResolver, LogWrapper logCtx) {
+    this(subGraph, verbose, idResolver, logCtx, MIN_NODES_FOR_PARALLEL_ASSIGNMENT);
+  }
+
+  McfResolver(
+      Mcf.McfGraph subGraph,
+      boolean verbose,
+      ExternalIdResolver idResolver,
+      LogWrapper logCtx,
+      int minNodesForParallelAssignment) {
+    this(verbose, idResolver, logCtx, minNodesForParallelAssignment);
+    reset(subGraph);
+  }
+
+  // A resolver without a sub-graph, to be passed to resolve(subGraph).
+  public McfResolver(boolean verbose, ExternalIdResolver idResolver, LogWrapper logCtx) {
+    this(verbose, idResolver, logCtx, MIN_NODES_FOR_PARALLEL_ASSIGNMENT);
+  }
+
+  private McfResolver(
+      boolean verbose,
+      ExternalIdResolver idResolver,
+      LogWrapper logCtx,
+      int minNodesForParallelAssignment) {
     this.idResolver = idResolver;
     this.logCtx = logCtx;
     this.verbose = verbose;
-    // We add input to output, and as the rounds progress move failed nodes out.
-    output = subGraph.toBuilder();
+    this.minNodesForParallelAssignment = minNodesForParallelAssignment;
+    output = Mcf.McfGraph.newBuilder();
     failed = Mcf.McfGraph.newBuilder();
   }
 
+  // Resolves subGraph, in place of the sub-graph this resolver was last used with.
+  public void resolve(Mcf.McfGraph subGraph) throws UnexpectedException {
+    reset(subGraph);
+    resolve();
+  }
+
+  private void reset(Mcf.McfGraph subGraph) {
+    // We add input to output, and as the rounds progress move failed nodes out.
+    output.clear().mergeFrom(subGraph);
+    failed.clear();
+    nodeIds.clear();
+    nodeIds.addAll(output.getNodesMap().keySet());
+    nodePositions.clear();
+    for (int i = 0; i < nodeIds.size(); i++) {
+      nodePositions.put(nodeIds.get(i), i);
+    }
+    referrers.clear();
+    nodesToRevisit.clear();
+    failedSinceReplacement.clear();
+    failedSinceAssignment.clear();
+    unreplacedRefs.clear();
+    unassignedRefs.clear();
+  }
+
   public void resolve() throws UnexpectedException {
+    // The graphs built by an earlier resolve() are out of date once the rounds below change
+    // output and failed.
+    resolvedGraph = null;
+    failedGraph = null;
     int round = 0;
     RoundResult localRefReplacement = new RoundResult();
     RoundResult dcidAssignment = new RoundResult();
+    BitSet allNodes = new BitSet(nodeIds.size());
+    allNodes.set(0, nodeIds.size());
     while (true) {
       if (round == 0 || dcidAssignment.numUpdated > 0) {
         // First round, or a new DCID got assigned, so we might have a local-ref to replace.
         long replaceLocalRefsStartMillis = System.currentTimeMillis();
-        localRefReplacement = replaceLocalRefs();
+        BitSet nodesToVisit = round == 0 ? allNodes : nodesToRevisit;
+        nodesToRevisit = new BitSet();
+        localRefReplacement = replaceLocalRefs(nodesToVisit, round == 0);
         if (verbose) {
           logger.info(
               "LocalRef Replacement Round "
@@ -54,7 +145,7 @@ public class McfResolver {
                   + " replaced, "
                   + failed.getNodesMap().size()
                   + " failed, "
-                  + localRefReplacement.needsWork.size()
+                  + unreplacedRefs.size()
                   + " remaining, "
                   + (System.currentTimeMillis() - replaceLocalRefsStartMillis)
                   + " ms");
@@ -67,7 +158,7 @@ public class McfResolver {
         // First round, or a new local-ref got replaced, so we might be able to assign DCID.
         // For instance, with SVObs or Obs if we assign DCID to place node.
         long assignDcidsStartMillis = System.currentTimeMillis();
-        dcidAssignment = assignDcids();
+        dcidAssignment = assignDcids(round == 0 ? allNodes : localRefReplacement.updatedNodes);
         if (verbose) {
           logger.info(
               "DCID Assignment Round "
@@ -77,7 +168,7 @@ public class McfResolver {
                   + " assigned, "
                   + failed.getNodesMap().size()
                   + " failed, "
-                  + dcidAssignment.needsWork.size()
+                  + unassignedRefs.size()
                   + " remaining, "
                   + (System.currentTimeMillis() - assignDcidsStartMillis)
                   + " ms");
@@ -89,9 +180,9 @@ public class McfResolver {
       round++;
     }
 
-    // If there are entries in needsWork, then something is oddly broken. Likely it is a cycle of
-    // local refs, and thus we are neither able to assign DCIDs nor replace local-refs.
-    for (var kv : localRefReplacement.needsWork.entrySet()) {
+    // If there are nodes still waiting on a local-ref, then something is oddly broken. Likely it is
+    // a cycle of local refs, and thus we are neither able to assign DCIDs nor replace local-refs.
+    for (var kv : byNodeId(unreplacedRefs).entrySet()) {
       moveFailedNode(kv.getKey(), "ReplaceLocalRefs_Remaining");
       var node = failed.getNodesMap().get(kv.getKey()).toBuilder();
       var userMessage =
@@ -108,7 +199,7 @@ public class McfResolver {
       node.setErrorMessage(userMessage);
       failed.putNodes(kv.getKey(), node.build());
     }
-    for (var kv : dcidAssignment.needsWork.entrySet()) {
+    for (var kv : byNodeId(unassignedRefs).entrySet()) {
       moveFailedNode(kv.getKey(), "AssignDcids_Remaining");
       var node = failed.getNodesMap().get(kv.getKey()).toBuilder();
       var userMessage =
@@ -128,11 +219,17 @@ public class McfResolver {
   }
 
   public Mcf.McfGraph resolvedGraph() {
-    return output.build();
+    if (resolvedGraph == null) {
+      resolvedGraph = output.build();
+    }
+    return resolvedGraph;
   }
 
   public Mcf.McfGraph failedGraph() {
-    return failed.build();
+    if (failedGraph == null) {
+      failedGraph = failed.build();
+    }
+    return failedGraph;
   }
 
   // Result from one round of DCID assignment or local-ref replacement.
@@ -142,9 +239,8 @@ public class McfResolver {
     // These set of nodes failed. No point retrying them in future rounds.
     // NOTE: The site that added to failed should have updated the logCtx.
     public Set<String> failed = new HashSet<>();
-    // These set of nodes need work in future rounds.
-    // nodeId -> local-ref (without l: prefix)
-    public Map<String, String> needsWork = new HashMap<>();
+    // Positions of the nodes that got updated.
+    public BitSet updatedNodes = new BitSet();
   }
 
   private enum AssignmentMode {
@@ -160,32 +256,38 @@ public class McfResolver {
     }
   }
 
+  // Updates to nodes are only written to output (and failed nodes moved) at the end of a round, so
+  // that every node in a round sees the graph as of the end of the previous round.
   private static class RoundState {
-    private final Map<String, Mcf.McfGraph.PropertyValues> outputSnapshot;
-    private final Set<String> failedSnapshot;
     private final Map<String, Mcf.McfGraph.PropertyValues> updatedNodes;
     private final int totalNodes;
     private final long roundStartMillis;
     private int processedNodes;
 
-    private RoundState(
-        Map<String, Mcf.McfGraph.PropertyValues> outputSnapshot, Set<String> failedSnapshot) {
-      this.outputSnapshot = outputSnapshot;
-      this.failedSnapshot = failedSnapshot;
+    private RoundState(int totalNodes) {
       this.updatedNodes = new LinkedHashMap<>();
-      this.totalNodes = outputSnapshot.size();
+      this.totalNodes = totalNodes;
       this.roundStartMillis = System.currentTimeMillis();
       this.processedNodes = 0;
     }
   }
 
-  private RoundResult assignDcids() throws UnexpectedException {
+  private RoundResult assignDcids(BitSet nodesToVisit) throws UnexpectedException {
     RoundResult roundResult = new RoundResult();
-    RoundState roundState = newRoundState(false);
+    RoundState roundState = new RoundState(nodesToVisit.cardinality());
+    forgetFailedNodes(failedSinceAssignment, unassignedRefs);
+    int[] positions = nodesToVisit.stream().toArray();
+    DcidGenerator.Result[] generated =
+        positions.length >= minNodesForParallelAssignment
+            ? generateDcidsInParallel(positions)
+            : new DcidGenerator.Result[positions.length];
     // For each node...
-    for (var entry : roundState.outputSnapshot.entrySet()) {
-      var nodeId = entry.getKey();
-      var snapshotNode = entry.getValue();
+    for (int i = 0; i < positions.length; i++) {
+      int pos = positions[i];
+      var nodeId = nodeIds.get(pos);
+      var snapshotNode = output.getNodesMap().get(nodeId);
+      if (snapshotNode == null) continue;
+      unassignedRefs.remove(pos);
       var node = snapshotNode.toBuilder();
       boolean nodeChanged = false;
 
@@ -206,13 +308,14 @@ public class McfResolver {
       //
       // For svobs/pop/obs types we need all refs to be resolved to assign DCID.
       if (!unresolvedRef.isEmpty() && assignmentMode.allRefsMustBeResolved) {
-        roundResult.needsWork.put(nodeId, unresolvedRef);
+        unassignedRefs.put(pos, unresolvedRef);
         finishNode("DCID Assignment", roundState, nodeId, node, false);
         continue;
       }
 
       // 4. Attempt DCID generation.
-      DcidGenerator.Result result = generateDcid(nodeId, snapshotNode, assignmentMode);
+      DcidGenerator.Result result =
+          generated[i] != null ? generated[i] : generateDcid(nodeId, snapshotNode, assignmentMode);
       if (!result.dcid.isEmpty()) {
         roundResult.numUpdated++;
         if (!result.keyString.isEmpty()) {
@@ -221,6 +324,7 @@ public class McfResolver {
         }
         node.putPvs(Vocabulary.DCID, McfUtil.newValues(Mcf.ValueType.TEXT, result.dcid));
         nodeChanged = true;
+        revisitReferrers(nodeId);
       } else {
         // This is not a node we can assign DCID. So move it to failed nodes.
         // TODO: propagate error from DcidGenerator and IDResolver library.
@@ -241,13 +345,19 @@ public class McfResolver {
     return roundResult;
   }
 
-  private RoundResult replaceLocalRefs() {
+  // With indexReferrers, also records the nodes referred to by local-refs that could not be
+  // replaced, so that the referrers are revisited when that changes.
+  private RoundResult replaceLocalRefs(BitSet nodesToVisit, boolean indexReferrers) {
     RoundResult roundResult = new RoundResult();
-    RoundState roundState = newRoundState(true);
+    RoundState roundState = new RoundState(nodesToVisit.cardinality());
+    forgetFailedNodes(failedSinceReplacement, unreplacedRefs);
     // For each node...
-    for (var entry : roundState.outputSnapshot.entrySet()) {
-      var nodeId = entry.getKey();
-      var node = entry.getValue().toBuilder();
+    for (int pos = nodesToVisit.nextSetBit(0); pos >= 0; pos = nodesToVisit.nextSetBit(pos + 1)) {
+      var nodeId = nodeIds.get(pos);
+      var snapshotNode = output.getNodesMap().get(nodeId);
+      if (snapshotNode == null) continue;
+      unreplacedRefs.remove(pos);
+      var node = snapshotNode.toBuilder();
       boolean nodeChanged = false;
       // For each PV in the node...
       for (var prop : node.getPvsMap().keySet()) {
@@ -259,8 +369,8 @@ public class McfResolver {
           if (localId.isEmpty()) continue;
 
           // This is a local ref.
-          boolean inOutput = roundState.outputSnapshot.containsKey(localId);
-          boolean inFailed = roundState.failedSnapshot.contains(localId);
+          boolean inOutput = output.containsNodes(localId);
+          boolean inFailed = failed.containsNodes(localId);
           if (!inOutput && !inFailed) {
             // This local ID is missing from the entire sub-graph. Mark it as orphan local-ref
             // and move it to failed nodes.
@@ -282,9 +392,10 @@ public class McfResolver {
             nodeChanged = true;
           } else if (inOutput) {
             // Check if it already has DCID assigned.
-            var dcid = McfUtil.getPropVal(roundState.outputSnapshot.get(localId), Vocabulary.DCID);
+            var dcid = McfUtil.getPropVal(output.getNodesOrThrow(localId), Vocabulary.DCID);
             if (!dcid.isEmpty()) {
               roundResult.numUpdated++;
+              roundResult.updatedNodes.set(pos);
               tv.setValue(dcid);
               tv.setType(Mcf.ValueType.RESOLVED_REF);
               // Update values in PV.
@@ -292,7 +403,10 @@ public class McfResolver {
               nodeChanged = true;
             } else {
               // This could be waiting on the resolution of another ref, so defer to next round.
-              roundResult.needsWork.put(nodeId, localId);
+              unreplacedRefs.put(pos, localId);
+              if (indexReferrers) {
+                referrers.computeIfAbsent(localId, k -> new ArrayList<>()).add(pos);
+              }
             }
           } else { // (inFailed)
             // This is a reference to a failed node. This node is doomed too.
@@ -321,12 +435,30 @@ public class McfResolver {
     return roundResult;
   }
 
-  private RoundState newRoundState(boolean includeFailedSnapshot) {
-    Set<String> failedSnapshot = new HashSet<>();
-    if (includeFailedSnapshot) {
-      failedSnapshot.addAll(failed.getNodesMap().keySet());
+  private void revisitReferrers(String nodeId) {
+    var nodeReferrers = referrers.remove(nodeId);
+    if (nodeReferrers == null) return;
+    for (int referrer : nodeReferrers) {
+      nodesToRevisit.set(referrer);
+    }
+  }
+
+  // Drops the failed nodes from the ones waiting on a local-ref, as they are no longer visited.
+  private static void forgetFailedNodes(BitSet failedNodes, Map<Integer, String> waitingNodes) {
+    for (int i = failedNodes.nextSetBit(0); i >= 0; i = failedNodes.nextSetBit(i + 1)) {
+      waitingNodes.remove(i);
+    }
+    failedNodes.clear();
+  }
+
+  // The nodes waiting on a local-ref, keyed by node ID. A HashMap, as the per-round maps these
+  // replace were, so the remaining failures are reported in the same order as before.
+  private Map<String, String> byNodeId(Map<Integer, String> waitingNodes) {
+    Map<String, String> result = new HashMap<>();
+    for (var kv : waitingNodes.entrySet()) {
+      result.put(nodeIds.get(kv.getKey()), kv.getValue());
     }
-    return new RoundState(new LinkedHashMap<>(output.getNodesMap()), failedSnapshot);
+    return result;
   }
 
   private void finishNode(
@@ -343,7 +475,7 @@ public class McfResolver {
         phase, roundState.processedNodes, roundState.totalNodes, roundState.roundStartMillis);
   }
 
-  private String findFirstUnresolvedLocalRef(Mcf.McfGraph.PropertyValues node) {
+  private static String findFirstUnresolvedLocalRef(Mcf.McfGraph.PropertyValues node) {
     for (var pv : node.getPvsMap().entrySet()) {
       for (var val : pv.getValue().getTypedValuesList()) {
         String localId = getLocalId(val);
@@ -355,7 +487,7 @@ public class McfResolver {
     return "";
   }
 
-  private AssignmentMode getAssignmentMode(List<String> types) {
+  private static AssignmentMode getAssignmentMode(List<String> types) {
     for (var type : types) {
       if (Vocabulary.isStatVarObs(type)) {
         return AssignmentMode.STAT_VAR_OBS;
@@ -374,9 +506,8 @@ public class McfResolver {
       String nodeId, Mcf.McfGraph.PropertyValues node, AssignmentMode assignmentMode)
       throws UnexpectedException {
     return switch (assignmentMode) {
-      case STAT_VAR_OBS -> DcidGenerator.forStatVarObs(nodeId, node);
-      case LEGACY_POPULATION -> DcidGenerator.forPopulation(nodeId, node);
-      case LEGACY_OBSERVATION -> DcidGenerator.forObservation(nodeId, node);
+      case STAT_VAR_OBS, LEGACY_POPULATION, LEGACY_OBSERVATION ->
+          generateDcidFromPvs(nodeId, node, assignmentMode);
       case OTHER -> {
         DcidGenerator.Result result = new DcidGenerator.Result();
         if (idResolver != null) {
@@ -387,6 +518,46 @@ public class McfResolver {
     };
   }
 
+  // For the modes whose DCIDs depend only on the node's PVs. This is thread-safe.
+  private static DcidGenerator.Result generateDcidFromPvs(
+      String nodeId, Mcf.McfGraph.PropertyValues node, AssignmentMode assignmentMode) {
+    return switch (assignmentMode) {
+      case STAT_VAR_OBS -> DcidGenerator.forStatVarObs(nodeId, node);
+      case LEGACY_POPULATION -> DcidGenerator.forPopulation(nodeId, node);
+      case LEGACY_OBSERVATION -> DcidGenerator.forObservation(nodeId, node);
+      case OTHER -> throw new IllegalArgumentException("OTHER nodes need idResolver");
+    };
+  }
+
+  // Generates the DCIDs that depend only on the node's PVs (i.e., not OTHER nodes, which may need
+  // idResolver and log to logCtx), for the nodes (at the given positions) that will get to DCID
+  // generation in this round. The results are indexed like positions, with null for the other
+  // nodes, and are applied in order by the caller, so the round's outcome does not depend on the
+  // number of threads.
+  private DcidGenerator.Result[] generateDcidsInParallel(int[] positions) {
+    var nodes = new Mcf.McfGraph.PropertyValues[positions.length];
+    for (int i = 0; i < positions.length; i++) {
+      nodes[i] = output.getNodesMap().get(nodeIds.get(positions[i]));
+    }
+    var results = new DcidGenerator.Result[positions.length];
+    IntStream.range(0, positions.length)
+        .parallel()
+        .forEach(
+            i -> {
+              var node = nodes[i];
+              if (node == null
+                  || !McfUtil.getPropVal(node, Vocabulary.DCID).isEmpty()
+                  || !findFirstUnresolvedLocalRef(node).isEmpty()) {
+                return;
+              }
+              var assignmentMode = getAssignmentMode(McfUtil.getPropVals(node, Vocabulary.TYPE_OF));
+              if (assignmentMode != AssignmentMode.OTHER) {
+                results[i] = generateDcidFromPvs(nodeIds.get(positions[i]), node, assignmentMode);
+              }
+            });
+    return results;
+  }
+
   private void writeNodeUpdates(Map<String, Mcf.McfGraph.PropertyValues> updatedNodes) {
     for (var entry : updatedNodes.entrySet()) {
       output.putNodes(entry.getKey(), entry.getValue());
@@ -421,9 +592,13 @@ public class McfResolver {
     }
     failed.putNodes(failedNode, output.getNodesOrThrow(failedNode));
     output.removeNodes(failedNode);
+    int position = nodePositions.get(failedNode);
+    failedSinceReplacement.set(position);
+    failedSinceAssignment.set(position);
+    revisitReferrers(failedNode);
   }
 
-  private String getLocalId(Mcf.McfGraph.TypedValueOrBuilder tv) {
+  private static String getLocalId(Mcf.McfGraph.TypedValueOrBuilder tv) {
     String result = new String();
     if (tv.getType() == Mcf.ValueType.UNRESOLVED_REF
         && tv.getValue().startsWith(Vocabulary.INTERNAL_REF_PREFIX)) {
@@ -0,0 +1,162 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+// A key-value cache of DC API results that persists across tool runs, so that repeated runs over
+// the same schema do not re-issue the same calls.
+//
+// Entries are grouped by namespace (one per user of the cache) and expire after a TTL measured
+// from when they were fetched. The cache is loaded in full on open() and written back by save().
+// Lookups update the PersistentCache_Hits / PersistentCache_Misses counters in the log.
+//
+// This class is thread-safe.
+public class PersistentCache {
+  private static final Logger logger = LogManager.getLogger(PersistentCache.class);
+
+  public static final String FILE_NAME = "dc_api_cache.bin";
+
+  // Namespaces of the cache users.
+  public static final String EXISTENCE = "existence";
+  public static final String RESOLUTION = "resolution";
+  public static final String STAT_TYPE = "statType";
+
+  private static final int FORMAT_VERSION = 1;
+  // Keys and values are written with writeUTF(), which caps them at 64KB.
+  private static final int MAX_ENTRY_CHARS = 16 * 1024;
+
+  private static final class Entry {
+    final String value;
+    final long fetchTimeMillis;
+
+    Entry(String value, long fetchTimeMillis) {
+      this.value = value;
+      this.fetchTimeMillis = fetchTimeMillis;
+    }
+  }
+
+  private final Path file;
+  private final long ttlMillis;
+  private final long nowMillis;
+  private final LogWrapper logCtx;
+  // Key: namespace + '\0' + key
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+  private PersistentCache(Path file, Duration ttl, long nowMillis, LogWrapper logCtx) {
+    this.file = file;
+    this.ttlMillis = ttl.toMillis();
+    this.nowMillis = nowMillis;
+    this.logCtx = logCtx;
+  }
+
+  // Opens the cache stored in |file|, dropping entries older than |ttl|. A missing or unreadable
+  // file yields an empty cache.
+  public static PersistentCache open(Path file, Duration ttl, LogWrapper logCtx) {
+    return open(file, ttl, System.currentTimeMillis(), logCtx);
+  }
+
+  static PersistentCache open(Path file, Duration ttl, long nowMillis, LogWrapper logCtx) {
+    PersistentCache cache = new PersistentCache(file, ttl, nowMillis, logCtx);
+    if (Files.exists(file)) {
+      try {
+        cache.load();
+      } catch (IOException e) {
+        logger.warn("Ignoring unreadable cache file " + file + ": " + e.getMessage());
+        cache.entries.clear();
+      }
+    }
+    return cache;
+  }
+
+  // Returns the cached value, or null if there is none.
+  public String get(String namespace, String key) {
+    Entry entry = entries.get(makeKey(namespace, key));
+    if (entry == null) {
+      logCtx.incrementInfoCounterBy("PersistentCache_Misses", 1);
+      return null;
+    }
+    logCtx.incrementInfoCounterBy("PersistentCache_Hits", 1);
+    return entry.value;
+  }
+
+  public void put(String namespace, String key, String value) {
+    if (key.length() > MAX_ENTRY_CHARS || value.length() > MAX_ENTRY_CHARS) return;
+    entries.put(makeKey(namespace, key), new Entry(value, nowMillis));
+  }
+
+  public int size() {
+    return entries.size();
+  }
+
+  // Writes out the cache, replacing the file atomically.
+  public synchronized void save() throws IOException {
+    Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+      out.writeInt(FORMAT_VERSION);
+      for (Map.Entry<String, Entry> kv : entries.entrySet()) {
+        out.writeBoolean(true);
+        out.writeUTF(kv.getKey());
+        out.writeUTF(kv.getValue().value);
+        out.writeLong(kv.getValue().fetchTimeMillis);
+      }
+      out.writeBoolean(false);
+    }
+    Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void load() throws IOException {
+    int numExpired = 0;
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      int version = in.readInt();
+      if (version != FORMAT_VERSION) {
+        throw new IOException("unsupported format version " + version);
+      }
+      while (in.readBoolean()) {
+        String key = in.readUTF();
+        String value = in.readUTF();
+        long fetchTimeMillis = in.readLong();
+        if (nowMillis - fetchTimeMillis >= ttlMillis) {
+          numExpired++;
+          continue;
+        }
+        entries.put(key, new Entry(value, fetchTimeMillis));
+      }
+    } catch (EOFException e) {
+      throw new IOException("truncated file", e);
+    }
+    logCtx.incrementInfoCounterBy("PersistentCache_NumLoaded", entries.size());
+    logCtx.incrementInfoCounterBy("PersistentCache_NumExpired", numExpired);
+  }
+
+  private static String makeKey(String namespace, String key) {
+    return namespace + '\0' + key;
+  }
+}
@@ -3,7 +3,6 @@ package org.datacommons.util;
 import static java.util.stream.Collectors.toList;
 
 import java.util.ArrayList;
-import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -27,18 +26,33 @@ final class PropertyResolver {
   // Map from property to set of values.
   // Example: {"isoCode" -> ["IN", "US"], "wikidataId" -> ["Q62"]}
   // Resolved values.
-  // Map from property to Map from value to Set of candidate DCIDs.
+  // Map from property and value to the candidate DCIDs.
   // Example: {"isoCode" -> {"IN" -> ["country/IND"], "US" -> ["country/USA"]},
   //           "wikidataId" -> {"Q62" -> ["geoId/0667000"]}}
   private final Map<String, Set<String>> unresolvedProperties = new ConcurrentHashMap<>();
-  private final Map<String, Map<String, Set<String>>> resolvedProperties =
-      new ConcurrentHashMap<>();
+  private final ExternalIdMap resolvedProperties;
 
   private final ReconClient client;
+  // Candidates resolved in prior runs. May be null.
+  private final PersistentCache persistentCache;
   private final LogWrapper logCtx;
 
   PropertyResolver(ReconClient client, LogWrapper logCtx) {
+    this(client, null, logCtx);
+  }
+
+  PropertyResolver(ReconClient client, PersistentCache persistentCache, LogWrapper logCtx) {
+    this(client, persistentCache, new ExternalIdMap(), logCtx);
+  }
+
+  PropertyResolver(
+      ReconClient client,
+      PersistentCache persistentCache,
+      ExternalIdMap resolvedProperties,
+      LogWrapper logCtx) {
     this.client = client;
+    this.persistentCache = persistentCache;
+    this.resolvedProperties = resolvedProperties;
     this.logCtx = logCtx;
   }
 
@@ -48,9 +62,11 @@ final class PropertyResolver {
     for (Map.Entry<String, Set<String>> propVals : McfUtil.getExternalIds(node).entrySet()) {
       String prop = propVals.getKey();
       Set<String> vals = propVals.getValue();
-      Map<String, Set<String>> resolvedProp = resolvedProperties.get(prop);
       for (String val : vals) {
-        if (resolvedProp == null || !resolvedProp.containsKey(val)) {
+        if (!resolvedProperties.contains(prop, val)) {
+          if (loadCachedCandidates(prop, val)) {
+            continue;
+          }
           unresolvedProperties.computeIfAbsent(prop, k -> ConcurrentHashMap.newKeySet()).add(val);
           submitted = true;
         }
@@ -77,26 +93,42 @@ final class PropertyResolver {
       }
     }
     CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+    // From here on, the resolved values are only looked up.
+    resolvedProperties.seal();
+  }
+
+  long numResolvedIds() {
+    return resolvedProperties.size();
   }
 
   private void populateResolvedCandidates(String prop, ResolveResponse response) {
-    Map<String, Set<String>> propResolved =
-        resolvedProperties.computeIfAbsent(prop, k -> new ConcurrentHashMap<>());
     response
         .getEntitiesList()
         .forEach(
             entity -> {
               if (entity.getCandidatesCount() > 0) {
-                propResolved.put(
-                    entity.getNode(),
-                    new LinkedHashSet<>(
-                        entity.getCandidatesList().stream()
-                            .map(Candidate::getDcid)
-                            .collect(toList())));
+                List<String> dcids =
+                    entity.getCandidatesList().stream().map(Candidate::getDcid).collect(toList());
+                resolvedProperties.put(prop, entity.getNode(), dcids);
+                if (persistentCache != null) {
+                  persistentCache.put(
+                      PersistentCache.RESOLUTION,
+                      prop + "," + entity.getNode(),
+                      String.join(" ", dcids));
+                }
               }
             });
   }
 
+  // Returns true if the candidates for |val| were found in persistentCache (and are now resolved).
+  private boolean loadCachedCandidates(String prop, String val) {
+    if (persistentCache == null) return false;
+    String dcids = persistentCache.get(PersistentCache.RESOLUTION, prop + "," + val);
+    if (dcids == null) return false;
+    resolvedProperties.put(prop, val, List.of(dcids.split(" ")));
+    return true;
+  }
+
   Optional<String> resolve(String nodeId, PropertyValues node) {
     String foundDcid = null;
     String foundExternalProp = null;
@@ -105,45 +137,27 @@ final class PropertyResolver {
     for (Map.Entry<String, Set<String>> entry : externalIds.entrySet()) {
       String prop = entry.getKey();
       Set<String> values = entry.getValue();
-      Map<String, Set<String>> propResolved = resolvedProperties.get(prop);
       for (String val : values) {
-        if (checkAndLogUnresolved(nodeId, node, prop, val, propResolved)) {
+        String newDcid = resolvedProperties.getFirst(prop, val);
+        if (newDcid == null) {
+          logUnresolvedId(nodeId, node, prop, val);
           return Optional.empty();
         }
-        String newDcid = propResolved.get(val).stream().findFirst().orElse(null);
-        if (newDcid != null) {
-          if (foundDcid != null && !foundDcid.equals(newDcid)) {
-            logDivergingDcids(
-                nodeId, node, foundExternalProp, foundExternalId, foundDcid, prop, val, newDcid);
-            return Optional.empty();
-          }
-          foundDcid = newDcid;
-          foundExternalProp = prop;
-          foundExternalId = val;
+        if (foundDcid != null && !foundDcid.equals(newDcid)) {
+          logDivergingDcids(
+              nodeId, node, foundExternalProp, foundExternalId, foundDcid, prop, val, newDcid);
+          return Optional.empty();
         }
+        foundDcid = newDcid;
+        foundExternalProp = prop;
+        foundExternalId = val;
       }
     }
     return Optional.ofNullable(foundDcid);
   }
 
   void addResolvedId(String prop, String externalId, String dcid) {
-    resolvedProperties
-        .computeIfAbsent(prop, k -> new ConcurrentHashMap<>())
-        .computeIfAbsent(externalId, k -> ConcurrentHashMap.newKeySet())
-        .add(dcid);
-  }
-
-  private boolean checkAndLogUnresolved(
-      String nodeId,
-      PropertyValues node,
-      String prop,
-      String id,
-      Map<String, Set<String>> propResolved) {
-    if (propResolved == null || !propResolved.containsKey(id)) {
-      logUnresolvedId(nodeId, node, prop, id);
-      return true;
-    }
-    return false;
+    resolvedProperties.add(prop, externalId, dcid);
   }
 
   private void logDivergingDcids(
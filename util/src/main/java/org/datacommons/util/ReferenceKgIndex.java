@@ -0,0 +1,143 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.datacommons.proto.Debug;
+import org.datacommons.proto.Mcf;
+
+// An immutable snapshot of the nodes and schema triples in the reference KG, used by the
+// ExistenceChecker in place of DC API calls (e.g., when running without network access).
+//
+// The keys (see ExistenceChecker.makeKey) are stored as a sorted string table: their UTF-8 bytes
+// are concatenated in unsigned byte order into a single array, with an offset per key, and looked
+// up by binary search. This needs far less memory than a HashSet of Strings.
+//
+// The index is either built from instance MCF files (fromMcfFiles) or loaded from a file written
+// by save().
+public class ReferenceKgIndex {
+  private static final int MAGIC = 0x524b4931; // "RKI1"
+
+  // keys[i] is data[offsets[i], offsets[i+1]).
+  private final byte[] data;
+  private final int[] offsets;
+
+  private ReferenceKgIndex(byte[] data, int[] offsets) {
+    this.data = data;
+    this.offsets = offsets;
+  }
+
+  // Builds the index from the nodes (and Class/Property schema triples) in the given instance MCF
+  // files.
+  public static ReferenceKgIndex fromMcfFiles(List<File> mcfFiles) throws IOException {
+    // Parse errors in the snapshot are not the user's input errors, so they are not reported.
+    LogWrapper logCtx = new LogWrapper(Debug.Log.newBuilder());
+    List<byte[]> keys = new ArrayList<>();
+    for (File file : mcfFiles) {
+      McfParser parser = McfParser.init(Mcf.McfType.INSTANCE_MCF, file.getPath(), false, logCtx);
+      Mcf.McfGraph n;
+      while ((n = parser.parseNextNode()) != null) {
+        n = McfMutator.mutate(n.toBuilder(), logCtx);
+        ExistenceChecker.forEachKey(n, key -> keys.add(key.getBytes(StandardCharsets.UTF_8)));
+      }
+    }
+    return fromKeys(keys);
+  }
+
+  static ReferenceKgIndex fromKeys(List<byte[]> keys) {
+    keys.sort(Arrays::compareUnsigned);
+    int numUnique = 0;
+    long size = 0;
+    for (int i = 0; i < keys.size(); i++) {
+      if (i > 0 && Arrays.equals(keys.get(i - 1), keys.get(i))) continue;
+      keys.set(numUnique++, keys.get(i));
+      size += keys.get(i).length;
+    }
+    if (size > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Reference KG snapshot is too large: " + size + " bytes");
+    }
+    byte[] data = new byte[(int) size];
+    int[] offsets = new int[numUnique + 1];
+    for (int i = 0; i < numUnique; i++) {
+      byte[] key = keys.get(i);
+      System.arraycopy(key, 0, data, offsets[i], key.length);
+      offsets[i + 1] = offsets[i] + key.length;
+    }
+    return new ReferenceKgIndex(data, offsets);
+  }
+
+  public static ReferenceKgIndex load(Path file) throws IOException {
+    try (DataInputStream in =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      if (in.readInt() != MAGIC) {
+        throw new IOException("Not a reference KG index: " + file);
+      }
+      int[] offsets = new int[in.readInt() + 1];
+      for (int i = 1; i < offsets.length; i++) {
+        offsets[i] = in.readInt();
+      }
+      byte[] data = new byte[offsets[offsets.length - 1]];
+      in.readFully(data);
+      return new ReferenceKgIndex(data, offsets);
+    }
+  }
+
+  public void save(Path file) throws IOException {
+    try (DataOutputStream out =
+        new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+      out.writeInt(MAGIC);
+      out.writeInt(size());
+      for (int i = 1; i < offsets.length; i++) {
+        out.writeInt(offsets[i]);
+      }
+      out.write(data);
+    }
+  }
+
+  // Number of keys.
+  public int size() {
+    return offsets.length - 1;
+  }
+
+  // Whether the node (if |obj| is empty) or triple exists.
+  public boolean contains(String sub, String pred, String obj) {
+    byte[] key = ExistenceChecker.makeKey(sub, pred, obj).getBytes(StandardCharsets.UTF_8);
+    int lo = 0;
+    int hi = size() - 1;
+    while (lo <= hi) {
+      int mid = (lo + hi) >>> 1;
+      int cmp = Arrays.compareUnsigned(data, offsets[mid], offsets[mid + 1], key, 0, key.length);
+      if (cmp < 0) {
+        lo = mid + 1;
+      } else if (cmp > 0) {
+        hi = mid - 1;
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+}
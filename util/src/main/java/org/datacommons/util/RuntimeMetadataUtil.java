@@ -17,6 +17,9 @@ package org.datacommons.util;
 import com.google.protobuf.Timestamp;
 import java.io.IOException;
 import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Instant;
@@ -141,6 +144,25 @@ public class RuntimeMetadataUtil {
     return builder.build();
   }
 
+  /**
+   * Creates a MemoryMetrics proto with the heap usage of the JVM so far.
+   *
+   * @return MemoryMetrics builder with the max and peak heap sizes set, for the caller to add the
+   *     sizes of its own structures
+   */
+  public static Debug.MemoryMetrics.Builder createHeapMetrics() {
+    Debug.MemoryMetrics.Builder builder = Debug.MemoryMetrics.newBuilder();
+    builder.setMaxHeapBytes(Runtime.getRuntime().maxMemory());
+    long peakHeapUsed = 0;
+    for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP && pool.getPeakUsage() != null) {
+        peakHeapUsed += pool.getPeakUsage().getUsed();
+      }
+    }
+    builder.setPeakHeapUsedBytes(peakHeapUsed);
+    return builder;
+  }
+
   /**
    * Gets the git commit hash from the git.properties file.
    *
@@ -25,6 +25,7 @@ import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentMap;
 import org.datacommons.proto.Debug;
 import org.datacommons.proto.Debug.DataPoint;
@@ -42,10 +43,12 @@ import org.datacommons.util.SummaryReportGenerator.StatVarSummary;
 // A checker that checks time-series for holes, variance in values, etc.
 // This class is thread-safe.
 // Concurrency of map objects are handled by:
-// a. using a ConcurrentMap when methods that use the map are on a hot path and it is ok for access
-//    to the map to be race-y (samplePlaces and svObsValues).
-// b. making methods that access the map synchronized because when methods are not on a hot path and
-//    it is not ok for access to the map to be race-y (seriesSummaryMap).
+// a. using a ConcurrentMap (or a thread-safe LongFloatHashMap) for maps that are accessed on the
+//    hot path (samplePlaces and svObValues). The sets in samplePlaces have their own locks.
+// b. keeping a shard of svSummaryMap per thread on the hot path, which are merged into
+//    svSummaryMap (under the lock of this object) once all the stats are extracted.
+// c. locking placeSeriesSummaryMap itself, which is only accessed for nodes about sample places.
+//    Each PlaceSeriesSummary has its own lock.
 public class StatChecker {
   private static final int MAX_PLACES_FOR_TYPE_INFERRED_NS = 5;
   private static final int MAX_PLACES_FOR_TYPELESS_NS = 25;
@@ -77,14 +80,24 @@ public class StatChecker {
   // key is place dcid
   private final Map<String, PlaceSeriesSummary> placeSeriesSummaryMap;
   private final Map<String, StatVarSummary> svSummaryMap;
+  // Per-thread shards of svSummaryMap. All the shards ever created are in svSummaryShards.
+  private final Queue<Map<String, StatVarSummary>> svSummaryShards = new ConcurrentLinkedQueue<>();
+  private final ThreadLocal<Map<String, StatVarSummary>> svSummaryShard =
+      ThreadLocal.withInitial(
+          () -> {
+            Map<String, StatVarSummary> shard = new HashMap<>();
+            svSummaryShards.add(shard);
+            return shard;
+          });
   // key is generated by getSamplePlacesKey, value is set of place dcids
   private final ConcurrentMap<String, Set<String>> samplePlaces;
   private final boolean shouldGenerateSamplePlaces;
   // Tracks global state on StatVarObservations to detect whether there are multiple of the
   // same StatVarObservation with inconsistent values. The key is a hash made up of a set of
   // properties that distinguish a StatVarObservation and the value is the first value seen of that
-  // StatVarObservation.
-  private final ConcurrentMap<Long, Float> svObValues;
+  // StatVarObservation. There is an entry per StatVarObservation, so this is kept in primitive
+  // (and optionally off-heap) storage.
+  private final LongFloatHashMap svObValues;
   private final String EMPTY_PROP_STRING = "EMPTY_PROP";
   private StatVarState statVarState;
   private ExistenceChecker existenceChecker;
@@ -99,10 +112,27 @@ public class StatChecker {
       StatVarState statVarState,
       ExistenceChecker existenceChecker,
       boolean checkMeasurementResult) {
+    this(
+        logCtx,
+        samplePlaces,
+        statVarState,
+        existenceChecker,
+        checkMeasurementResult,
+        new LongFloatHashMap(0));
+  }
+
+  // Same as above, with the given (empty) map to track StatVarObservation values in.
+  public StatChecker(
+      LogWrapper logCtx,
+      Set<String> samplePlaces,
+      StatVarState statVarState,
+      ExistenceChecker existenceChecker,
+      boolean checkMeasurementResult,
+      LongFloatHashMap svObValues) {
     this.logCtx = logCtx;
     this.placeSeriesSummaryMap = new HashMap<>();
     this.samplePlaces = new ConcurrentHashMap<>();
-    this.svObValues = new ConcurrentHashMap<>();
+    this.svObValues = svObValues;
     this.svSummaryMap = new HashMap<>();
     if (samplePlaces == null) {
       this.shouldGenerateSamplePlaces = true;
@@ -127,9 +157,7 @@ public class StatChecker {
 
   // Given a graph, extract stat var info and time series info (about the chosen sample places) from
   // the statVarObservation nodes.
-  //
-  // TODO (chejennifer): Look into optimizing this so that there can be less contention
-  public synchronized void extractStatsFromGraph(McfGraph graph) {
+  public void extractStatsFromGraph(McfGraph graph) {
     for (Map.Entry<String, McfGraph.PropertyValues> nodeEntry : graph.getNodesMap().entrySet()) {
       McfGraph.PropertyValues node = nodeEntry.getValue();
       // We will extract basic stat var information from every StatVarObservation nodes
@@ -137,9 +165,12 @@ public class StatChecker {
       // We will only extract series information from StatVarObservation nodes about sample places
       String placeDcid = McfUtil.getPropVal(node, Vocabulary.OBSERVATION_ABOUT);
       if (shouldExtractSeriesInfo(placeDcid)) {
-        placeSeriesSummaryMap
-            .computeIfAbsent(placeDcid, k -> new PlaceSeriesSummary())
-            .extractSeriesFromNode(node);
+        PlaceSeriesSummary placeSeriesSummary;
+        synchronized (placeSeriesSummaryMap) {
+          placeSeriesSummary =
+              placeSeriesSummaryMap.computeIfAbsent(placeDcid, k -> new PlaceSeriesSummary());
+        }
+        placeSeriesSummary.extractSeriesFromNode(node);
       }
     }
   }
@@ -160,6 +191,7 @@ public class StatChecker {
   // variance, percent fluctuations, holes in dates, invalid dates, etc) and add these results to
   // the logCtx.
   public synchronized void check() throws IOException, InterruptedException {
+    mergeSvSummaryShards();
     Map<String, Integer> countersRemaining = new HashMap<>();
     for (String counterKey : COUNTER_KEYS) {
       countersRemaining.put(counterKey, NUM_SUMMARY_ENTRIES_PER_COUNTER);
@@ -276,10 +308,23 @@ public class StatChecker {
     return this.placeSeriesSummaryMap;
   }
 
-  public Map<String, StatVarSummary> getSVSummaryMap() {
+  public synchronized Map<String, StatVarSummary> getSVSummaryMap() {
+    mergeSvSummaryShards();
     return this.svSummaryMap;
   }
 
+  // Must be called once extractStatsFromGraph calls are done.
+  private void mergeSvSummaryShards() {
+    for (Map<String, StatVarSummary> shard : svSummaryShards) {
+      for (Map.Entry<String, StatVarSummary> entry : shard.entrySet()) {
+        svSummaryMap
+            .computeIfAbsent(entry.getKey(), k -> new StatVarSummary())
+            .merge(entry.getValue());
+      }
+      shard.clear();
+    }
+  }
+
   // Only extract series information for a statVarObservation node that is about a sample place.
   public boolean shouldExtractSeriesInfo(String placeDcid) {
     if (placeDcid.isEmpty()) return false;
@@ -290,23 +335,26 @@ public class StatChecker {
     // belongs has empty space, the sample place will be added to the
     // samplePlaces map
     if (shouldGenerateSamplePlaces) {
-      samplePlaces.computeIfAbsent(placekey, k -> new HashSet<>());
-
-      // If the the bucket has space, add the sample place
-      if (samplePlacesBucketHasSpace(placeDcid, placekey)) {
-        samplePlaces.get(placekey).add(placeDcid);
+      Set<String> bucket =
+          samplePlaces.computeIfAbsent(placekey, k -> ConcurrentHashMap.newKeySet());
+      // Most places are not sample places, and buckets fill up early, so only lock the bucket
+      // while it has space.
+      if (bucket.contains(placeDcid)) return true;
+      int bucketSize = getSamplePlaceBucketSize(placeDcid);
+      if (bucket.size() >= bucketSize) return false;
+      synchronized (bucket) {
+        // If the the bucket still has space, add the sample place
+        if (bucket.size() < bucketSize) {
+          bucket.add(placeDcid);
+          return true;
+        }
+        return false;
       }
     }
 
     return samplePlaces.get(placekey).contains(placeDcid);
   }
 
-  // Returns true if the bucket for this places key is not full.
-  private boolean samplePlacesBucketHasSpace(String placeDcid, String placekey) {
-    boolean bucketNotFull = samplePlaces.get(placekey).size() < getSamplePlaceBucketSize(placeDcid);
-    return bucketNotFull;
-  }
-
   // Given a place dcid, returns the namespace of the place
   private String getNamespaceOfPlaceName(String placeDcid) {
     String namespace = "";
@@ -603,14 +651,16 @@ public class StatChecker {
         hasher.putString(val, StandardCharsets.UTF_8).putInt(val.length());
       }
     }
-    Long fp = hasher.hash().asLong();
-    Float val = null;
+    long fp = hasher.hash().asLong();
+    float val = Float.NaN;
     try {
       val = Float.parseFloat(McfUtil.getPropVal(node, Vocabulary.VALUE));
     } catch (NumberFormatException e) {
-      // If value is not a float, val will stay as null and this will be handled later.
+      // If value is not a float, val will stay as NaN and this will be handled later.
     }
-    if (this.svObValues.containsKey(fp) && !this.svObValues.get(fp).equals(val)) {
+    // Compare as Float.equals() does.
+    float firstVal = this.svObValues.getOrPut(fp, val);
+    if (Float.floatToIntBits(firstVal) != Float.floatToIntBits(val)) {
       logCtx.addEntry(
           Level.LEVEL_ERROR,
           "Sanity_InconsistentSvObsValues",
@@ -621,15 +671,13 @@ public class StatChecker {
               + "', observationDate: '"
               + McfUtil.getPropVal(node, Vocabulary.OBSERVATION_DATE)
               + "', value1: "
-              + this.svObValues.get(fp)
+              + firstVal
               + ", value2: "
               + val,
           node.getLocationsList());
       return false;
-    } else {
-      this.svObValues.put(fp, val);
-      return true;
     }
+    return true;
   }
 
   public List<String> getSamplePlaces() {
@@ -648,12 +696,12 @@ public class StatChecker {
     }
   }
 
-  private synchronized void extractStatVarInfoFromNode(McfGraph.PropertyValues node) {
+  private void extractStatVarInfoFromNode(McfGraph.PropertyValues node) {
     // TODO (chejennifer): extract prop value into a struct and pass around instead of looking it up
     // in multiple places
     String svDcid = McfUtil.getPropVal(node, Vocabulary.VARIABLE_MEASURED);
     if (svDcid.isEmpty()) return;
-    StatVarSummary svMap = svSummaryMap.computeIfAbsent(svDcid, k -> new StatVarSummary());
+    StatVarSummary svMap = svSummaryShard.get().computeIfAbsent(svDcid, k -> new StatVarSummary());
     svMap.numObservations++;
     try {
       double value = Double.parseDouble(McfUtil.getPropVal(node, Vocabulary.VALUE));
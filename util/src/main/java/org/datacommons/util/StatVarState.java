@@ -23,6 +23,8 @@ import org.datacommons.proto.Mcf;
 // TODO: Consider expanding this to query DC by generated DCID to find curated DCID in KG.
 public class StatVarState {
   private HttpClient httpClient;
+  // StatTypes fetched in prior runs. May be null.
+  private final PersistentCache persistentCache;
   private final LogWrapper logCtx;
   private final Map<String, String> generatedToCurated = new ConcurrentHashMap<>();
   private final Map<String, String> curatedToGenerated = new ConcurrentHashMap<>();
@@ -30,12 +32,16 @@ public class StatVarState {
   private final Map<String, String> statVarStatType = new ConcurrentHashMap<>();
 
   public StatVarState(LogWrapper logCtx) {
-    this.httpClient = null;
-    this.logCtx = logCtx;
+    this(null, null, logCtx);
   }
 
   public StatVarState(HttpClient httpClient, LogWrapper logCtx) {
+    this(httpClient, null, logCtx);
+  }
+
+  public StatVarState(HttpClient httpClient, PersistentCache persistentCache, LogWrapper logCtx) {
     this.httpClient = httpClient;
+    this.persistentCache = persistentCache;
     this.logCtx = logCtx;
   }
 
@@ -65,12 +71,22 @@ public class StatVarState {
     if (this.httpClient == null) {
       return; // do nothing; we don't have an HTTPClient to make requests with
     }
+    if (persistentCache != null) {
+      String statType = persistentCache.get(PersistentCache.STAT_TYPE, svDcid);
+      if (statType != null) {
+        addStatType(svDcid, statType);
+        return;
+      }
+    }
     logCtx.incrementInfoCounterBy("StatVarState_NumDcCalls", 1);
     JsonObject dataJson =
         ApiHelper.fetchPropertyValues(this.httpClient, List.of(svDcid), Vocabulary.STAT_TYPE);
     String statType = parseApiStatTypeResponse(dataJson, svDcid);
     if (statType != null) { // statType == null when the response data was off
       addStatType(svDcid, statType);
+      if (persistentCache != null) {
+        persistentCache.put(PersistentCache.STAT_TYPE, svDcid, statType);
+      }
     }
   }
 
@@ -141,7 +157,7 @@ public class StatVarState {
       return false;
     }
 
-    var generated = DcidGenerator.forStatVar(id, node);
+    var generated = DcidGenerator.forStatVar(id, node, false);
     if (generated.dcid.isEmpty()) {
       // This is due to malformed SV node, which should have been handled in the checker.
       return false;
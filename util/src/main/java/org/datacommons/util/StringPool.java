@@ -0,0 +1,72 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+// A bounded pool of strings, so that equal values parsed from many rows or nodes (dcids of stat
+// vars and places, units, dates, property names, etc.) share a single instance in the graphs that
+// are kept around for checks.
+//
+// The pool is a fixed-size table with one string per slot, picked by hash. A string that maps to
+// an occupied slot with a different value replaces it, so frequent values stay in the pool while
+// rare ones come and go, and the memory held is bounded by the capacity and MAX_LENGTH. Lookups
+// and replacements are not synchronized: a racing thread may miss a pooled value and keep its own
+// copy, which is harmless since strings are immutable.
+//
+// Parsers intern values through the shared pool, which is disabled (a no-op) unless enabled with
+// enableShared().
+public final class StringPool {
+  // Longer strings (e.g., names and descriptions) are rarely repeated, and are not pooled.
+  public static final int MAX_LENGTH = 64;
+  public static final int DEFAULT_CAPACITY = 1 << 16;
+
+  private static volatile StringPool shared = null;
+
+  private final String[] table;
+  private final int mask;
+
+  public StringPool(int capacity) {
+    // A power of two, so that a hash maps to a slot with a mask.
+    int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    table = new String[size];
+    mask = size - 1;
+  }
+
+  // Returns a pooled string equal to s, or s itself (after pooling it) if there is none.
+  public String intern(String s) {
+    if (s == null || s.length() > MAX_LENGTH) return s;
+    int h = s.hashCode();
+    int slot = (h ^ (h >>> 16)) & mask;
+    String pooled = table[slot];
+    if (pooled != null && pooled.equals(s)) {
+      return pooled;
+    }
+    table[slot] = s;
+    return s;
+  }
+
+  public static void enableShared(int capacity) {
+    shared = new StringPool(capacity);
+  }
+
+  public static void disableShared() {
+    shared = null;
+  }
+
+  // Interns s in the shared pool, if it is enabled.
+  public static String internShared(String s) {
+    StringPool pool = shared;
+    return pool == null ? s : pool.intern(s);
+  }
+}
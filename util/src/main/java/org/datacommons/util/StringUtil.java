@@ -23,6 +23,7 @@ import java.time.format.DateTimeFormatterBuilder;
 import java.time.format.DateTimeParseException;
 import java.time.temporal.ChronoField;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
@@ -179,44 +180,112 @@ public class StringUtil {
   }
 
   // NOTE: We do not strip enclosing quotes in this function.
+  //
+  // This is on the path of every CSV cell and MCF value, so it splits, trims and strips in a single
+  // scan of the string, with the same results as SplitStructuredLineWithEscapes() followed by
+  // trimming each part. Single values (the common case) are returned without copying or growing a
+  // list. The returned list is not modifiable.
   public static List<String> splitAndStripWithQuoteEscape(
       String orig, SplitAndStripArg arg, LogCb logCb) throws AssertionError {
-    List<String> results = new ArrayList<>();
-    if (orig.contains("\n")) {
-      if (logCb != null) {
-        logCb.logError("StrSplit_MultiToken", "Found a new-line in value");
+    char delimiter = arg.delimiter;
+    // Holds the first value until a second one shows up, so that a list is only built for
+    // multiple values.
+    String first = null;
+    List<String> results = null;
+    boolean inExpression = false;
+    // Whether the current part has a backslash, and might need escapes stripped.
+    boolean partHasEscape = false;
+    int startIdx = 0;
+    int length = orig.length();
+    for (int i = 0; i < length; i++) {
+      char c = orig.charAt(i);
+      if (c == '\n') {
+        if (logCb != null) {
+          logCb.logError("StrSplit_MultiToken", "Found a new-line in value");
+        }
+        return List.of();
+      } else if (c == '\\') {
+        // The next character is escaped, so don't handle it specially (other than a new-line).
+        partHasEscape = true;
+        if (i + 1 < length && orig.charAt(i + 1) != '\n') i++;
+      } else if (c == delimiter && !inExpression) {
+        // delimiter outside of expression, so split here
+        String part = stripPart(orig, startIdx, i, arg, partHasEscape);
+        if (part != null) {
+          if (first == null) {
+            first = part;
+          } else {
+            results = addPart(results, first, part);
+          }
+        }
+        startIdx = i + 1;
+        partHasEscape = false;
+      } else if (c == '"') {
+        // If we're in an expression, close the expression. If we're not in an expression,
+        // open a new expression.
+        inExpression = !inExpression;
       }
-      return results;
     }
-    List<String> parts = new ArrayList<>();
-    if (!SplitStructuredLineWithEscapes(orig, arg.delimiter, '"', parts)) {
+    // all opened expressions must be closed.
+    if (inExpression) {
       if (logCb != null) {
         logCb.logError(
             "StrSplit_BadQuotesInToken", "Found token with incorrectly double-quoted value");
       }
-      return results;
-    }
-    for (String s : parts) {
-      String ss = arg.stripEnclosingQuotes ? stripEnclosingQuotePair(s.trim()) : s.trim();
-      // After stripping whitespace some terms could become empty.
-      if (arg.includeEmpty || !ss.isEmpty()) {
-        if (arg.stripEscapesBeforeQuotes) {
-          // replace instances of \" with just "
-          results.add(ss.replace("\\\"", "\""));
-        } else {
-          results.add(ss);
-        }
+      return List.of();
+    }
+    String part = stripPart(orig, startIdx, length, arg, partHasEscape);
+    if (part != null) {
+      if (first == null) {
+        first = part;
+      } else {
+        results = addPart(results, first, part);
       }
     }
-    if (results.isEmpty()) {
+    if (first == null) {
       if (logCb != null) {
         logCb.logError("StrSplit_EmptyToken", "Empty value found");
       }
-      return results;
+      return List.of();
+    }
+    return results == null ? List.of(first) : Collections.unmodifiableList(results);
+  }
+
+  // Adds part to results, which is created (starting with first) for the second part.
+  private static List<String> addPart(List<String> results, String first, String part) {
+    if (results == null) {
+      results = new ArrayList<>();
+      results.add(first);
     }
+    results.add(part);
     return results;
   }
 
+  // Trims orig[start, end) and strips its enclosing quotes and escapes as per arg, returning null
+  // if it is empty and empty parts are not included.
+  private static String stripPart(
+      String orig, int start, int end, SplitAndStripArg arg, boolean hasEscape) {
+    // Same as String.trim().
+    while (start < end && orig.charAt(start) <= ' ') start++;
+    while (end > start && orig.charAt(end - 1) <= ' ') end--;
+    if (arg.stripEnclosingQuotes
+        && end - start > 1
+        && orig.charAt(start) == '"'
+        && orig.charAt(end - 1) == '"') {
+      start++;
+      end--;
+    }
+    if (start == end) {
+      return arg.includeEmpty ? "" : null;
+    }
+    String part = orig.substring(start, end);
+    if (hasEscape && arg.stripEscapesBeforeQuotes) {
+      // replace instances of \" with just "
+      return part.replace("\\\"", "\"");
+    }
+    return part;
+  }
+
   public static String stripEnclosingQuotePair(String val) {
     if (val.length() > 1) {
       if (val.charAt(0) == '"' && val.charAt(val.length() - 1) == '"') {
@@ -57,6 +57,19 @@ public class SummaryReportGenerator {
     List<String> seriesDates = new ArrayList<>();
     List<String> seriesValues = new ArrayList<>();
 
+    // Adds the observations summarized by |other| (which does not have a series) to this summary.
+    void merge(StatVarSummary other) {
+      numObservations += other.numObservations;
+      minValue = Math.min(minValue, other.minValue);
+      maxValue = Math.max(maxValue, other.maxValue);
+      places.addAll(other.places);
+      mMethods.addAll(other.mMethods);
+      units.addAll(other.units);
+      scalingFactors.addAll(other.scalingFactors);
+      observationPeriods.addAll(other.observationPeriods);
+      dates.addAll(other.dates);
+    }
+
     public int getNumObservations() {
       return this.numObservations;
     }
@@ -1,22 +1,69 @@
 package org.datacommons.util.parser.jsonld;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.json.JsonReadFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.jsonldjava.core.JsonLdError;
 import com.github.jsonldjava.core.JsonLdOptions;
-import com.github.jsonldjava.utils.JsonUtils;
+import com.github.jsonldjava.core.JsonLdProcessor;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import org.datacommons.proto.Mcf;
 import org.datacommons.proto.Mcf.McfGraph;
+import org.datacommons.util.StringPool;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 /**
  * Parser for JSON-LD input files. Converts JSON-LD constructs into Data Commons McfGraph protobuf
  * representation.
+ *
+ * <p>The input is read with a streaming JSON parser, and nodes are returned one at a time by {@link
+ * #parseNextNode()}, so that large documents in the common shapes (a top-level array of nodes, or
+ * an object with an {@code @context} followed by a {@code @graph} array) are never held in memory
+ * in full. Nodes that only use terms, compact IRIs and plain values are converted directly, with
+ * the same result as W3C JSON-LD expansion; any other node is expanded on its own. Documents with a
+ * non-trivial {@code @context} (e.g., a remote context, {@code @vocab} or type coercion) are read
+ * in full and expanded as a whole.
  */
 public class JsonLdParser {
   private static final Logger LOGGER = LoggerFactory.getLogger(JsonLdParser.class);
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+
+  private final JsonParser jp;
+  // The @context of the nodes being streamed, and its term definitions.
+  private Object context = null;
+  private Map<String, String> terms = Collections.emptyMap();
+  // Whether the nodes being streamed are in the @graph of a top-level object (rather than in a
+  // top-level array).
+  private boolean inGraphObject = false;
+  private boolean finished = false;
+  // The offset of the value that the pending nodes come from, and how the offsets of the JSON
+  // parser are off from those in the input stream (by the '[' that initNodes() prepends).
+  private long nodeOffset = -1;
+  private long offsetShift = 0;
+  // Nodes that are ready to be returned.
+  private final Deque<McfGraph> pending = new ArrayDeque<>();
+
+  // Thrown for nodes that cannot be converted without JSON-LD expansion.
+  private static final class NeedsExpansionException extends Exception {}
+
+  private JsonLdParser(JsonParser jp) {
+    this.jp = jp;
+  }
 
   // W3C JSON-LD expansion URL bases that we want to strip back down to clean local strings
   // to match DB expectations for node IDs and references in the Knowledge Graph.
@@ -63,35 +110,463 @@ public class JsonLdParser {
    * @throws IOException If there is an error reading the input.
    */
   public static McfGraph parse(InputStream inputStream) throws IOException {
-    // TODO: Optimize memory footprint by replacing full-graph buffering with a streaming Jackson
-    // JsonParser
-    Object jsonObject = JsonUtils.fromInputStream(inputStream);
-    JsonLdOptions options = new JsonLdOptions();
+    JsonLdParser parser = init(inputStream);
+    McfGraph.Builder graphBuilder = McfGraph.newBuilder();
+    graphBuilder.setType(Mcf.McfType.INSTANCE_MCF);
+    McfGraph node;
+    while ((node = parser.parseNextNode()) != null) {
+      graphBuilder.putAllNodes(node.getNodesMap());
+    }
+    return graphBuilder.build();
+  }
+
+  /**
+   * Creates a parser that returns the nodes of a JSON-LD input stream one at a time.
+   *
+   * @param inputStream The input stream containing JSON-LD data.
+   * @return The parser, positioned before the first node.
+   * @throws IOException If there is an error reading the input.
+   */
+  public static JsonLdParser init(InputStream inputStream) throws IOException {
+    JsonParser jp = MAPPER.getFactory().createParser(inputStream);
+    jp.enable(JsonParser.Feature.ALLOW_COMMENTS);
+    JsonLdParser parser = new JsonLdParser(jp);
+    JsonToken token = jp.nextToken();
+    if (token == JsonToken.START_OBJECT) {
+      parser.readTopLevelObject();
+    } else if (token != JsonToken.START_ARRAY) {
+      // Empty documents and scalars have no nodes.
+      parser.finished = true;
+    }
+    return parser;
+  }
+
+  /**
+   * How the top-level nodes of a JSON-LD document that can be split into byte ranges are laid out
+   * (see {@link #findNodeLayout}).
+   */
+  public static final class NodeLayout {
+    /** The {@code @context} of the document, to pass to {@link #initNodes}, or null if none. */
+    public final Object context;
+
+    /** The byte offset where the first node begins. */
+    public final long firstNodeOffset;
+
+    /** The number of whitespace bytes before a node on the lines where nodes begin. */
+    public final int indent;
+
+    NodeLayout(Object context, long firstNodeOffset, int indent) {
+      this.context = context;
+      this.firstNodeOffset = firstNodeOffset;
+      this.indent = indent;
+    }
+  }
+
+  /**
+   * Finds how the top-level nodes of a JSON-LD document are laid out, if the document can be split
+   * into byte ranges that are parsed independently (e.g., on different workers) with {@link
+   * #initNodes}. Only the start of the document, up to its second node, is read.
+   *
+   * <p>Documents can be split if they are a top-level array of nodes, or an object with a simple
+   * {@code @context}, which only maps terms to absolute IRIs, followed by a {@code @graph} array;
+   * and if their second node begins a line. The nodes after it are then expected to begin lines
+   * with the same indentation, which is what {@link #findNodeStart} looks for.
+   *
+   * @param inputStream The input stream containing JSON-LD data.
+   * @return The layout of the nodes, or null if the document cannot be split.
+   * @throws IOException If there is an error reading the input.
+   */
+  public static NodeLayout findNodeLayout(InputStream inputStream) throws IOException {
+    JsonParser jp = MAPPER.getFactory().createParser(inputStream);
+    jp.enable(JsonParser.Feature.ALLOW_COMMENTS);
+    Object context = null;
+    JsonToken token = jp.nextToken();
+    if (token == JsonToken.START_OBJECT) {
+      if (jp.nextToken() != JsonToken.FIELD_NAME || !"@context".equals(jp.currentName())) {
+        return null;
+      }
+      jp.nextToken();
+      context = MAPPER.readValue(jp, Object.class);
+      if (simpleTerms(context) == null
+          || jp.nextToken() != JsonToken.FIELD_NAME
+          || !"@graph".equals(jp.currentName())
+          || jp.nextToken() != JsonToken.START_ARRAY) {
+        return null;
+      }
+    } else if (token != JsonToken.START_ARRAY) {
+      return null;
+    }
+
+    if (jp.nextToken() != JsonToken.START_OBJECT) {
+      return null;
+    }
+    long firstNodeOffset = jp.getTokenLocation().getByteOffset();
+    jp.skipChildren();
+    int firstNodeEndLine = jp.getCurrentLocation().getLineNr();
+    if (jp.nextToken() != JsonToken.START_OBJECT
+        || jp.getTokenLocation().getLineNr() == firstNodeEndLine) {
+      return null;
+    }
+    // Columns are counted in bytes for byte input.
+    return new NodeLayout(context, firstNodeOffset, jp.getTokenLocation().getColumnNr() - 1);
+  }
+
+  /**
+   * Finds the first node at or after a byte offset of a document that can be split, by looking for
+   * the next line that begins with {@code layout.indent} bytes of whitespace and a '{'.
+   *
+   * <p>The document is not parsed from its start, so an object nested in a node that begins a line
+   * with the same indentation as the nodes would be taken for a node. JSON serializers do not write
+   * such documents: they put each node on a single line, or indent nested objects further.
+   *
+   * @param inputStream The input stream containing the document, from {@link #nodeScanOffset}.
+   * @param offset The offset to search from, which must be after the first node.
+   * @param layout The layout of the nodes, from {@link #findNodeLayout}.
+   * @return The offset where the node begins, or -1 if there is none.
+   * @throws IOException If there is an error reading the input.
+   */
+  public static long findNodeStart(InputStream inputStream, long offset, NodeLayout layout)
+      throws IOException {
+    InputStream in = new BufferedInputStream(inputStream);
+    long pos = nodeScanOffset(offset, layout);
+    // The whitespace bytes read since the last newline, or -1 if there was anything else.
+    int indent = -1;
+    int b;
+    while ((b = in.read()) != -1) {
+      if (b == '\n') {
+        indent = 0;
+      } else if (indent >= 0) {
+        if (b == '{' && indent == layout.indent && pos >= offset) {
+          return pos;
+        }
+        indent = b == ' ' || b == '\t' ? indent + 1 : -1;
+      }
+      pos++;
+    }
+    return -1;
+  }
+
+  /**
+   * Returns the offset that {@link #findNodeStart} reads the document from when it searches from
+   * {@code offset}: far enough back to see the newline and the indentation before a node that
+   * begins at {@code offset}.
+   */
+  public static long nodeScanOffset(long offset, NodeLayout layout) {
+    return Math.max(layout.firstNodeOffset, offset - layout.indent - 1);
+  }
+
+  /**
+   * Creates a parser for the nodes of a document that can be split, from a node onwards (see {@link
+   * #findNodeLayout}). The parser stops at the end of the nodes of the document, or of the input if
+   * it ends first with a whole node, i.e., the input may be a sequence of comma-separated nodes.
+   *
+   * @param nodes The input stream containing the nodes, from the start of a node.
+   * @param context The {@code @context} of the document, from {@link #findNodeLayout}.
+   * @return The parser, positioned before the first node.
+   * @throws IOException If there is an error reading the input.
+   */
+  public static JsonLdParser initNodes(InputStream nodes, Object context) throws IOException {
+    // Read the nodes as an array, which may have a trailing comma.
+    InputStream array =
+        new SequenceInputStream(
+            Collections.enumeration(
+                List.of(
+                    new ByteArrayInputStream(new byte[] {'['}),
+                    nodes,
+                    new ByteArrayInputStream(new byte[] {']'}))));
+    JsonParser jp = MAPPER.getFactory().createParser(array);
+    jp.enable(JsonParser.Feature.ALLOW_COMMENTS);
+    jp.enable(JsonReadFeature.ALLOW_TRAILING_COMMA.mappedFeature());
+    JsonLdParser parser = new JsonLdParser(jp);
+    Map<String, String> contextTerms = simpleTerms(context);
+    if (contextTerms == null) {
+      throw new IOException("JSON-LD @context cannot be used to parse nodes separately");
+    }
+    parser.context = context;
+    parser.terms = contextTerms;
+    parser.offsetShift = -1;
+    jp.nextToken();
+    return parser;
+  }
+
+  /**
+   * Returns the byte offset, in the input stream, of the top-level value that the node last
+   * returned by {@link #parseNextNode()} was read from. Several nodes may come from one value.
+   */
+  public long lastNodeOffset() {
+    return nodeOffset;
+  }
+
+  /**
+   * Parses the next node.
+   *
+   * @return A single-node McfGraph, or null at the end of the input.
+   * @throws IOException If there is an error reading the input or expanding a node.
+   */
+  public McfGraph parseNextNode() throws IOException {
+    while (pending.isEmpty() && !finished) {
+      JsonToken token = jp.nextToken();
+      if (token == JsonToken.START_OBJECT || token == JsonToken.START_ARRAY) {
+        nodeOffset = jp.getTokenLocation().getByteOffset() + offsetShift;
+      }
+      if (token == JsonToken.START_OBJECT) {
+        convertNode(MAPPER.readValue(jp, Map.class));
+      } else if (token == JsonToken.START_ARRAY) {
+        // Nested arrays are flattened by expansion.
+        expand(MAPPER.readValue(jp, List.class));
+      } else if (token == JsonToken.END_ARRAY || token == null) {
+        if (inGraphObject) {
+          skipRemainingFields();
+        }
+        finished = true;
+      }
+      // Other values (which expansion drops) are skipped.
+    }
+    return pending.poll();
+  }
 
+  // Reads the fields of a top-level object up to a @graph array that can be streamed, or else the
+  // whole object.
+  private void readTopLevelObject() throws IOException {
+    Map<String, Object> doc = new LinkedHashMap<>();
+    while (jp.nextToken() == JsonToken.FIELD_NAME) {
+      String name = jp.currentName();
+      JsonToken token = jp.nextToken();
+      if ("@graph".equals(name)
+          && token == JsonToken.START_ARRAY
+          && doc.keySet().equals(Set.of("@context"))) {
+        Map<String, String> contextTerms = simpleTerms(doc.get("@context"));
+        if (contextTerms != null) {
+          context = doc.get("@context");
+          terms = contextTerms;
+          inGraphObject = true;
+          return;
+        }
+      }
+      doc.put(name, MAPPER.readValue(jp, Object.class));
+    }
+    finished = true;
+
+    Map<String, String> contextTerms = simpleTerms(doc.get("@context"));
+    Object graph = doc.get("@graph");
+    boolean isGraph = graph instanceof List && doc.size() == (doc.containsKey("@context") ? 2 : 1);
+    if (contextTerms == null || (graph != null && !isGraph)) {
+      expand(doc);
+      return;
+    }
+    context = doc.remove("@context");
+    terms = contextTerms;
+    if (graph == null) {
+      // The document is a single node.
+      convertNode(doc);
+    } else {
+      for (Object node : (List<?>) graph) {
+        if (node instanceof Map) {
+          convertNode((Map<?, ?>) node);
+        }
+      }
+    }
+  }
+
+  // Skips the fields of the top-level object after its @graph.
+  private void skipRemainingFields() throws IOException {
+    while (jp.nextToken() == JsonToken.FIELD_NAME) {
+      LOGGER.warn("Ignoring top-level JSON-LD property {} after @graph", jp.currentName());
+      jp.nextToken();
+      jp.skipChildren();
+    }
+  }
+
+  // Returns the term definitions of a @context that only maps terms to absolute IRIs (typically
+  // prefixes), or null if the @context needs JSON-LD processing.
+  private static Map<String, String> simpleTerms(Object context) {
+    if (context == null) {
+      return Collections.emptyMap();
+    }
+    if (!(context instanceof Map)) {
+      return null;
+    }
+    Map<String, String> terms = new HashMap<>();
+    for (Map.Entry<?, ?> entry : ((Map<?, ?>) context).entrySet()) {
+      String term = entry.getKey().toString();
+      if (term.startsWith("@") || term.contains(":") || !(entry.getValue() instanceof String)) {
+        return null;
+      }
+      String iri = (String) entry.getValue();
+      if (iri.startsWith("@") || !iri.contains(":")) {
+        return null;
+      }
+      terms.put(term, iri);
+    }
+    for (String iri : terms.values()) {
+      // An IRI that is itself a compact IRI.
+      String suffix = iri.substring(iri.indexOf(':') + 1);
+      if (terms.containsKey(iri.substring(0, iri.indexOf(':'))) && !suffix.startsWith("//")) {
+        return null;
+      }
+    }
+    return terms;
+  }
+
+  private void convertNode(Map<?, ?> node) throws IOException {
+    Map<String, Object> expanded;
+    try {
+      expanded = expandNode(node);
+    } catch (NeedsExpansionException e) {
+      if (context == null) {
+        expand(node);
+      } else {
+        Map<String, Object> doc = new LinkedHashMap<>();
+        doc.put("@context", context);
+        doc.put("@graph", new ArrayList<>(List.of(node)));
+        expand(doc);
+      }
+      return;
+    }
+    // Like expansion, drop top-level nodes without properties.
+    if (expanded.isEmpty() || expanded.keySet().equals(Set.of("@id"))) {
+      return;
+    }
+    addNode(expanded);
+  }
+
+  // Runs JSON-LD expansion over (a part of) the document and queues up the resulting nodes.
+  private void expand(Object doc) throws IOException {
+    Object jsonObject;
     // Enforce JSON-LD Canonical Expansion mapping per W3C 1.1 rules
     try {
-      jsonObject = com.github.jsonldjava.core.JsonLdProcessor.expand(jsonObject, options);
-    } catch (com.github.jsonldjava.core.JsonLdError e) {
+      jsonObject = JsonLdProcessor.expand(doc, new JsonLdOptions());
+    } catch (JsonLdError e) {
       throw new IOException("JSON-LD expansion failed: " + e.getMessage(), e);
     }
 
-    McfGraph.Builder graphBuilder = McfGraph.newBuilder();
-    graphBuilder.setType(Mcf.McfType.INSTANCE_MCF);
-
     if (jsonObject instanceof List) {
       List<Object> list = (List<Object>) jsonObject;
       for (Object obj : list) {
         if (obj instanceof Map) {
-          Map<String, Object> nodeMap = (Map<String, Object>) obj;
-          parseNode(nodeMap, graphBuilder);
+          addNode((Map<String, Object>) obj);
         }
       }
     } else if (jsonObject instanceof Map) {
-      Map<String, Object> nodeMap = (Map<String, Object>) jsonObject;
-      parseNode(nodeMap, graphBuilder);
+      addNode((Map<String, Object>) jsonObject);
     }
+  }
 
-    return graphBuilder.build();
+  private void addNode(Map<String, Object> nodeMap) {
+    McfGraph.Builder graphBuilder = McfGraph.newBuilder();
+    graphBuilder.setType(Mcf.McfType.INSTANCE_MCF);
+    parseNode(nodeMap, graphBuilder);
+    if (graphBuilder.getNodesCount() > 0) {
+      pending.add(graphBuilder.build());
+    }
+  }
+
+  // Returns the node as JSON-LD expansion would with the simple @context in terms, i.e., with
+  // expanded IRIs for keys, @id and @type, and value objects for plain values. Keys are processed
+  // in sorted order, as in expansion.
+  private Map<String, Object> expandNode(Map<?, ?> node) throws NeedsExpansionException {
+    List<String> keys = new ArrayList<>();
+    for (Object key : node.keySet()) {
+      keys.add(key.toString());
+    }
+    Collections.sort(keys);
+    Map<String, Object> result = new LinkedHashMap<>();
+    for (String key : keys) {
+      Object value = node.get(key);
+      if ("@id".equals(key)) {
+        result.put("@id", expandIdOrType(value, false));
+      } else if ("@type".equals(key)) {
+        List<Object> types = new ArrayList<>();
+        if (value instanceof List) {
+          for (Object type : (List<?>) value) {
+            types.add(expandIdOrType(type, true));
+          }
+        } else {
+          types.add(expandIdOrType(value, true));
+        }
+        result.put("@type", types);
+      } else if (key.startsWith("@")) {
+        throw new NeedsExpansionException();
+      } else {
+        String property = expandIri(key, true);
+        // Like expansion, drop keys that do not map to IRIs, and null values.
+        if (property == null || value == null) {
+          continue;
+        }
+        addExpandedValues(
+            value, (List<Object>) result.computeIfAbsent(property, k -> new ArrayList<>()));
+      }
+    }
+    return result;
+  }
+
+  private void addExpandedValues(Object value, List<Object> values) throws NeedsExpansionException {
+    if (value == null) {
+      return;
+    }
+    if (value instanceof List) {
+      for (Object item : (List<?>) value) {
+        if (item instanceof List) {
+          throw new NeedsExpansionException();
+        }
+        addExpandedValues(item, values);
+      }
+    } else if (value instanceof Map) {
+      Map<?, ?> map = (Map<?, ?>) value;
+      if (!map.containsKey("@value")) {
+        values.add(expandNode(map));
+        return;
+      }
+      Object val = map.get("@value");
+      for (Object key : map.keySet()) {
+        if (!Set.of("@value", "@type", "@language").contains(key.toString())) {
+          throw new NeedsExpansionException();
+        }
+      }
+      if (!isScalar(val) || (map.containsKey("@language") && !(val instanceof String))) {
+        throw new NeedsExpansionException();
+      }
+      values.add(Map.of("@value", val));
+    } else if (isScalar(value)) {
+      values.add(Map.of("@value", value));
+    } else {
+      throw new NeedsExpansionException();
+    }
+  }
+
+  private static boolean isScalar(Object value) {
+    return value instanceof String || value instanceof Number || value instanceof Boolean;
+  }
+
+  private String expandIdOrType(Object value, boolean isType) throws NeedsExpansionException {
+    if (!(value instanceof String) || ((String) value).startsWith("@")) {
+      throw new NeedsExpansionException();
+    }
+    String iri = expandIri((String) value, isType);
+    if (iri == null) {
+      // A relative IRI, which expansion resolves against the document base.
+      throw new NeedsExpansionException();
+    }
+    return iri;
+  }
+
+  // Expands a term (if vocab is set) or compact IRI. Returns null for other values without a
+  // colon.
+  private String expandIri(String value, boolean vocab) {
+    if (vocab && terms.containsKey(value)) {
+      return terms.get(value);
+    }
+    int colon = value.indexOf(':');
+    if (colon == -1) {
+      return null;
+    }
+    String prefix = value.substring(0, colon);
+    String suffix = value.substring(colon + 1);
+    if (prefix.equals("_") || suffix.startsWith("//") || !terms.containsKey(prefix)) {
+      // A blank node identifier or absolute IRI.
+      return value;
+    }
+    return terms.get(prefix) + suffix;
   }
 
   private static void parseNode(Map<String, Object> nodeMap, McfGraph.Builder graphBuilder) {
@@ -196,11 +671,12 @@ public class JsonLdParser {
       String property,
       String value,
       Mcf.ValueType type) {
+    property = StringPool.internShared(property);
     McfGraph.Values.Builder valuesBuilder =
         nodeBuilder.getPvsOrDefault(property, McfGraph.Values.getDefaultInstance()).toBuilder();
 
     McfGraph.TypedValue.Builder typedValueBuilder =
-        McfGraph.TypedValue.newBuilder().setValue(value).setType(type);
+        McfGraph.TypedValue.newBuilder().setValue(StringPool.internShared(value)).setType(type);
 
     valuesBuilder.addTypedValues(typedValueBuilder.build());
     nodeBuilder.putPvs(property, valuesBuilder.build());
@@ -0,0 +1,225 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Reads the lines of a UTF-8 MCF file for McfParser from a memory-mapped view of the file.
+//
+// Lines are scanned as bytes: blank and comment lines are skipped, and the "<lhs>: <rhs>" lines
+// are split and trimmed, without decoding the lines into Strings. Only the trimmed lhs and rhs
+// are decoded. Lines end at '\n', '\r' or "\r\n" (as with Files.lines), and since every byte of a
+// multi-byte UTF-8 character is >= 0x80, scanning for ASCII bytes is safe.
+final class MappedMcfReader {
+  // Files are mapped in windows of up to this size. A line may not be longer.
+  static final long MAX_WINDOW_BYTES = 1L << 30;
+
+  private final Path file;
+  private final long maxWindowBytes;
+  // File offset where the lines end.
+  private final long endOffset;
+  private MappedByteBuffer window;
+  private long windowStart;
+  // Offset of the next unread byte, relative to windowStart.
+  private int pos = 0;
+  private long lineNumber = 0;
+  private boolean afterCr = false;
+  // Start of the current line, relative to windowStart.
+  private int lineBegin;
+  // Bounds of the current (trimmed) line, relative to windowStart.
+  private int lineStart;
+  private int lineEnd;
+  // Offset of the colon delimiter in the current line, or -1 if the line needs to go through
+  // McfParser.parseLine().
+  private int colon;
+  private byte[] scratch = new byte[256];
+
+  MappedMcfReader(Path file) throws IOException {
+    this(file, 0, -1, 0);
+  }
+
+  // Reads just the lines in the byte range [startOffset, endOffset) of the file, numbering them
+  // from startLineNumber + 1. The range must begin at the start of a line. An endOffset of -1
+  // means the end of the file.
+  MappedMcfReader(Path file, long startOffset, long endOffset, long startLineNumber)
+      throws IOException {
+    this(file, startOffset, endOffset, startLineNumber, MAX_WINDOW_BYTES);
+  }
+
+  // As above, but maps windows of up to maxWindowBytes. Lets tests use windows that lines span.
+  MappedMcfReader(
+      Path file, long startOffset, long endOffset, long startLineNumber, long maxWindowBytes)
+      throws IOException {
+    this.file = file;
+    this.maxWindowBytes = maxWindowBytes;
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      this.endOffset = endOffset < 0 ? channel.size() : endOffset;
+      window =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY,
+              startOffset,
+              Math.min(this.endOffset - startOffset, maxWindowBytes));
+    }
+    windowStart = startOffset;
+    lineNumber = startLineNumber;
+  }
+
+  // Advances to the next line that is not blank or a comment. Returns false at the end of file.
+  boolean next() {
+    while (true) {
+      if (pos >= window.limit() && !remap(pos)) {
+        return false;
+      }
+      if (afterCr) {
+        // The previous line ended with a '\r' at the end of the last window.
+        afterCr = false;
+        if (window.get(pos) == '\n') {
+          pos++;
+          continue;
+        }
+      }
+      int start = pos;
+      int end = findLineEnd(start);
+      while (end == window.limit() && windowStart + end < endOffset) {
+        // The line continues past the window. remap() throws if it does not fit in one.
+        remap(start);
+        start = 0;
+        end = findLineEnd(start);
+      }
+      lineNumber++;
+      lineBegin = start;
+      pos = skipLineTerminator(end);
+
+      // Trim as String.trim() does.
+      while (start < end && (window.get(start) & 0xff) <= ' ') start++;
+      while (end > start && (window.get(end - 1) & 0xff) <= ' ') end--;
+      if (start == end || window.get(start) == '#') continue;
+      if (end - start >= 2 && window.get(start) == '/' && window.get(start + 1) == '/') continue;
+
+      lineStart = start;
+      lineEnd = end;
+      colon = -1;
+      // McfParser special-cases the colons in "http:" and "https:" prefixes.
+      if (!startsWith("http")) {
+        for (int i = start; i < end; i++) {
+          if (window.get(i) == ':') {
+            // A line starting with a colon is malformed.
+            colon = i > start ? i : -1;
+            break;
+          }
+        }
+      }
+      return true;
+    }
+  }
+
+  // The line number of the current line, or after the end of file, the number of lines.
+  long lineNumber() {
+    return lineNumber;
+  }
+
+  // File offset of the start of the current line.
+  long lineOffset() {
+    return windowStart + lineBegin;
+  }
+
+  // The current line, trimmed.
+  String line() {
+    return decode(lineStart, lineEnd);
+  }
+
+  // The trimmed text before the first colon on the current line, or null if the line does not
+  // have the simple "<lhs>: <rhs>" form.
+  String lhs() {
+    if (colon < 0) return null;
+    int end = colon;
+    while (end > lineStart && (window.get(end - 1) & 0xff) <= ' ') end--;
+    return decode(lineStart, end);
+  }
+
+  // The trimmed text after the first colon on the current line. Only valid if lhs() is not null.
+  String rhs() {
+    int start = colon + 1;
+    while (start < lineEnd && (window.get(start) & 0xff) <= ' ') start++;
+    return decode(start, lineEnd);
+  }
+
+  private boolean startsWith(String prefix) {
+    if (lineEnd - lineStart < prefix.length()) return false;
+    for (int i = 0; i < prefix.length(); i++) {
+      if (window.get(lineStart + i) != prefix.charAt(i)) return false;
+    }
+    return true;
+  }
+
+  private int findLineEnd(int from) {
+    int limit = window.limit();
+    for (int i = from; i < limit; i++) {
+      byte b = window.get(i);
+      if (b == '\n' || b == '\r') return i;
+    }
+    return limit;
+  }
+
+  private int skipLineTerminator(int end) {
+    if (end >= window.limit()) return end;
+    if (window.get(end) == '\r') {
+      if (end + 1 == window.limit()) {
+        afterCr = true;
+      } else if (window.get(end + 1) == '\n') {
+        return end + 2;
+      }
+    }
+    return end + 1;
+  }
+
+  // Maps the next window starting at |offset| (relative to the current window). Returns false if
+  // there is nothing left to map. Throws if a line does not fit in a window.
+  private boolean remap(int offset) {
+    long newStart = windowStart + offset;
+    if (newStart >= endOffset) return false;
+    if (offset == 0) {
+      throw new UncheckedIOException(
+          new IOException("Line longer than " + maxWindowBytes + " bytes in " + file));
+    }
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      window =
+          channel.map(
+              FileChannel.MapMode.READ_ONLY,
+              newStart,
+              Math.min(endOffset - newStart, maxWindowBytes));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    windowStart = newStart;
+    pos -= offset;
+    return true;
+  }
+
+  private String decode(int start, int end) {
+    int length = end - start;
+    if (length > scratch.length) {
+      scratch = new byte[Math.max(length, scratch.length * 2)];
+    }
+    window.get(start, scratch, 0, length);
+    return new String(scratch, 0, length, StandardCharsets.UTF_8);
+  }
+}
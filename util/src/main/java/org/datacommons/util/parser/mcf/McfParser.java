@@ -16,12 +16,15 @@ package org.datacommons.util;
 
 import static org.datacommons.proto.Mcf.ValueType.RESOLVED_REF;
 
+import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
-import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
+import java.util.function.Supplier;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.datacommons.proto.Debug;
@@ -46,20 +49,100 @@ public class McfParser {
   private String prevEntity;
   private boolean finished = false;
   private String fileName;
+  // The lines come from either of these.
   private Iterator<String> lines;
+  private MappedMcfReader reader;
+  // The source of lines for a compressed file, closed at the end of the file.
+  private BufferedReader input;
+
+  // A byte range of an instance MCF file that begins at a "Node:" line and ends right before
+  // another one (or at the end of the file). A parser built over a chunk returns the same nodes,
+  // with the same line numbers, as a parser over the whole file would for those lines.
+  public static final class McfChunk {
+    public final long startOffset;
+    public final long endOffset;
+    // Number of lines that precede this chunk.
+    public final long startLineNumber;
+
+    McfChunk(long startOffset, long endOffset, long startLineNumber) {
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+      this.startLineNumber = startLineNumber;
+    }
+  }
 
   // Create an McfParser instance based on type and a bool indicating whether the MCF is resolved
   // (DCIDs assigned).
   public static McfParser init(
       Mcf.McfType type, String fileName, boolean isResolved, LogWrapper logCtx) throws IOException {
+    return init(type, fileName, isResolved, logCtx, null);
+  }
+
+  // Create an McfParser instance over a single chunk (from splitIntoChunks()) of the file. If chunk
+  // is null, the whole file is parsed.
+  public static McfParser init(
+      Mcf.McfType type, String fileName, boolean isResolved, LogWrapper logCtx, McfChunk chunk)
+      throws IOException {
     McfParser parser = init(type, isResolved);
     parser.logCtx = logCtx;
-    parser.lines =
-        Files.lines(FileSystems.getDefault().getPath(fileName), StandardCharsets.UTF_8).iterator();
+    if (CompressedInput.isCompressed(fileName)) {
+      if (chunk != null) {
+        throw new IllegalArgumentException(
+            "Compressed files cannot be read in chunks: " + fileName);
+      }
+      // Compressed files are decompressed as they are read, rather than mapped.
+      parser.input =
+          new BufferedReader(
+              new InputStreamReader(
+                  CompressedInput.open(Path.of(fileName)), StandardCharsets.UTF_8));
+      parser.lines = parser.input.lines().iterator();
+    } else {
+      parser.reader =
+          chunk == null
+              ? new MappedMcfReader(Path.of(fileName))
+              : new MappedMcfReader(
+                  Path.of(fileName), chunk.startOffset, chunk.endOffset, chunk.startLineNumber);
+    }
     parser.fileName = Path.of(fileName).getFileName().toString();
     return parser;
   }
 
+  // Splits an instance MCF file into at most numChunks chunks of roughly equal size, with every
+  // boundary at the start of a node. This takes a sequential scan of the lines, but one that is
+  // cheap relative to parsing them.
+  //
+  // Only a well-formed "Node:" line right after a property line (skipping blank and comment
+  // lines) is used as a boundary, since a parser treats a malformed "Node:" line, or one after a
+  // node without properties, differently at the start of its input.
+  public static List<McfChunk> splitIntoChunks(String mcfFile, int numChunks) throws IOException {
+    List<McfChunk> chunks = new ArrayList<>();
+    MappedMcfReader reader = new MappedMcfReader(Path.of(mcfFile));
+    long fileSize = Files.size(Path.of(mcfFile));
+    long chunkStart = 0;
+    long chunkStartLine = 0;
+    for (int i = 1; i < numChunks; i++) {
+      long target = fileSize * i / numChunks;
+      // Whether the previous line is known to be a property line.
+      boolean prevIsProperty = false;
+      boolean found = false;
+      while (!found && reader.next()) {
+        if (reader.lineOffset() < target) continue;
+        String lhs = reader.lhs();
+        boolean isNode = Vocabulary.NODE.equals(lhs);
+        found = isNode && prevIsProperty && isWellFormedNodeName(reader.rhs());
+        prevIsProperty = lhs != null && !isNode;
+      }
+      if (!found) break;
+      if (reader.lineOffset() > chunkStart) {
+        chunks.add(new McfChunk(chunkStart, reader.lineOffset(), chunkStartLine));
+        chunkStart = reader.lineOffset();
+        chunkStartLine = reader.lineNumber() - 1;
+      }
+    }
+    chunks.add(new McfChunk(chunkStart, fileSize, chunkStartLine));
+    return chunks;
+  }
+
   // Parse a string with instance nodes in MCF format into the McfGraph proto.
   public static McfGraph parseInstanceMcfString(
       String mcfString, boolean isResolved, LogWrapper logCtx) {
@@ -72,6 +155,17 @@ public class McfParser {
     return parseMcfFile(fileName, Mcf.McfType.INSTANCE_MCF, isResolved, logCtx);
   }
 
+  // Like parseInstanceMcfFile(), but maps the file in windows of up to maxWindowBytes.
+  static McfGraph parseInstanceMcfFile(
+      String fileName, boolean isResolved, LogWrapper logCtx, long maxWindowBytes)
+      throws IOException {
+    McfParser parser = init(Mcf.McfType.INSTANCE_MCF, isResolved);
+    parser.logCtx = logCtx;
+    parser.reader = new MappedMcfReader(Path.of(fileName), 0, -1, 0, maxWindowBytes);
+    parser.fileName = Path.of(fileName).getFileName().toString();
+    return parser.parseLines();
+  }
+
   // Parse a string with template nodes in MCF format into the McfGraph proto.
   public static McfGraph parseTemplateMcfString(String mcfString, LogWrapper logCtx) {
     return parseMcfString(mcfString, Mcf.McfType.TEMPLATE_MCF, false, logCtx);
@@ -85,27 +179,55 @@ public class McfParser {
 
   public McfGraph parseNextNode() {
     if (finished) return null;
-    while (lines.hasNext()) {
-      String line = lines.next();
-      lineNum++;
-      parseLine(line);
+    while (parseNextLine()) {
       McfGraph g = extractNode();
       if (g != null) {
-        return McfUtil.mergeGraphs(Collections.singletonList(g));
+        return dedupValues(g);
       }
     }
     // End of file.
     McfGraph g = finish();
     if (g == null) return null;
-    return McfUtil.mergeGraphs(Collections.singletonList(g));
+    return dedupValues(g);
   }
 
-  // Parse a line of MCF file.
-  private void parseLine(String line) throws AssertionError {
-    if (finished) {
-      throw new AssertionError("Calling after finish()");
+  // Parses the next line, returning false at the end of the input.
+  private boolean parseNextLine() {
+    if (reader == null) {
+      if (!lines.hasNext()) {
+        closeInput();
+        return false;
+      }
+      lineNum++;
+      parseLine(lines.next());
+      return true;
+    }
+    // Blank and comment lines are skipped by the reader.
+    boolean hasNext = reader.next();
+    lineNum = reader.lineNumber();
+    if (!hasNext) return false;
+    String lhs = reader.lhs();
+    if (lhs == null) {
+      parseLine(reader.line());
+    } else {
+      parseStatement(lhs, reader.rhs(), reader::line);
+    }
+    return true;
+  }
+
+  private void closeInput() {
+    if (input == null) return;
+    try {
+      input.close();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
     }
-    line = line.trim();
+    input = null;
+  }
+
+  // Parse a line of MCF file.
+  private void parseLine(String untrimmedLine) throws AssertionError {
+    String line = untrimmedLine.trim();
 
     // Skip empty lines and comments.
     if (line.isEmpty() || line.startsWith("//") || line.startsWith("#")) {
@@ -129,6 +251,14 @@ public class McfParser {
 
     String lhs = line.substring(0, colon).trim();
     String rhs = line.substring(colon + 1).trim();
+    parseStatement(lhs, rhs, () -> line);
+  }
+
+  // Parse a "<lhs>: <rhs>" line of MCF file. |line| is only used in error messages.
+  private void parseStatement(String lhs, String rhs, Supplier<String> line) {
+    if (finished) {
+      throw new AssertionError("Calling after finish()");
+    }
     if (lhs.equals(Vocabulary.NODE)) {
       if (rhs.indexOf(',') != -1) {
         logError(
@@ -169,7 +299,7 @@ public class McfParser {
       if (curEntity.isEmpty()) {
         logError(
             "MCF_UnexpectedProperty",
-            "Property found without a preceding line with 'Node' :: line: '" + line + "'");
+            "Property found without a preceding line with 'Node' :: line: '" + line.get() + "'");
         return;
       }
       parseValues(lhs, rhs);
@@ -178,6 +308,11 @@ public class McfParser {
     }
   }
 
+  // Whether a "Node:" line with this value starts a new node (in instance MCF).
+  private static boolean isWellFormedNodeName(String rhs) {
+    return rhs.indexOf(',') == -1 && !rhs.startsWith("\"");
+  }
+
   private void addNodeLocation() {
     assert !curEntity.isEmpty();
     assert curEntityLineIdx == 0;
@@ -192,6 +327,43 @@ public class McfParser {
     graph.putNodes(curEntity, pvs.build());
   }
 
+  // Returns |g| after dropping the nodes without properties and duplicate property values, like
+  // McfUtil.mergeGraphs() does. Values are duplicates only if they are equal as TypedValues, as in
+  // mergeGraphs(). Unlike mergeGraphs(), which leaves them in HashSet order, the values stay in the
+  // order they were first seen, and the other fields of a node are kept as they are (the parser
+  // only sets the locations, which mergeGraphs() also keeps).
+  private static McfGraph dedupValues(McfGraph g) {
+    if (!hasDuplicates(g)) return g;
+    McfGraph.Builder result = McfGraph.newBuilder().setType(g.getType());
+    for (Map.Entry<String, McfGraph.PropertyValues> node : g.getNodesMap().entrySet()) {
+      if (node.getValue().getPvsCount() == 0) continue;
+      McfGraph.PropertyValues.Builder pvs = node.getValue().toBuilder();
+      for (Map.Entry<String, McfGraph.Values> pv : node.getValue().getPvsMap().entrySet()) {
+        if (pv.getValue().getTypedValuesCount() > 1) {
+          Set<McfGraph.TypedValue> tvs = new LinkedHashSet<>(pv.getValue().getTypedValuesList());
+          pvs.putPvs(pv.getKey(), McfGraph.Values.newBuilder().addAllTypedValues(tvs).build());
+        }
+      }
+      result.putNodes(node.getKey(), pvs.build());
+    }
+    return result.build();
+  }
+
+  private static boolean hasDuplicates(McfGraph g) {
+    for (McfGraph.PropertyValues node : g.getNodesMap().values()) {
+      if (node.getPvsCount() == 0) return true;
+      for (McfGraph.Values vals : node.getPvsMap().values()) {
+        List<McfGraph.TypedValue> tvs = vals.getTypedValuesList();
+        for (int i = 1; i < tvs.size(); i++) {
+          for (int j = 0; j < i; j++) {
+            if (tvs.get(i).equals(tvs.get(j))) return true;
+          }
+        }
+      }
+    }
+    return false;
+  }
+
   private static McfParser init(Mcf.McfType type, boolean isResolved) {
     McfParser parser = new McfParser();
     parser.graph = McfGraph.newBuilder();
@@ -275,6 +447,7 @@ public class McfParser {
 
   private void parseValues(String prop, String values) {
     if (prop.isEmpty() || values.isEmpty()) return;
+    prop = StringPool.internShared(prop);
 
     McfGraph.PropertyValues.Builder pvs =
         graph
@@ -366,7 +539,7 @@ public class McfParser {
       val = StringUtil.stripEnclosingQuotePair(val);
 
       if (!expectRef) {
-        tval.setValue(val);
+        tval.setValue(StringPool.internShared(val));
         tval.setType(Mcf.ValueType.TEXT);
         return tval;
       }
@@ -390,7 +563,7 @@ public class McfParser {
       // the user failed to encapsulate in quotes (e.g., url: http://goo.gl).
       if (Vocabulary.isGlobalReference(val)) {
         // Strip the prefix and set the value.
-        tval.setValue(val.substring(colon + 1));
+        tval.setValue(StringPool.internShared(val.substring(colon + 1)));
         tval.setType(RESOLVED_REF);
         return tval;
       } else if (Vocabulary.isInternalReference(val)) {
@@ -414,14 +587,14 @@ public class McfParser {
       // NOTE: We cannot tell apart if they failed to add an internal reference
       // prefix ("l:"), but we err on the side of user being careful about adding
       // local refs and accept the MCF without failing.
-      tval.setValue(val);
+      tval.setValue(StringPool.internShared(val));
       tval.setType(RESOLVED_REF);
       return tval;
     }
 
     if (StringUtil.isNumber(val) || StringUtil.isBool(val)) {
       // This parses to a number or bool.
-      tval.setValue(val);
+      tval.setValue(StringPool.internShared(val));
       tval.setType(Mcf.ValueType.NUMBER);
       return tval;
     }
@@ -431,7 +604,7 @@ public class McfParser {
     // NOTE: This could be an uncommon reference property that user forgot to add
     // a "dcid:" prefix for. We err on the side of accepting the value as a string
     // instead of failing.
-    tval.setValue(val);
+    tval.setValue(StringPool.internShared(val));
     tval.setType(Mcf.ValueType.TEXT);
     return tval;
   }
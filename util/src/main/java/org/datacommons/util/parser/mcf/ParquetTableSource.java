@@ -0,0 +1,229 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.parquet.column.page.PageReadStore;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.convert.GroupRecordConverter;
+import org.apache.parquet.hadoop.ParquetFileReader;
+import org.apache.parquet.hadoop.util.HadoopInputFile;
+import org.apache.parquet.io.ColumnIOFactory;
+import org.apache.parquet.io.MessageColumnIO;
+import org.apache.parquet.io.RecordReader;
+import org.apache.parquet.schema.LogicalTypeAnnotation;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.PrimitiveType;
+import org.apache.parquet.schema.Type;
+
+// A TableSource over a Parquet file, with a column per top-level field of the schema.
+//
+// Integer, floating point and decimal cells are typed numbers, which TmcfCsvParser uses without
+// string parsing. Strings and other primitive values are text (dates as YYYY-MM-DD), and the
+// values of a repeated field are joined with the delimiter, so that they become separate values as
+// in a CSV cell. Cells of group (nested) fields are empty.
+public class ParquetTableSource implements TableSource {
+  private final ParquetFileReader reader;
+  private final MessageType schema;
+  private final MessageColumnIO columnIO;
+  private final Map<String, Integer> headerMap = new HashMap<>();
+  private final String delimiter;
+  // Numeric form of each column.
+  private final NumberKind[] numberKinds;
+  private final ParquetRow row = new ParquetRow();
+  private RecordReader<Group> recordReader;
+  private long rowsLeftInGroup = 0;
+
+  private enum NumberKind {
+    NONE,
+    INTEGER,
+    FLOATING_POINT,
+    DECIMAL
+  }
+
+  public ParquetTableSource(Path file, char delimiter) throws IOException {
+    reader =
+        ParquetFileReader.open(
+            HadoopInputFile.fromPath(
+                new org.apache.hadoop.fs.Path(file.toUri()), new Configuration()));
+    schema = reader.getFooter().getFileMetaData().getSchema();
+    columnIO = new ColumnIOFactory().getColumnIO(schema);
+    this.delimiter = String.valueOf(delimiter);
+    List<Type> fields = schema.getFields();
+    numberKinds = new NumberKind[fields.size()];
+    for (int i = 0; i < fields.size(); i++) {
+      headerMap.put(fields.get(i).getName(), i);
+      numberKinds[i] = numberKind(fields.get(i));
+    }
+  }
+
+  private static NumberKind numberKind(Type field) {
+    if (!field.isPrimitive()) return NumberKind.NONE;
+    PrimitiveType type = field.asPrimitiveType();
+    LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+    if (annotation instanceof LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) {
+      return NumberKind.DECIMAL;
+    }
+    switch (type.getPrimitiveTypeName()) {
+      case INT32:
+      case INT64:
+        return annotation == null
+                || annotation instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation
+            ? NumberKind.INTEGER
+            : NumberKind.NONE;
+      case FLOAT:
+      case DOUBLE:
+        return NumberKind.FLOATING_POINT;
+      default:
+        return NumberKind.NONE;
+    }
+  }
+
+  @Override
+  public Map<String, Integer> getHeaderMap() {
+    return headerMap;
+  }
+
+  @Override
+  public Row nextRow() throws IOException {
+    while (rowsLeftInGroup == 0) {
+      PageReadStore rowGroup = reader.readNextRowGroup();
+      if (rowGroup == null) {
+        return null;
+      }
+      rowsLeftInGroup = rowGroup.getRowCount();
+      recordReader = columnIO.getRecordReader(rowGroup, new GroupRecordConverter(schema));
+    }
+    rowsLeftInGroup--;
+    row.group = recordReader.read();
+    return row;
+  }
+
+  @Override
+  public void close() throws IOException {
+    reader.close();
+  }
+
+  private final class ParquetRow implements Row {
+    private Group group;
+
+    @Override
+    public int size() {
+      return numberKinds.length;
+    }
+
+    @Override
+    public boolean isConsistent() {
+      return true;
+    }
+
+    @Override
+    public String get(int index) {
+      int count = group.getFieldRepetitionCount(index);
+      if (count == 0 || !schema.getType(index).isPrimitive()) {
+        return "";
+      }
+      if (count == 1) {
+        return getValue(index, 0);
+      }
+      StringBuilder values = new StringBuilder();
+      for (int i = 0; i < count; i++) {
+        if (i > 0) values.append(delimiter);
+        values.append(getValue(index, i));
+      }
+      return values.toString();
+    }
+
+    @Override
+    public boolean isNumber(int index) {
+      if (numberKinds[index] == NumberKind.NONE || group.getFieldRepetitionCount(index) != 1) {
+        return false;
+      }
+      // NaN and infinities are left to string parsing.
+      return numberKinds[index] != NumberKind.FLOATING_POINT
+          || Double.isFinite(floatingPoint(schema.getType(index).asPrimitiveType(), index, 0));
+    }
+
+    private String getValue(int index, int i) {
+      PrimitiveType type = schema.getType(index).asPrimitiveType();
+      LogicalTypeAnnotation annotation = type.getLogicalTypeAnnotation();
+      switch (numberKinds[index]) {
+        case INTEGER:
+          boolean unsigned =
+              annotation instanceof LogicalTypeAnnotation.IntLogicalTypeAnnotation
+                  && !((LogicalTypeAnnotation.IntLogicalTypeAnnotation) annotation).isSigned();
+          if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.INT32) {
+            int intValue = group.getInteger(index, i);
+            return unsigned ? Integer.toUnsignedString(intValue) : Integer.toString(intValue);
+          }
+          long longValue = group.getLong(index, i);
+          return unsigned ? Long.toUnsignedString(longValue) : Long.toString(longValue);
+        case FLOATING_POINT:
+          double value = floatingPoint(type, index, i);
+          if (!Double.isFinite(value)) return Double.toString(value);
+          // Plain notation, as numbers are usually written in CSVs (e.g., 20000000 for 2.0E7).
+          return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+        case DECIMAL:
+          return decimal(type, index, i).toPlainString();
+        default:
+          break;
+      }
+      if (annotation instanceof LogicalTypeAnnotation.DateLogicalTypeAnnotation) {
+        return LocalDate.ofEpochDay(group.getInteger(index, i)).toString();
+      }
+      if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.BINARY
+          || type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.FIXED_LEN_BYTE_ARRAY) {
+        return group.getString(index, i);
+      }
+      return group.getValueToString(index, i);
+    }
+
+    private double floatingPoint(PrimitiveType type, int index, int i) {
+      if (type.getPrimitiveTypeName() == PrimitiveType.PrimitiveTypeName.FLOAT) {
+        // Go through the shortest decimal form of the float, so that e.g. 0.1f is not widened to
+        // 0.10000000149011612.
+        return Double.parseDouble(Float.toString(group.getFloat(index, i)));
+      }
+      return group.getDouble(index, i);
+    }
+
+    private BigDecimal decimal(PrimitiveType type, int index, int i) {
+      int scale =
+          ((LogicalTypeAnnotation.DecimalLogicalTypeAnnotation) type.getLogicalTypeAnnotation())
+              .getScale();
+      switch (type.getPrimitiveTypeName()) {
+        case INT32:
+          return BigDecimal.valueOf(group.getInteger(index, i), scale);
+        case INT64:
+          return BigDecimal.valueOf(group.getLong(index, i), scale);
+        default:
+          return new BigDecimal(new BigInteger(group.getBinary(index, i).getBytes()), scale);
+      }
+    }
+
+    @Override
+    public String toString() {
+      return group.toString();
+    }
+  }
+}
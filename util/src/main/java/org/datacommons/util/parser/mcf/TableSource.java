@@ -0,0 +1,44 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+// The rows of a table (a CSV file, a Parquet file, etc.) that TmcfCsvParser converts to instance
+// MCF, with the TMCF "C:" columns referring to the table's columns.
+public interface TableSource extends Closeable {
+  // A row of the table. The object returned by nextRow() may be reused for the next row.
+  interface Row {
+    int size();
+
+    // False if the row has a different number of columns than the header.
+    boolean isConsistent();
+
+    // The cell in the column at |index|, as text. Empty if the cell has no value.
+    String get(int index);
+
+    // True if the cell at |index| holds a typed numeric value, in which case get() returns it in
+    // a form that parses as a number, and it does not need to go through string parsing.
+    boolean isNumber(int index);
+  }
+
+  // Map from column name to index, or null if the header could not be read.
+  Map<String, Integer> getHeaderMap();
+
+  // Returns the next row, or null at the end of the table.
+  Row nextRow() throws IOException;
+}
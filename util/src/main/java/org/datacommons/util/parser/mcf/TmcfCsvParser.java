@@ -14,26 +14,35 @@
 
 package org.datacommons.util;
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
-import org.apache.commons.csv.CSVFormat;
-import org.apache.commons.csv.CSVParser;
-import org.apache.commons.csv.CSVRecord;
 import org.apache.commons.io.input.BOMInputStream;
+import org.apache.commons.io.input.BoundedInputStream;
 import org.datacommons.proto.Debug;
 import org.datacommons.proto.LogLocation;
 import org.datacommons.proto.Mcf;
 
-// Converts a Template MCF file and an associated CSV into instance MCF.
+// Converts a Template MCF file and an associated CSV (or other table, see TableSource) into
+// instance MCF.
 //
 // NOTE: Sets the location file in LogWrapper (at different times to point to TMCF and CSV).
 // TODO: Add more column info in generated MCF, even when values are missing.
@@ -47,136 +56,501 @@ public class TmcfCsvParser {
   // the line number for the last line that does not end in a newline.
   private long currentLineNumber;
   private String csvFileName;
-  private CSVParser csvParser;
+  // Null once all the rows have been read.
+  private TableSource table;
   private LogWrapper logCtx;
   private HashMap<String, Integer> cleanedColumnMap;
+  private List<EntityPlan> plan;
+  private int numDcidEntities;
+  private RowProcessor rowProcessor;
+
+  // A byte range of a CSV file that begins and ends on record boundaries. A parser built over a
+  // chunk sees the header of the file followed by just the rows in the range, and reports the
+  // same line numbers as a parser over the whole file would.
+  public static final class CsvChunk {
+    // Length of the header record (including the BOM and the trailing newline).
+    public final long headerLength;
+    public final long startOffset;
+    public final long endOffset;
+    // Number of records (including the header) that precede this chunk.
+    public final long startLineNumber;
+
+    CsvChunk(long headerLength, long startOffset, long endOffset, long startLineNumber) {
+      this.headerLength = headerLength;
+      this.startOffset = startOffset;
+      this.endOffset = endOffset;
+      this.startLineNumber = startLineNumber;
+    }
+  }
 
   // Build a parser given a TMCF file, CSV file, CSV delimiter and a log context.
   public static TmcfCsvParser init(
       String tmcfFile, String csvFile, char delimiter, LogWrapper logCtx)
       throws IOException, InterruptedException {
-    // Strip out any BOM characters (from old Excel CSVs)
-    Reader reader =
-        new InputStreamReader(new BOMInputStream(Files.newInputStream(Paths.get(csvFile))));
+    return init(tmcfFile, csvFile, delimiter, logCtx, null);
+  }
+
+  // Build a parser over a single chunk (from splitIntoChunks()) of the CSV file. If chunk is
+  // null, the whole file is parsed. Parquet files (see isParquet()) are read directly, and
+  // compressed files (see CompressedInput) are decompressed as they are read; neither can be split
+  // into chunks.
+  public static TmcfCsvParser init(
+      String tmcfFile, String csvFile, char delimiter, LogWrapper logCtx, CsvChunk chunk)
+      throws IOException, InterruptedException {
+    TableSource table;
+    if (isParquet(csvFile)) {
+      if (chunk != null) {
+        throw new IllegalArgumentException("Parquet files cannot be read in chunks: " + csvFile);
+      }
+      table = new ParquetTableSource(Paths.get(csvFile), delimiter);
+    } else {
+      table = new CsvTableSource(newCsvReader(csvFile, chunk), delimiter);
+    }
 
     TmcfCsvParser tmcfCsvParser = new TmcfCsvParser();
-    tmcfCsvParser.tmcf = McfParser.parseTemplateMcfFile(tmcfFile, logCtx);
     tmcfCsvParser.logCtx = logCtx;
-    tmcfCsvParser.currentLineNumber = 1;
-    tmcfCsvParser.csvParser =
-        CSVParser.parse(
-            reader,
-            CSVFormat.DEFAULT
-                .withDelimiter(delimiter)
-                .withEscape('\\')
-                .withHeader()
-                .withAllowMissingColumnNames()
-                .withSkipHeaderRecord()
-                .withIgnoreEmptyLines()
-                .withIgnoreSurroundingSpaces());
+    tmcfCsvParser.currentLineNumber = chunk == null ? 1 : chunk.startLineNumber;
+    tmcfCsvParser.table = table;
     tmcfCsvParser.delimiter = delimiter;
-
     tmcfCsvParser.csvFileName = Path.of(csvFile).getFileName().toString();
-    // Clean and keep a copy of the header map.
-    if (tmcfCsvParser.csvParser.getHeaderMap() == null) {
-      tmcfCsvParser.logCtx.addEntry(
-          Debug.Log.Level.LEVEL_FATAL,
-          "CSV_HeaderFailure",
-          "Unable to parse header from CSV file :: file: '" + csvFile + "'",
-          tmcfCsvParser.csvFileName,
-          0);
 
-      return null;
+    CompiledTemplate template = compileTemplate(tmcfFile, table.getHeaderMap());
+    if (template == null) {
+      // The TMCF (or the header) has problems, so go through the steps again to report them.
+      tmcfCsvParser.tmcf = McfParser.parseTemplateMcfFile(tmcfFile, logCtx);
+      if (table.getHeaderMap() == null) {
+        tmcfCsvParser.logCtx.addEntry(
+            Debug.Log.Level.LEVEL_FATAL,
+            "CSV_HeaderFailure",
+            "Unable to parse header from CSV file :: file: '" + csvFile + "'",
+            tmcfCsvParser.csvFileName,
+            0);
+
+        return null;
+      }
+      // Check TMCF.
+      boolean success =
+          McfChecker.checkTemplate(tmcfCsvParser.tmcf, table.getHeaderMap().keySet(), null, logCtx);
+      if (!success) {
+        var fileName = Path.of(tmcfFile).getFileName().toString();
+        tmcfCsvParser.logCtx.addEntry(
+            Debug.Log.Level.LEVEL_FATAL,
+            "CSV_TmcfCheckFailure",
+            "Found fatal sanity error in TMCF; check Sanity_ counter messages :: TMCF-file: "
+                + fileName,
+            fileName,
+            0);
+        return null;
+      }
+      template = new CompiledTemplate(tmcfCsvParser.tmcf, table.getHeaderMap());
     }
-    // Check TMCF.
-    boolean success =
-        McfChecker.checkTemplate(
-            tmcfCsvParser.tmcf, tmcfCsvParser.csvParser.getHeaderMap().keySet(), null, logCtx);
-    if (!success) {
-      var fileName = Path.of(tmcfFile).getFileName().toString();
-      tmcfCsvParser.logCtx.addEntry(
-          Debug.Log.Level.LEVEL_FATAL,
-          "CSV_TmcfCheckFailure",
-          "Found fatal sanity error in TMCF; check Sanity_ counter messages :: TMCF-file: "
-              + fileName,
-          fileName,
-          0);
+
+    tmcfCsvParser.tmcf = template.tmcf;
+    tmcfCsvParser.cleanedColumnMap = template.cleanedColumnMap;
+    tmcfCsvParser.plan = template.plan;
+    tmcfCsvParser.numDcidEntities = template.numDcidEntities;
+    tmcfCsvParser.rowProcessor = tmcfCsvParser.new RowProcessor();
+    return tmcfCsvParser;
+  }
+
+  // A TMCF that has been parsed, checked and compiled for a table header. It is not modified after
+  // construction, so it can be shared by parsers on different threads.
+  static final class CompiledTemplate {
+    final Mcf.McfGraph tmcf;
+    final HashMap<String, Integer> cleanedColumnMap = new HashMap<>();
+    List<EntityPlan> plan;
+    int numDcidEntities;
+
+    CompiledTemplate(Mcf.McfGraph tmcf, Map<String, Integer> headerMap) {
+      this.tmcf = tmcf;
+      // Clean and keep a copy of the header map.
+      for (Map.Entry<String, Integer> e : headerMap.entrySet()) {
+        cleanedColumnMap.put(e.getKey().strip(), e.getValue());
+      }
+      compilePlan(this);
+    }
+  }
+
+  // Imports often have many tables (or chunks of tables) with the same TMCF and header, so the
+  // templates are cached by the TMCF file (and its size and modification time) and the header,
+  // and each TMCF is parsed and checked once per header rather than once per table. The least
+  // recently used template is evicted past MAX_CACHED_TEMPLATES.
+  static final int MAX_CACHED_TEMPLATES = 64;
+  private static final Map<List<Object>, CompiledTemplate> templateCache =
+      Collections.synchronizedMap(
+          new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, CompiledTemplate> eldest) {
+              return size() > MAX_CACHED_TEMPLATES;
+            }
+          });
+
+  // Returns the compiled template for the TMCF file and header, or null if the header is missing
+  // or the TMCF does not parse and check without any log entries (in which case the caller has
+  // to go through the steps with its log to report them).
+  static CompiledTemplate compileTemplate(String tmcfFile, Map<String, Integer> headerMap)
+      throws IOException, InterruptedException {
+    if (headerMap == null) return null;
+    Path tmcfPath = Path.of(tmcfFile).toAbsolutePath();
+    List<Object> key =
+        List.of(
+            tmcfPath.toString(),
+            Files.size(tmcfPath),
+            Files.getLastModifiedTime(tmcfPath),
+            new HashMap<>(headerMap));
+    CompiledTemplate template = templateCache.get(key);
+    if (template != null) return template;
+
+    LogWrapper checkLog = new LogWrapper(Debug.Log.newBuilder());
+    Mcf.McfGraph tmcf = McfParser.parseTemplateMcfFile(tmcfFile, checkLog);
+    McfChecker.checkTemplate(tmcf, headerMap.keySet(), null, checkLog);
+    Debug.Log log = checkLog.getLog();
+    if (log.getEntriesCount() > 0 || log.getLevelSummaryCount() > 0) {
       return null;
     }
+    template = new CompiledTemplate(tmcf, headerMap);
+    templateCache.putIfAbsent(key, template);
+    return template;
+  }
 
-    tmcfCsvParser.cleanedColumnMap = new HashMap<>();
-    for (Map.Entry<String, Integer> e : tmcfCsvParser.csvParser.getHeaderMap().entrySet()) {
-      tmcfCsvParser.cleanedColumnMap.put(e.getKey().strip(), e.getValue());
+  // Whether a table file is read as Parquet (rather than as CSV).
+  public static boolean isParquet(String file) {
+    return file.toLowerCase().endsWith(".parquet");
+  }
+
+  private static Reader newCsvReader(String csvFile, CsvChunk chunk) throws IOException {
+    InputStream csvStream;
+    if (chunk == null) {
+      csvStream = CompressedInput.open(Paths.get(csvFile));
+    } else {
+      byte[] header;
+      try (InputStream headerStream = Files.newInputStream(Paths.get(csvFile))) {
+        header = headerStream.readNBytes((int) chunk.headerLength);
+      }
+      FileChannel channel = FileChannel.open(Paths.get(csvFile));
+      channel.position(chunk.startOffset);
+      csvStream =
+          new SequenceInputStream(
+              new ByteArrayInputStream(header),
+              new BoundedInputStream(
+                  Channels.newInputStream(channel), chunk.endOffset - chunk.startOffset));
+    }
+    // Strip out any BOM characters (from old Excel CSVs)
+    return new InputStreamReader(new BOMInputStream(csvStream));
+  }
+
+  // Splits the data rows of a CSV file into at most numChunks chunks of roughly equal size, with
+  // every boundary on a record boundary. Finding the boundaries requires a sequential scan of the
+  // file (since quoted values may span lines), but that is cheap relative to parsing the rows.
+  public static List<CsvChunk> splitIntoChunks(String csvFile, char delimiter, int numChunks)
+      throws IOException {
+    List<CsvChunk> chunks = new ArrayList<>();
+    long fileSize = Files.size(Paths.get(csvFile));
+    try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(csvFile)))) {
+      CsvRecordScanner scanner = new CsvRecordScanner(in, delimiter);
+      if (!scanner.skipRecord()) return chunks;
+      long headerLength = scanner.offset;
+      long chunkStart = headerLength;
+      long chunkStartLine = scanner.numRecords;
+      for (int i = 1; i < numChunks; i++) {
+        long target = headerLength + (fileSize - headerLength) * i / numChunks;
+        while (scanner.offset < target && scanner.skipRecord()) {}
+        if (scanner.offset >= fileSize) break;
+        if (scanner.offset > chunkStart) {
+          chunks.add(new CsvChunk(headerLength, chunkStart, scanner.offset, chunkStartLine));
+          chunkStart = scanner.offset;
+          chunkStartLine = scanner.numRecords;
+        }
+      }
+      chunks.add(new CsvChunk(headerLength, chunkStart, fileSize, chunkStartLine));
+    }
+    return chunks;
+  }
+
+  // Finds record boundaries in CSV bytes, honoring quoted values (which may have newlines) and
+  // backslash escapes the same way as the CSVFormat in init(). Empty lines are not counted as
+  // records, since the parser ignores them.
+  private static final class CsvRecordScanner {
+    private final InputStream in;
+    private final char delimiter;
+    private int pushedBack = -1;
+    long offset = 0;
+    long numRecords = 0;
+
+    CsvRecordScanner(InputStream in, char delimiter) {
+      this.in = in;
+      this.delimiter = delimiter;
+    }
+
+    // Skips past the next record. Returns false if there was nothing left to read.
+    boolean skipRecord() throws IOException {
+      boolean inQuotes = false;
+      boolean atFieldStart = true;
+      boolean empty = true;
+      long startOffset = offset;
+      int b;
+      while ((b = read()) != -1) {
+        if (inQuotes) {
+          if (b == '\\') {
+            read();
+          } else if (b == '"') {
+            // A doubled quote is a literal quote, anything else closes the value.
+            int next = read();
+            if (next != '"') {
+              inQuotes = false;
+              unread(next);
+            }
+          }
+          continue;
+        }
+        if (b == '\n') {
+          if (!empty) numRecords++;
+          return true;
+        }
+        if (b != '\r') empty = false;
+        if (b == '\\') {
+          read();
+          atFieldStart = false;
+        } else if (b == '"' && atFieldStart) {
+          inQuotes = true;
+          atFieldStart = false;
+        } else if (b == delimiter) {
+          atFieldStart = true;
+        } else if (b != ' ' && b != '\t' && b != '\r') {
+          atFieldStart = false;
+        }
+      }
+      if (!empty) numRecords++;
+      return offset > startOffset;
+    }
+
+    private int read() throws IOException {
+      int b;
+      if (pushedBack != -1) {
+        b = pushedBack;
+        pushedBack = -1;
+      } else {
+        b = in.read();
+      }
+      if (b != -1) offset++;
+      return b;
+    }
+
+    private void unread(int b) {
+      if (b == -1) return;
+      pushedBack = b;
+      offset--;
     }
-    return tmcfCsvParser;
   }
 
   // Parse the next row from the CSV. Returns null on EOF.
   public Mcf.McfGraph parseNextRow() throws IOException, InterruptedException {
-    if (!csvParser.iterator().hasNext()) {
+    TableSource.Row row = table == null ? null : table.nextRow();
+    if (row == null) {
+      if (table != null) {
+        table.close();
+        table = null;
+      }
       return null;
     }
-    RowProcessor processor = new RowProcessor();
+    String rowId = TEST_mode ? String.valueOf(getCurrentLineNumber()) : newUUID();
     currentLineNumber++;
-    processor.process(csvParser.iterator().next());
-    return processor.instanceMcf();
+    return rowProcessor.process(rowId, row);
   }
 
+  // The TMCF is compiled (see CompiledTemplate) into a plan for converting rows: schema terms are
+  // pre-parsed, columns are mapped to indexes, and values made up of only constants are built
+  // upfront. Malformed terms are left for RowProcessor to handle (and report) on every row, as
+  // they would be without the plan.
+  private static final class EntityPlan {
+    final String entity;
+    // Index into RowProcessor.entityDcids, or -1 if the entity does not map a dcid.
+    int dcidIndex = -1;
+    // Node name sans the row-id, or null if the entity is malformed.
+    String nodeNamePrefix;
+    int numPvs;
+    PropPlan dcid;
+    // In TMCF order, excluding functionalDeps.
+    final List<PropPlan> props = new ArrayList<>();
+
+    EntityPlan(String entity) {
+      this.entity = entity;
+    }
+  }
+
+  private static final class PropPlan {
+    String prop;
+    // Set if all the values are constants.
+    Mcf.McfGraph.Values constantValues;
+    final List<ValuePlan> values = new ArrayList<>();
+  }
+
+  private static final class ValuePlan {
+    enum Kind {
+      CONSTANT,
+      // Reference to an entity that maps a dcid.
+      DCID_REF,
+      // Reference to an entity without a dcid, becomes an internal reference.
+      LOCAL_REF,
+      COLUMN,
+      // Anything else, handled as a special case per row.
+      OTHER
+    }
+
+    Kind kind;
+    Mcf.McfGraph.TypedValue typedValue;
+    int dcidIndex;
+    String localRefPrefix;
+    String column;
+    int columnIndex;
+  }
+
+  private static void compilePlan(CompiledTemplate template) {
+    Map<String, Integer> dcidIndexes = new HashMap<>();
+    List<EntityPlan> plan = new ArrayList<>();
+    for (Map.Entry<String, Mcf.McfGraph.PropertyValues> tableEntity :
+        template.tmcf.getNodesMap().entrySet()) {
+      EntityPlan entity = new EntityPlan(tableEntity.getKey());
+      if (tableEntity.getValue().getPvsMap().containsKey(Vocabulary.DCID)) {
+        entity.dcidIndex = dcidIndexes.size();
+        dcidIndexes.put(entity.entity, entity.dcidIndex);
+      }
+      plan.add(entity);
+    }
+    template.plan = plan;
+    template.numDcidEntities = dcidIndexes.size();
+
+    for (EntityPlan entity : plan) {
+      Map<String, Mcf.McfGraph.Values> pvs =
+          template.tmcf.getNodesMap().get(entity.entity).getPvsMap();
+      entity.numPvs = pvs.size();
+      McfParser.SchemaTerm term = parseSchemaTermQuietly(entity.entity);
+      if (term != null && term.type == McfParser.SchemaTerm.Type.ENTITY) {
+        entity.nodeNamePrefix = term.table + "/" + term.value + "/";
+      }
+      for (Map.Entry<String, Mcf.McfGraph.Values> pv : pvs.entrySet()) {
+        if (pv.getKey().equals(Vocabulary.FUNCTIONAL_DEPS)) continue;
+        PropPlan prop =
+            compileProp(pv.getKey(), pv.getValue(), dcidIndexes, template.cleanedColumnMap);
+        if (prop.prop.equals(Vocabulary.DCID)) entity.dcid = prop;
+        entity.props.add(prop);
+      }
+    }
+  }
+
+  private static PropPlan compileProp(
+      String propName,
+      Mcf.McfGraph.Values templateValues,
+      Map<String, Integer> dcidIndexes,
+      Map<String, Integer> cleanedColumnMap) {
+    PropPlan prop = new PropPlan();
+    prop.prop = propName;
+    boolean allConstants = true;
+    for (Mcf.McfGraph.TypedValue typedValue : templateValues.getTypedValuesList()) {
+      ValuePlan value = new ValuePlan();
+      value.typedValue = typedValue;
+      value.kind = ValuePlan.Kind.OTHER;
+      if (typedValue.getType() == Mcf.ValueType.TABLE_ENTITY) {
+        McfParser.SchemaTerm term = parseSchemaTermQuietly(typedValue.getValue());
+        if (propName.equals(Vocabulary.DCID)) {
+          // Reported per row.
+        } else if (dcidIndexes.containsKey(typedValue.getValue())) {
+          value.kind = ValuePlan.Kind.DCID_REF;
+          value.dcidIndex = dcidIndexes.get(typedValue.getValue());
+        } else if (term != null && term.type == McfParser.SchemaTerm.Type.ENTITY) {
+          String nodeNamePrefix = term.table + "/" + term.value + "/";
+          if (!nodeNamePrefix.startsWith(Vocabulary.DCID_PREFIX)) {
+            value.kind = ValuePlan.Kind.LOCAL_REF;
+            value.localRefPrefix = Vocabulary.INTERNAL_REF_PREFIX + nodeNamePrefix;
+          }
+        }
+      } else if (typedValue.getType() == Mcf.ValueType.TABLE_COLUMN) {
+        McfParser.SchemaTerm term = parseSchemaTermQuietly(typedValue.getValue());
+        if (term != null
+            && term.type == McfParser.SchemaTerm.Type.COLUMN
+            && cleanedColumnMap.containsKey(term.value)) {
+          value.kind = ValuePlan.Kind.COLUMN;
+          value.column = term.value;
+          value.columnIndex = cleanedColumnMap.get(term.value);
+        }
+      } else {
+        value.kind = ValuePlan.Kind.CONSTANT;
+      }
+      allConstants &= value.kind == ValuePlan.Kind.CONSTANT;
+      prop.values.add(value);
+    }
+    if (allConstants) {
+      prop.constantValues = templateValues;
+    }
+    return prop;
+  }
+
+  // Returns null (without logging) for terms that McfParser.parseSchemaTerm() would fail on.
+  private static McfParser.SchemaTerm parseSchemaTermQuietly(String value) {
+    if ((value.startsWith(Vocabulary.ENTITY_PREFIX) || value.startsWith(Vocabulary.COLUMN_PREFIX))
+        && !value.contains(Vocabulary.TABLE_DELIMITER)) {
+      return null;
+    }
+    return McfParser.parseSchemaTerm(value, null);
+  }
+
+  // Evaluates the plan on a row. The callbacks and builders are reused across rows, so this is not
+  // thread-safe (and neither is the parser).
   class RowProcessor {
-    private Mcf.McfGraph.Builder instanceMcf;
-    // If there is a dcid prop, then this is a map from the entity name (Table->E1) to the dcid.
-    private HashMap<String, Mcf.McfGraph.TypedValue> entityToDcid;
-    private String currentNodeId;
-    private String currentProp;
+    // For entities that map a dcid, the dcid value in the current row.
+    private final Mcf.McfGraph.TypedValue[] entityDcids;
+    private final LogCb entityCb;
+    private final LogCb errCb;
+    private final LogCb warnCb;
+    private final StringUtil.SplitAndStripArg ssArg;
+    private final Mcf.McfGraph.Values.Builder instanceValues = Mcf.McfGraph.Values.newBuilder();
     private String rowId;
 
     public RowProcessor() {
-      instanceMcf = Mcf.McfGraph.newBuilder();
-      instanceMcf.setType(Mcf.McfType.INSTANCE_MCF);
-      entityToDcid = new HashMap<>();
-      rowId = TEST_mode ? String.valueOf(getCurrentLineNumber()) : newUUID();
-    }
-
-    public Mcf.McfGraph instanceMcf() {
-      return instanceMcf.build();
+      entityDcids = new Mcf.McfGraph.TypedValue[numDcidEntities];
+      entityCb = new LogCb(logCtx, Debug.Log.Level.LEVEL_ERROR, csvFileName, 0);
+      // Used for parseSchemaTerm() and splitAndStripWithQuoteEscape()
+      errCb = new LogCb(logCtx, Debug.Log.Level.LEVEL_ERROR, csvFileName, 0);
+      warnCb = new LogCb(logCtx, Debug.Log.Level.LEVEL_WARNING, csvFileName, 0);
+      ssArg = new StringUtil.SplitAndStripArg();
+      ssArg.delimiter = delimiter;
+      ssArg.includeEmpty = false;
+      ssArg.stripEnclosingQuotes = false;
+      ssArg.stripEscapesBeforeQuotes = true;
     }
 
-    public void process(CSVRecord dataRow) throws IOException, InterruptedException {
+    public Mcf.McfGraph process(String rowId, TableSource.Row dataRow)
+        throws IOException, InterruptedException {
+      Mcf.McfGraph.Builder instanceMcf = Mcf.McfGraph.newBuilder();
+      instanceMcf.setType(Mcf.McfType.INSTANCE_MCF);
       if (!dataRow.isConsistent()) {
         addLog(
             Debug.Log.Level.LEVEL_ERROR,
             "CSV_InconsistentRows",
             "Found CSV row with different number of columns");
-        return;
+        return instanceMcf.build();
       }
 
-      LogCb logCb =
-          new LogCb(logCtx, Debug.Log.Level.LEVEL_ERROR, csvFileName, getCurrentLineNumber());
-
-      // Process DCIDs from all the nodes first and add to entityToDcid map, which will be consulted
-      // to resolve entity references in processValues() function.
-      for (Map.Entry<String, Mcf.McfGraph.PropertyValues> tableEntity :
-          tmcf.getNodesMap().entrySet()) {
-        Map<String, Mcf.McfGraph.Values> pvs = tableEntity.getValue().getPvsMap();
-        if (!pvs.containsKey(Vocabulary.DCID)) continue;
-
-        // Register the fact that the user has mapped dcid, in case we continue below.
-        // TODO: Maybe this should move to after currentNodeId setting below.
-        entityToDcid.put(tableEntity.getKey(), Mcf.McfGraph.TypedValue.newBuilder().build());
-        logCb.setDetail(LogCb.VALUE_KEY, tableEntity.getKey());
-        currentNodeId = toNodeName(tableEntity.getKey(), logCb);
-        if (currentNodeId == null) continue;
+      this.rowId = rowId;
+      long lineNumber = getCurrentLineNumber();
+      entityCb.setLineNumber(lineNumber);
+      errCb.setLineNumber(lineNumber);
+      warnCb.setLineNumber(lineNumber);
+      Arrays.fill(entityDcids, Mcf.McfGraph.TypedValue.getDefaultInstance());
+
+      // Process DCIDs from all the nodes first and fill in entityDcids, which will be consulted
+      // to resolve entity references in parseValues() function.
+      for (EntityPlan entity : plan) {
+        if (entity.dcidIndex < 0) continue;
 
-        currentProp = Vocabulary.DCID;
-        Mcf.McfGraph.Values dcidValues =
-            parseValues(tableEntity.getKey(), currentProp, pvs.get(currentProp), dataRow);
+        Mcf.McfGraph.Values dcidValues = parseValues(entity, entity.dcid, dataRow);
         if (dcidValues.getTypedValuesList().size() == 0) {
           // In this case parseValues must have logged accurate msg.
           continue;
         }
         Mcf.McfGraph.TypedValue tv = dcidValues.getTypedValues(0);
         if (tv.getType() == Mcf.ValueType.TEXT || tv.getType() == Mcf.ValueType.RESOLVED_REF) {
-          entityToDcid.put(tableEntity.getKey(), tv);
+          entityDcids[entity.dcidIndex] = tv;
         } else {
           addLog(
               Debug.Log.Level.LEVEL_WARNING,
@@ -184,42 +558,33 @@ public class TmcfCsvParser {
               "Malformed CSV value for dcid property; must be a text or reference :: value: '"
                   + tv.getValue()
                   + "', node: '"
-                  + tableEntity.getKey()
+                  + entity.entity
                   + "'");
-          logCtx.incrementInfoCounterBy("CSV_MalformedDCIDPVFailures", pvs.size());
+          logCtx.incrementInfoCounterBy("CSV_MalformedDCIDPVFailures", entity.numPvs);
         }
       }
 
-      for (Map.Entry<String, Mcf.McfGraph.PropertyValues> tableEntity :
-          tmcf.getNodesMap().entrySet()) {
-        logCb.setDetail(LogCb.VALUE_KEY, tableEntity.getKey());
-        currentNodeId = toNodeName(tableEntity.getKey(), logCb);
+      for (EntityPlan entity : plan) {
+        String currentNodeId = toNodeName(entity);
         if (currentNodeId == null) continue;
         // Case of malformed/empty DCID. SKip this node (counters were updated above).
         if (currentNodeId.equals(Vocabulary.DCID_PREFIX)) continue;
 
         // Go over each property within the template.
         Mcf.McfGraph.PropertyValues.Builder nodeBuilder = Mcf.McfGraph.PropertyValues.newBuilder();
-        for (Map.Entry<String, Mcf.McfGraph.Values> pv :
-            tableEntity.getValue().getPvsMap().entrySet()) {
-          currentProp = pv.getKey();
-
-          // Don't process functionalDeps
-          if (currentProp.equals(Vocabulary.FUNCTIONAL_DEPS)) continue;
-
+        for (PropPlan prop : entity.props) {
           // Replace column names with values
-          Mcf.McfGraph.Values values =
-              parseValues(tableEntity.getKey(), currentProp, pv.getValue(), dataRow);
+          Mcf.McfGraph.Values values = parseValues(entity, prop, dataRow);
           if (values.getTypedValuesCount() == 0) {
             // In this case parseValues must have logged accurate msg.
             continue;
           }
-          nodeBuilder.putPvs(currentProp, values);
+          nodeBuilder.putPvs(prop.prop, values);
         }
-        nodeBuilder.setTemplateNode(tableEntity.getKey());
+        nodeBuilder.setTemplateNode(entity.entity);
         LogLocation.Location.Builder loc = nodeBuilder.addLocationsBuilder();
         loc.setFile(csvFileName);
-        loc.setLineNumber(getCurrentLineNumber());
+        loc.setLineNumber(lineNumber);
 
         Mcf.McfGraph.PropertyValues newNode = nodeBuilder.build();
         boolean success =
@@ -228,139 +593,165 @@ public class TmcfCsvParser {
           instanceMcf.putNodes(currentNodeId, newNode);
         }
       }
+      return instanceMcf.build();
     }
 
     private Mcf.McfGraph.Values parseValues(
-        String templateEntity,
-        String currentProp,
-        Mcf.McfGraph.Values templateValues,
-        CSVRecord dataRow) {
-      Mcf.McfGraph.Values.Builder instanceValues = Mcf.McfGraph.Values.newBuilder();
-
-      // Used for parseSchemaTerm() and splitAndStripWithQuoteEscape()
-      LogCb errCb =
-          new LogCb(logCtx, Debug.Log.Level.LEVEL_ERROR, csvFileName, getCurrentLineNumber())
-              .setDetail(LogCb.PROP_KEY, currentProp)
-              .setDetail(LogCb.NODE_KEY, templateEntity);
-      LogCb warnCb =
-          new LogCb(logCtx, Debug.Log.Level.LEVEL_WARNING, csvFileName, getCurrentLineNumber())
-              .setDetail(LogCb.PROP_KEY, currentProp)
-              .setDetail(LogCb.NODE_KEY, templateEntity);
-
-      for (Mcf.McfGraph.TypedValue typedValue : templateValues.getTypedValuesList()) {
-        if (typedValue.getType() == Mcf.ValueType.TABLE_ENTITY) {
-          if (currentProp.equals(Vocabulary.DCID)) {
-            // TODO: Add this check to checkTemplateNode(), and assert here
-            addLog(
-                Debug.Log.Level.LEVEL_ERROR,
-                "TMCF_TmcfEntityAsDcid",
-                "Value of dcid property is an 'E:' entity; must be a 'C:' column or "
-                    + "a constant :: value: '"
-                    + templateEntity
-                    + "'");
-            continue;
-          }
-          errCb.setDetail(LogCb.VALUE_KEY, typedValue.getValue());
-          String referenceNode = toNodeName(typedValue.getValue(), errCb);
-          Mcf.McfGraph.TypedValue.Builder newTypedValue = Mcf.McfGraph.TypedValue.newBuilder();
-          if (referenceNode.startsWith(Vocabulary.DCID_PREFIX)) {
-            Mcf.McfGraph.TypedValue dcidTypedVal =
-                entityToDcid.getOrDefault(
-                    typedValue.getValue(), Mcf.McfGraph.TypedValue.getDefaultInstance());
+        EntityPlan entity, PropPlan prop, TableSource.Row dataRow) {
+      if (prop.constantValues != null) {
+        return prop.constantValues;
+      }
+      errCb.setDetail(LogCb.PROP_KEY, prop.prop).setDetail(LogCb.NODE_KEY, entity.entity);
+      warnCb.setDetail(LogCb.PROP_KEY, prop.prop).setDetail(LogCb.NODE_KEY, entity.entity);
+
+      instanceValues.clear();
+      for (ValuePlan value : prop.values) {
+        switch (value.kind) {
+          case CONSTANT:
+            // Pass through constant value.
+            instanceValues.addTypedValues(value.typedValue);
+            break;
+          case DCID_REF:
+            Mcf.McfGraph.TypedValue dcidTypedVal = entityDcids[value.dcidIndex];
             if (dcidTypedVal.getValue().isEmpty()) {
-              addLog(
-                  Debug.Log.Level.LEVEL_WARNING,
-                  "CSV_EmptyDcidReferences",
-                  "In dcid:{entity} reference, found {entity} to be empty :: property: '"
-                      + currentProp
-                      + "', node: '"
-                      + templateEntity
-                      + "'");
-              continue;
+              logEmptyDcidReference(entity.entity, prop.prop);
+              break;
             }
+            Mcf.McfGraph.TypedValue.Builder newTypedValue = instanceValues.addTypedValuesBuilder();
             newTypedValue.setType(Mcf.ValueType.RESOLVED_REF);
             newTypedValue.setValue(dcidTypedVal.getValue());
             if (dcidTypedVal.hasColumn()) {
               newTypedValue.setColumn(dcidTypedVal.getColumn());
             }
-          } else {
+            break;
+          case LOCAL_REF:
             // This is an internal reference, so prefix "l:"
-            newTypedValue.setType(Mcf.ValueType.UNRESOLVED_REF);
-            newTypedValue.setValue(Vocabulary.INTERNAL_REF_PREFIX + referenceNode);
-          }
+            instanceValues
+                .addTypedValuesBuilder()
+                .setType(Mcf.ValueType.UNRESOLVED_REF)
+                .setValue(value.localRefPrefix + rowId);
+            break;
+          case COLUMN:
+            parseColumnValue(value.column, value.columnIndex, prop.prop, dataRow);
+            break;
+          default:
+            parseOtherValue(entity.entity, prop.prop, value.typedValue, dataRow);
+        }
+      }
+      return instanceValues.build();
+    }
+
+    // Replace column-name with cell-value
+    private void parseColumnValue(
+        String column, int columnIndex, String currentProp, TableSource.Row dataRow) {
+      if (columnIndex >= dataRow.size()) {
+        addLog(
+            Debug.Log.Level.LEVEL_WARNING,
+            "CSV_UnexpectedRow",
+            "Found row with fewer columns than expected :: row: '" + dataRow.toString() + "'");
+        return;
+      }
+
+      String origValue = dataRow.get(columnIndex);
+      if (dataRow.isNumber(columnIndex) && !Vocabulary.isReferenceProperty(currentProp)) {
+        // A typed number (e.g., from Parquet) is a single value that would parse as a NUMBER.
+        instanceValues
+            .addTypedValuesBuilder()
+            .setType(Mcf.ValueType.NUMBER)
+            .setValue(StringPool.internShared(origValue))
+            .setColumn(column);
+        return;
+      }
+      warnCb.setDetail(LogCb.VALUE_KEY, origValue);
+      warnCb.setDetail(LogCb.COLUMN_KEY, column);
+      warnCb.setCounterSuffix(currentProp);
+      List<String> values = StringUtil.splitAndStripWithQuoteEscape(origValue, ssArg, warnCb);
+      for (String value : values) {
+        errCb.setDetail(LogCb.VALUE_KEY, value);
+        Mcf.McfGraph.TypedValue.Builder newTypedValue =
+            McfParser.parseTypedValue(Mcf.McfType.INSTANCE_MCF, false, currentProp, value, errCb);
+        if (newTypedValue != null) {
+          newTypedValue.setColumn(column);
           instanceValues.addTypedValues(newTypedValue.build());
-        } else if (typedValue.getType() == Mcf.ValueType.TABLE_COLUMN) {
-          // Replace column-name with cell-value
-          errCb.setDetail(LogCb.VALUE_KEY, typedValue.getValue());
-          McfParser.SchemaTerm term = McfParser.parseSchemaTerm(typedValue.getValue(), errCb);
-          if (term == null) {
-            continue;
-          }
-          if (term.type != McfParser.SchemaTerm.Type.COLUMN) {
-            addLog(
-                Debug.Log.Level.LEVEL_ERROR,
-                "TMCF_UnexpectedNonColumn",
-                "Expected value to be a TMCF column that starts with 'C:' :: value: '"
-                    + typedValue.getValue()
-                    + "', property: '"
-                    + currentProp
-                    + "', node: '"
-                    + templateEntity
-                    + "'");
-            continue;
-          }
-          String column = term.value;
-          if (!cleanedColumnMap.containsKey(column)) {
-            addLog(
-                Debug.Log.Level.LEVEL_ERROR,
-                "CSV_TmcfMissingColumn",
-                "Column referred to in TMCF is missing from CSV header :: column: '"
-                    + column
-                    + "'");
-            continue;
-          }
-          int columnIndex = cleanedColumnMap.get(column);
-          if (columnIndex >= dataRow.size()) {
-            addLog(
-                Debug.Log.Level.LEVEL_WARNING,
-                "CSV_UnexpectedRow",
-                "Found row with fewer columns than expected :: row: '" + dataRow.toString() + "'");
-            continue;
-          }
+        }
+      }
+    }
 
-          StringUtil.SplitAndStripArg ssArg = new StringUtil.SplitAndStripArg();
-          ssArg.delimiter = delimiter;
-          ssArg.includeEmpty = false;
-          ssArg.stripEnclosingQuotes = false;
-          ssArg.stripEscapesBeforeQuotes = true;
-          String origValue = dataRow.get(columnIndex);
-          warnCb.setDetail(LogCb.VALUE_KEY, origValue);
-          warnCb.setDetail(LogCb.COLUMN_KEY, column);
-          warnCb.setCounterSuffix(currentProp);
-          List<String> values = StringUtil.splitAndStripWithQuoteEscape(origValue, ssArg, warnCb);
-          for (String value : values) {
-            errCb.setDetail(LogCb.VALUE_KEY, value);
-            Mcf.McfGraph.TypedValue.Builder newTypedValue =
-                McfParser.parseTypedValue(
-                    Mcf.McfType.INSTANCE_MCF, false, currentProp, value, errCb);
-            if (newTypedValue != null) {
-              newTypedValue.setColumn(column);
-              instanceValues.addTypedValues(newTypedValue.build());
-            }
-          }
-        } else {
-          // Pass through constant value.
-          instanceValues.addTypedValues(typedValue);
+    // Handles the template values that could not be compiled, reporting the problem.
+    private void parseOtherValue(
+        String templateEntity,
+        String currentProp,
+        Mcf.McfGraph.TypedValue typedValue,
+        TableSource.Row dataRow) {
+      if (typedValue.getType() == Mcf.ValueType.TABLE_ENTITY) {
+        if (currentProp.equals(Vocabulary.DCID)) {
+          // TODO: Add this check to checkTemplateNode(), and assert here
+          addLog(
+              Debug.Log.Level.LEVEL_ERROR,
+              "TMCF_TmcfEntityAsDcid",
+              "Value of dcid property is an 'E:' entity; must be a 'C:' column or "
+                  + "a constant :: value: '"
+                  + templateEntity
+                  + "'");
+          return;
+        }
+        errCb.setDetail(LogCb.VALUE_KEY, typedValue.getValue());
+        String referenceNode = toNodeName(typedValue.getValue(), errCb);
+        if (referenceNode == null) return;
+        // Only a reference to an entity without a dcid mapping can get here.
+        logEmptyDcidReference(templateEntity, currentProp);
+      } else if (typedValue.getType() == Mcf.ValueType.TABLE_COLUMN) {
+        errCb.setDetail(LogCb.VALUE_KEY, typedValue.getValue());
+        McfParser.SchemaTerm term = McfParser.parseSchemaTerm(typedValue.getValue(), errCb);
+        if (term == null) {
+          return;
+        }
+        if (term.type != McfParser.SchemaTerm.Type.COLUMN) {
+          addLog(
+              Debug.Log.Level.LEVEL_ERROR,
+              "TMCF_UnexpectedNonColumn",
+              "Expected value to be a TMCF column that starts with 'C:' :: value: '"
+                  + typedValue.getValue()
+                  + "', property: '"
+                  + currentProp
+                  + "', node: '"
+                  + templateEntity
+                  + "'");
+          return;
         }
+        addLog(
+            Debug.Log.Level.LEVEL_ERROR,
+            "CSV_TmcfMissingColumn",
+            "Column referred to in TMCF is missing from CSV header :: column: '"
+                + term.value
+                + "'");
       }
-      return instanceValues.build();
     }
 
-    private String toNodeName(String entityId, LogCb logCb) {
-      if (entityToDcid.containsKey(entityId)) {
-        return Vocabulary.DCID_PREFIX + entityToDcid.get(entityId).getValue();
+    private void logEmptyDcidReference(String templateEntity, String currentProp) {
+      addLog(
+          Debug.Log.Level.LEVEL_WARNING,
+          "CSV_EmptyDcidReferences",
+          "In dcid:{entity} reference, found {entity} to be empty :: property: '"
+              + currentProp
+              + "', node: '"
+              + templateEntity
+              + "'");
+    }
+
+    private String toNodeName(EntityPlan entity) {
+      if (entity.dcidIndex >= 0) {
+        return Vocabulary.DCID_PREFIX + entityDcids[entity.dcidIndex].getValue();
+      }
+      if (entity.nodeNamePrefix != null) {
+        return entity.nodeNamePrefix + rowId;
       }
+      entityCb.setDetail(LogCb.VALUE_KEY, entity.entity);
+      return toNodeName(entity.entity, entityCb);
+    }
 
+    // Node name for an entity without a dcid mapping.
+    private String toNodeName(String entityId, LogCb logCb) {
       McfParser.SchemaTerm term = McfParser.parseSchemaTerm(entityId, logCb);
       if (term == null) return null;
       if (term.type != McfParser.SchemaTerm.Type.ENTITY) {
@@ -3,6 +3,7 @@ package org.datacommons.util.parser.strategy;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.List;
+import org.datacommons.util.CompressedInput;
 import org.datacommons.util.FileGroup;
 import org.datacommons.util.McfFileGroup;
 
@@ -20,22 +21,27 @@ public class McfParserStrategy implements ParserStrategy {
     List<File> csvFiles = new ArrayList<>();
 
     for (File f : files) {
-      String path = f.getPath().toLowerCase();
+      // Compressed files (e.g., data.csv.gz) are grouped by their uncompressed extension.
+      String path = CompressedInput.stripCompressionExtension(f.getPath().toLowerCase());
       if (path.contains(".mcf")) {
         mcfFiles.add(f);
       } else if (path.endsWith(".tmcf")) {
         tmcfFiles.add(f);
-      } else if (path.endsWith(".csv") || path.endsWith(".tsv")) {
+      } else if (path.endsWith(".csv") || path.endsWith(".tsv") || path.endsWith(".parquet")) {
         csvFiles.add(f);
       }
     }
 
-    boolean hasTsv = csvFiles.stream().anyMatch(f -> f.getName().endsWith(".tsv"));
-    boolean hasCsv = csvFiles.stream().anyMatch(f -> f.getName().endsWith(".csv"));
+    boolean hasTsv = csvFiles.stream().anyMatch(f -> uncompressedName(f).endsWith(".tsv"));
+    boolean hasCsv = csvFiles.stream().anyMatch(f -> uncompressedName(f).endsWith(".csv"));
     if (hasTsv && hasCsv) {
       throw new IllegalArgumentException("Please do not mix .tsv and .csv files");
     }
     char delim = overrideDelimiter != null ? overrideDelimiter : (hasTsv ? '\t' : ',');
     return new McfFileGroup(csvFiles, mcfFiles, tmcfFiles, delim);
   }
+
+  private static String uncompressedName(File f) {
+    return CompressedInput.stripCompressionExtension(f.getName());
+  }
 }
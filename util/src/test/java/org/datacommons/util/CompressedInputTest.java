@@ -0,0 +1,202 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import com.github.luben.zstd.Zstd;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import org.datacommons.proto.Mcf;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CompressedInputTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void stripCompressionExtension() {
+    assertThat(CompressedInput.stripCompressionExtension("data.csv.gz")).isEqualTo("data.csv");
+    assertThat(CompressedInput.stripCompressionExtension("data.TSV.ZST")).isEqualTo("data.TSV");
+    assertThat(CompressedInput.stripCompressionExtension("data.mcf.bgz")).isEqualTo("data.mcf");
+    assertThat(CompressedInput.stripCompressionExtension("data.csv")).isEqualTo("data.csv");
+    assertThat(CompressedInput.isCompressed("data.mcf.gz")).isTrue();
+    assertThat(CompressedInput.isCompressed("data.mcf")).isFalse();
+  }
+
+  @Test
+  public void gzip() throws IOException {
+    byte[] data = randomText(1 << 20);
+    Path file = testFolder.getRoot().toPath().resolve("data.csv.gz");
+    try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+      out.write(data);
+    }
+    assertThat(readAll(file)).isEqualTo(data);
+  }
+
+  @Test
+  public void bgzf() throws IOException {
+    // Enough blocks for several batches per thread.
+    byte[] data = randomText(16 << 20);
+    Path file = testFolder.getRoot().toPath().resolve("data.csv.bgz");
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    for (int offset = 0; offset < data.length; offset += 0xff00) {
+      writeBgzfBlock(out, Arrays.copyOfRange(data, offset, Math.min(data.length, offset + 0xff00)));
+    }
+    // The empty end-of-file block.
+    writeBgzfBlock(out, new byte[0]);
+    Files.write(file, out.toByteArray());
+    assertThat(readAll(file)).isEqualTo(data);
+  }
+
+  @Test
+  public void bgzf_corruptBlock() throws IOException {
+    byte[] data = randomText(1 << 16);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    writeBgzfBlock(out, data);
+    byte[] compressed = out.toByteArray();
+    // Break the CRC in the trailer.
+    compressed[compressed.length - 8] ^= 1;
+    Path file = testFolder.getRoot().toPath().resolve("data.mcf.gz");
+    Files.write(file, compressed);
+    IOException e = null;
+    try {
+      readAll(file);
+    } catch (IOException expected) {
+      e = expected;
+    }
+    assertThat(e).hasMessageThat().contains("CRC mismatch");
+  }
+
+  @Test
+  public void zstd() throws IOException {
+    byte[] data = randomText(1 << 20);
+    Path file = testFolder.getRoot().toPath().resolve("data.tsv.zst");
+    Files.write(file, Zstd.compress(data));
+    assertThat(readAll(file)).isEqualTo(data);
+  }
+
+  @Test
+  public void seekableZstd() throws IOException {
+    byte[] data = randomText(8 << 20);
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream seekTable = new ByteArrayOutputStream();
+    int numFrames = 0;
+    for (int offset = 0; offset < data.length; offset += 100_000) {
+      int frameSize = Math.min(100_000, data.length - offset);
+      byte[] frame = Zstd.compress(Arrays.copyOfRange(data, offset, offset + frameSize));
+      out.write(frame);
+      seekTable.write(littleEndian(frame.length, frameSize));
+      numFrames++;
+    }
+    // The seek table, in a skippable frame, ending with its footer.
+    byte[] entries = seekTable.toByteArray();
+    ByteBuffer table = ByteBuffer.allocate(8 + entries.length + 9).order(ByteOrder.LITTLE_ENDIAN);
+    table.putInt(0x184D2A5E).putInt(entries.length + 9).put(entries);
+    table.putInt(numFrames).put((byte) 0).putInt(0x8F92EAB1);
+    out.write(table.array());
+    Path file = testFolder.getRoot().toPath().resolve("data.csv.zst");
+    Files.write(file, out.toByteArray());
+    assertThat(readAll(file)).isEqualTo(data);
+  }
+
+  @Test
+  public void mcfParser() throws IOException {
+    String mcf =
+        "Node: USState\n"
+            + "typeOf: schema:Class\n"
+            + "name: \"USState\"\n"
+            + "\n"
+            + "Node: dcid:geoId/06\n"
+            + "typeOf: dcs:USState\n";
+    Path file = testFolder.getRoot().toPath().resolve("data.mcf.gz");
+    try (GZIPOutputStream out = new GZIPOutputStream(Files.newOutputStream(file))) {
+      out.write(mcf.getBytes(StandardCharsets.UTF_8));
+    }
+    Path plainFile = testFolder.getRoot().toPath().resolve("data.mcf");
+    Files.writeString(plainFile, mcf);
+
+    McfParser parser =
+        McfParser.init(Mcf.McfType.INSTANCE_MCF, file.toString(), false, TestUtil.newLogCtx());
+    McfParser plainParser =
+        McfParser.init(Mcf.McfType.INSTANCE_MCF, plainFile.toString(), false, TestUtil.newLogCtx());
+    Mcf.McfGraph node;
+    int numNodes = 0;
+    while ((node = parser.parseNextNode()) != null) {
+      // The locations differ in the file name.
+      assertThat(TestUtil.trimLocations(node))
+          .isEqualTo(TestUtil.trimLocations(plainParser.parseNextNode()));
+      numNodes++;
+    }
+    assertThat(plainParser.parseNextNode()).isNull();
+    assertThat(numNodes).isEqualTo(2);
+  }
+
+  private static byte[] randomText(int length) {
+    Random random = new Random(length);
+    byte[] data = new byte[length];
+    for (int i = 0; i < length; i++) {
+      data[i] = (byte) (i % 80 == 79 ? '\n' : 'a' + random.nextInt(8));
+    }
+    return data;
+  }
+
+  private static byte[] readAll(Path file) throws IOException {
+    try (InputStream in = CompressedInput.open(file)) {
+      return in.readAllBytes();
+    }
+  }
+
+  private static byte[] littleEndian(int... values) {
+    ByteBuffer buffer = ByteBuffer.allocate(4 * values.length).order(ByteOrder.LITTLE_ENDIAN);
+    for (int v : values) {
+      buffer.putInt(v);
+    }
+    return buffer.array();
+  }
+
+  // Writes a gzip member with a BGZF "BC" extra field, as bgzip does.
+  private static void writeBgzfBlock(ByteArrayOutputStream out, byte[] data) throws IOException {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] compressed = new byte[data.length + 1024];
+    int compressedLength = deflater.deflate(compressed);
+    deflater.end();
+    CRC32 crc = new CRC32();
+    crc.update(data);
+
+    int blockSize = 18 + compressedLength + 8;
+    ByteBuffer header = ByteBuffer.allocate(18).order(ByteOrder.LITTLE_ENDIAN);
+    header.put(new byte[] {0x1f, (byte) 0x8b, 8, 4, 0, 0, 0, 0, 0, (byte) 0xff});
+    header.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2);
+    header.putShort((short) (blockSize - 1));
+    out.write(header.array());
+    out.write(compressed, 0, compressedLength);
+    out.write(littleEndian((int) crc.getValue(), data.length));
+  }
+}
@@ -55,6 +55,16 @@ public class CoordinatesResolverTest {
     assertThat(resolver.submit(NON_LAT_LNG_NODE)).isFalse();
   }
 
+  @Test
+  public void coordinate() {
+    CoordinatesResolver.Coordinate coordinate =
+        new CoordinatesResolver.Coordinate(37.77493, -122.41942);
+    assertThat(coordinate.toString()).isEqualTo("37.77493#-122.41942");
+    assertThat(CoordinatesResolver.Coordinate.parse(coordinate.toString())).hasValue(coordinate);
+    assertThat(CoordinatesResolver.Coordinate.parse("37.77493")).isEmpty();
+    assertThat(CoordinatesResolver.Coordinate.parse("north#west")).isEmpty();
+  }
+
   private static PropertyValues newNode(String typeOf, Map<String, String> props) {
     PropertyValues.Builder node = PropertyValues.newBuilder();
     node.putPvs(Vocabulary.TYPE_OF, McfUtil.newValues(ValueType.RESOLVED_REF, typeOf));
@@ -3,6 +3,7 @@ package org.datacommons.util;
 import static org.junit.Assert.assertEquals;
 
 import java.io.IOException;
+import java.util.List;
 import org.datacommons.proto.Mcf;
 import org.junit.Test;
 
@@ -292,6 +293,77 @@ public class DcidGeneratorTest {
     assertEquals(result0.dcid, result1.dcid);
   }
 
+  @Test
+  public void funcSVObsNonAscii() throws IOException {
+    String mcf =
+        "    Node: SVObs\n"
+            + "    typeOf: dcs:StatVarObservation\n"
+            + "    variableMeasured: dcid:Count_Person\n"
+            + "    observationAbout: dcid:geoId/06\n"
+            + "    value: \"Zürich\"\n"
+            + "    observationDate: \"2020\"\n";
+    var result = DcidGenerator.forStatVarObs("SVObs", string2Node(mcf));
+    assertEquals(
+        "observationAbout=geoId/06variableMeasured=Count_PersonobservationDate=2020value=Zürich",
+        result.keyString);
+    assertEquals("dc/o/gsz21s8khqzgc", result.dcid);
+  }
+
+  @Test
+  public void funcWithoutKeyString() throws IOException {
+    String mcf =
+        "    Node: SVObs\n"
+            + "    typeOf: dcs:StatVarObservation\n"
+            + "    variableMeasured: dcid:Count_Person\n"
+            + "    observationAbout: dcid:geoId/06001\n"
+            + "    value: 1000\n"
+            + "    observationDate: \"2017-01\"\n";
+    var node = string2Node(mcf);
+    var result = DcidGenerator.forStatVarObs("SVObs", node, false);
+    assertEquals("", result.keyString);
+    assertEquals(DcidGenerator.forStatVarObs("SVObs", node).dcid, result.dcid);
+  }
+
+  // The dcids and key strings generated for the nodes in resolved MCF fixtures must match the ones
+  // in the fixtures.
+  @Test
+  public void funcGoldenResolvedMcf() throws IOException {
+    int numChecked = 0;
+    for (String file :
+        List.of(
+            "McfResolverTest_Resolved_InstanceSuccess.mcf",
+            "McfResolverTest_Resolved_TmcfCsvSuccess.mcf")) {
+      Mcf.McfGraph graph =
+          McfParser.parseInstanceMcfFile(
+              this.getClass().getResource(file).getPath(), false, TestUtil.newLogCtx());
+      for (var kv : graph.getNodesMap().entrySet()) {
+        var keyString = McfUtil.getPropVal(kv.getValue(), Vocabulary.KEY_STRING);
+        if (keyString.isEmpty()) continue;
+        var node =
+            kv.getValue().toBuilder()
+                .removePvs(Vocabulary.DCID)
+                .removePvs(Vocabulary.KEY_STRING)
+                .build();
+        var typeOf = McfUtil.getPropVal(node, Vocabulary.TYPE_OF);
+        DcidGenerator.Result result;
+        if (typeOf.equals(Vocabulary.STAT_VAR_OBSERVATION_TYPE)) {
+          result = DcidGenerator.forStatVarObs(kv.getKey(), node);
+        } else if (typeOf.endsWith(Vocabulary.LEGACY_POPULATION_TYPE_SUFFIX)) {
+          result = DcidGenerator.forPopulation(kv.getKey(), node);
+        } else {
+          result = DcidGenerator.forObservation(kv.getKey(), node);
+        }
+        assertEquals(file + " " + kv.getKey(), keyString, result.keyString);
+        assertEquals(
+            file + " " + kv.getKey(),
+            McfUtil.getPropVal(kv.getValue(), Vocabulary.DCID),
+            result.dcid);
+        numChecked++;
+      }
+    }
+    assertEquals(6, numChecked);
+  }
+
   private Mcf.McfGraph.PropertyValues string2Node(String mcf) throws IOException {
     for (var pv : TestUtil.graphFromMcf(mcf).getNodesMap().entrySet()) {
       return pv.getValue();
@@ -1,6 +1,7 @@
 package org.datacommons.util;
 
 import static org.datacommons.util.LogCb.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
@@ -9,13 +10,19 @@ import static org.mockito.Mockito.*;
 import java.io.IOException;
 import java.net.http.HttpClient;
 import java.net.http.HttpResponse;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
 import org.datacommons.proto.Debug;
 import org.datacommons.proto.Mcf;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.mockito.Mockito;
 
 public class ExistenceCheckerTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
   private static final String NONEXISTING_LAT = "{\"data\":{\"latitude\":{}}}";
   private static final String EXISTING_GENDER =
       "{\"data\":{\"gender\":{\"arcs\":{\"typeOf\":{\"nodes\":[{\"dcid\":\"Property\"}]},\"domainIncludes\":{\"nodes\":[{\"dcid\":\"Person\"}]}}}}}";
@@ -71,6 +78,57 @@ public class ExistenceCheckerTest {
     assertTrue(TestUtil.checkCounter(lw.getLog(), "Existence_MissingReference", 2));
   }
 
+  @Test
+  public void testAsyncDispatch() throws IOException, InterruptedException {
+    var mockHttp = Mockito.mock(HttpClient.class);
+    var mockResp = Mockito.mock(HttpResponse.class);
+    when(mockHttp.send(any(), any())).thenReturn(mockResp);
+    when(mockResp.body()).thenReturn(NONEXISTING_LAT);
+
+    Debug.Log.Builder lb = Debug.Log.newBuilder();
+    LogWrapper lw = new LogWrapper(lb, Path.of("InMemory"));
+    ExistenceChecker.DC_CALL_BATCH_LIMIT = 1;
+
+    var checker = new ExistenceChecker(mockHttp, false, 2, lw);
+
+    // The call may still be in flight after submit, but is done after the drain.
+    checker.submitNodeCheck("latitude", newLogCb(lw, PREF_KEY, "latitude1"));
+    checker.drainRemoteCalls();
+    verify(mockHttp, times(1)).send(any(), any());
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "Existence_MissingReference", 1));
+
+    // Non-existing node must be cached. No further RPCs.
+    checker.submitNodeCheck("latitude", newLogCb(lw, PREF_KEY, "latitude2"));
+    checker.drainRemoteCalls();
+    verify(mockHttp, times(1)).send(any(), any());
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "Existence_MissingReference", 2));
+  }
+
+  @Test
+  public void testReferenceKg() throws IOException, InterruptedException {
+    Debug.Log.Builder lb = Debug.Log.newBuilder();
+    LogWrapper lw = new LogWrapper(lb, Path.of("InMemory"));
+    Path mcf = testFolder.getRoot().toPath().resolve("schema.mcf");
+    Files.writeString(mcf, LOCAL_KG_NODE);
+
+    var checker =
+        new ExistenceChecker(ReferenceKgIndex.fromMcfFiles(List.of(mcf.toFile())), false, lw);
+
+    checker.submitNodeCheck("latitude", newLogCb(lw, PREF_KEY, "latitude1"));
+    checker.submitTripleCheck(
+        "latitude", Vocabulary.RANGE_INCLUDES, "Place", newLogCb(lw, PREF_KEY, "latitude2"));
+    checker.submitNodeCheck("gender", newLogCb(lw, PREF_KEY, "gender1"));
+    checker.submitTripleCheck(
+        "latitude", Vocabulary.RANGE_INCLUDES, "City", newLogCb(lw, PREF_KEY, "latitude3"));
+    checker.drainRemoteCalls();
+
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "Existence_NumChecks", 4));
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "Existence_MissingReference", 1));
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "Existence_MissingTriple", 1));
+    // No DC calls.
+    assertEquals(-1, TestUtil.getCounter(lw.getLog(), "Existence_NumDcCalls"));
+  }
+
   @Test
   public void testTriple() throws IOException, InterruptedException {
     var mockHttp = Mockito.mock(HttpClient.class);
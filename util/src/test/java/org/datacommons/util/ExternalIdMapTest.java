@@ -0,0 +1,115 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ExternalIdMapTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void heap() {
+    checkMap(new ExternalIdMap());
+  }
+
+  @Test
+  public void disk() throws IOException {
+    try (ExternalIdMap map =
+        new ExternalIdMap(ExternalIdMap.Storage.DISK, testFolder.getRoot().toPath())) {
+      checkMap(map);
+    }
+    assertThat(testFolder.getRoot().list()).isEmpty();
+  }
+
+  @Test
+  public void disk_spillsAndMergesRuns() throws IOException {
+    // Spill every 10 IDs, so there are several runs with several index blocks each.
+    ExternalIdMap map =
+        new ExternalIdMap(ExternalIdMap.Storage.DISK, testFolder.getRoot().toPath(), 10);
+    int numIds = 1000;
+    for (int i = 0; i < numIds; i++) {
+      map.add("wikidataId", "Q" + i, "dc/" + i);
+      map.add("isoCode", "C" + i, "country/" + i);
+    }
+    // Updates of IDs in earlier runs override them.
+    map.put("wikidataId", "Q7", List.of("dc/seven"));
+    map.add("isoCode", "C7", "country/seven");
+    // The runs go in a directory of their own.
+    File[] runDirs = testFolder.getRoot().listFiles();
+    assertThat(runDirs).hasLength(1);
+    assertThat(runDirs[0].list().length).isGreaterThan(1);
+
+    map.seal();
+    assertThat(runDirs[0].list()).hasLength(1);
+    assertThat(map.size()).isEqualTo(2 * numIds);
+    for (int i = 0; i < numIds; i++) {
+      if (i == 7) continue;
+      assertThat(map.getFirst("wikidataId", "Q" + i)).isEqualTo("dc/" + i);
+      assertThat(map.get("isoCode", "C" + i)).containsExactly("country/" + i);
+    }
+    assertThat(map.get("wikidataId", "Q7")).containsExactly("dc/seven");
+    assertThat(map.get("isoCode", "C7")).containsExactly("country/7", "country/seven").inOrder();
+    assertThat(map.contains("wikidataId", "C1")).isFalse();
+    assertThat(map.contains("wikidataId", "Q" + numIds)).isFalse();
+    assertThat(map.contains("nutsCode", "Q1")).isFalse();
+
+    map.close();
+    assertThat(testFolder.getRoot().list()).isEmpty();
+    assertThat(map.size()).isEqualTo(2 * numIds);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void disk_needsSpillDir() {
+    new ExternalIdMap(ExternalIdMap.Storage.DISK, null);
+  }
+
+  private static void checkMap(ExternalIdMap map) {
+    assertThat(map.contains("isoCode", "US")).isFalse();
+    assertThat(map.getFirst("isoCode", "US")).isNull();
+    assertThat(map.get("isoCode", "US")).isEmpty();
+
+    map.put("isoCode", "US", List.of("country/USA"));
+    map.put("isoCode", "IN-KA", List.of("wikidataId/Q1185", "geoId/IN-KA", "wikidataId/Q1185"));
+    map.add("wikidataId", "Q62", "geoId/0667000");
+    map.add("wikidataId", "Q62", "geoId/0667000");
+    map.add("wikidataId", "Q62", "wikidataId/Q62");
+    map.seal();
+
+    assertThat(map.contains("isoCode", "US")).isTrue();
+    assertThat(map.contains("wikidataId", "US")).isFalse();
+    assertThat(map.getFirst("isoCode", "US")).isEqualTo("country/USA");
+    assertThat(map.get("isoCode", "US")).containsExactly("country/USA");
+    // Candidates keep the order they were added in, without duplicates.
+    assertThat(map.getFirst("isoCode", "IN-KA")).isEqualTo("wikidataId/Q1185");
+    assertThat(map.get("isoCode", "IN-KA"))
+        .containsExactly("wikidataId/Q1185", "geoId/IN-KA")
+        .inOrder();
+    assertThat(map.get("wikidataId", "Q62"))
+        .containsExactly("geoId/0667000", "wikidataId/Q62")
+        .inOrder();
+    assertThat(map.size()).isEqualTo(3);
+
+    // Updates after seal() are still visible.
+    map.put("isoCode", "US", List.of("country/US"));
+    assertThat(map.getFirst("isoCode", "US")).isEqualTo("country/US");
+  }
+}
@@ -1,11 +1,16 @@
 package org.datacommons.util;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.ByteArrayInputStream;
 import java.io.InputStream;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.datacommons.proto.Mcf;
 import org.datacommons.proto.Mcf.McfGraph;
 import org.datacommons.util.parser.jsonld.JsonLdParser;
 import org.junit.Test;
@@ -150,4 +155,160 @@ public class JsonLdParserTest {
     assertTrue(foundDest);
     assertTrue(foundSource);
   }
+
+  @Test
+  public void testParseNextNode_StreamsGraphNodes() throws Exception {
+    String jsonLd =
+        "{\n"
+            + "  \"@context\": {\n"
+            + "    \"schema\": \"https://schema.org/\",\n"
+            + "    \"dcid\": \"https://datacommons.org/browser/\"\n"
+            + "  },\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"dcid:Node1\", \"schema:name\": \"One\" },\n"
+            + "    { \"@id\": \"dcid:Empty\" },\n"
+            + "    { \"@id\": \"dcid:Node2\", \"@type\": \"schema:Place\" }\n"
+            + "  ]\n"
+            + "}";
+
+    JsonLdParser parser = JsonLdParser.init(toStream(jsonLd));
+    List<String> ids = new ArrayList<>();
+    McfGraph node;
+    while ((node = parser.parseNextNode()) != null) {
+      assertEquals(Mcf.McfType.INSTANCE_MCF, node.getType());
+      assertEquals(1, node.getNodesCount());
+      ids.addAll(node.getNodesMap().keySet());
+    }
+    // Nodes with just an @id are dropped, as in JSON-LD expansion.
+    assertEquals(List.of("Node1", "Node2"), ids);
+    assertNull(parser.parseNextNode());
+  }
+
+  @Test
+  public void testParseNextNode_MatchesFullExpansion() throws Exception {
+    // The @graph comes before the @context, and the second node needs full expansion, so the
+    // parser falls back to jsonld-java for them. The result should be the same either way.
+    String jsonLd =
+        "{\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"dcid:Node1\", \"schema:name\": \"One\" },\n"
+            + "    { \"@id\": \"dcid:Node2\", \"@reverse\": { \"schema:knows\": "
+            + "{ \"@id\": \"dcid:Node1\" } } }\n"
+            + "  ],\n"
+            + "  \"@context\": {\n"
+            + "    \"schema\": \"https://schema.org/\",\n"
+            + "    \"dcid\": \"https://datacommons.org/browser/\"\n"
+            + "  }\n"
+            + "}";
+    String reordered =
+        "{\n"
+            + "  \"@context\": {\n"
+            + "    \"schema\": \"https://schema.org/\",\n"
+            + "    \"dcid\": \"https://datacommons.org/browser/\"\n"
+            + "  },\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"dcid:Node1\", \"schema:name\": \"One\" },\n"
+            + "    { \"@id\": \"dcid:Node2\", \"@reverse\": { \"schema:knows\": "
+            + "{ \"@id\": \"dcid:Node1\" } } }\n"
+            + "  ]\n"
+            + "}";
+
+    McfGraph graph = JsonLdParser.parse(toStream(jsonLd));
+    assertTrue(graph.getNodesMap().containsKey("Node1"));
+    assertEquals(graph, JsonLdParser.parse(toStream(reordered)));
+  }
+
+  @Test
+  public void testVocabContext_ExpandsSuccessfully() throws Exception {
+    String jsonLd =
+        "{\n"
+            + "  \"@context\": { \"@vocab\": \"https://schema.org/\" },\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"https://datacommons.org/browser/Node1\", \"name\": \"One\" }\n"
+            + "  ]\n"
+            + "}";
+
+    McfGraph graph = JsonLdParser.parse(toStream(jsonLd));
+    assertTrue(graph.getNodesMap().containsKey("Node1"));
+    assertTrue(graph.getNodesMap().get("Node1").containsPvs("name"));
+  }
+
+  @Test
+  public void testFindNodeLayout_RangesMatchParse() throws Exception {
+    String jsonLd =
+        "{\n"
+            + "  \"@context\": {\n"
+            + "    \"schema\": \"https://schema.org/\",\n"
+            + "    \"dcid\": \"https://datacommons.org/browser/\"\n"
+            + "  },\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"dcid:Node1\", \"schema:name\": \"Ünïcode\\n    { } ,\" },\n"
+            + "    { \"@id\": \"dcid:Node2\", \"schema:name\": [\"Two\", \"2\"] },\n"
+            + "    {\n"
+            + "      \"@id\": \"dcid:Node3\",\n"
+            + "      \"schema:containedInPlace\": {\n"
+            + "        \"@id\": \"dcid:Node1\"\n"
+            + "      }\n"
+            + "    }\n"
+            + "  ]\n"
+            + "}";
+    byte[] bytes = jsonLd.getBytes(StandardCharsets.UTF_8);
+    String byteString = new String(bytes, StandardCharsets.ISO_8859_1);
+
+    JsonLdParser.NodeLayout layout = JsonLdParser.findNodeLayout(new ByteArrayInputStream(bytes));
+    assertNotNull(layout);
+    assertEquals(byteString.indexOf("{ \"@id\": \"dcid:Node1\""), layout.firstNodeOffset);
+    assertEquals(4, layout.indent);
+
+    // Read the nodes in ranges of every size, each from the first node that begins in it.
+    McfGraph want = JsonLdParser.parse(new ByteArrayInputStream(bytes));
+    for (int rangeBytes = 1; rangeBytes <= bytes.length; rangeBytes++) {
+      McfGraph.Builder got = McfGraph.newBuilder();
+      got.setType(Mcf.McfType.INSTANCE_MCF);
+      int numNodes = 0;
+      for (int from = 0; from < bytes.length; from += rangeBytes) {
+        long start = layout.firstNodeOffset;
+        if (from > start) {
+          int scanFrom = (int) JsonLdParser.nodeScanOffset(from, layout);
+          start =
+              JsonLdParser.findNodeStart(
+                  new ByteArrayInputStream(bytes, scanFrom, bytes.length - scanFrom), from, layout);
+          if (start < 0) continue;
+        }
+        JsonLdParser parser =
+            JsonLdParser.initNodes(
+                new ByteArrayInputStream(bytes, (int) start, bytes.length - (int) start),
+                layout.context);
+        McfGraph node;
+        while ((node = parser.parseNextNode()) != null
+            && start + parser.lastNodeOffset() < from + rangeBytes) {
+          got.putAllNodes(node.getNodesMap());
+          numNodes++;
+        }
+      }
+      assertEquals(3, numNodes);
+      assertEquals(want, got.build());
+    }
+  }
+
+  @Test
+  public void testFindNodeLayout_UnsplittableDocument() throws Exception {
+    String jsonLd =
+        "{\n"
+            + "  \"@context\": { \"@vocab\": \"https://schema.org/\" },\n"
+            + "  \"@graph\": [\n"
+            + "    { \"@id\": \"https://datacommons.org/browser/Node1\" },\n"
+            + "    { \"@id\": \"https://datacommons.org/browser/Node2\" }\n"
+            + "  ]\n"
+            + "}";
+    assertNull(JsonLdParser.findNodeLayout(toStream(jsonLd)));
+    // Nodes that do not begin lines.
+    assertNull(
+        JsonLdParser.findNodeLayout(
+            toStream("[{ \"@id\": \"dcid:Node1\" }, { \"@id\": \"dcid:Node2\" }]")));
+  }
+
+  private static InputStream toStream(String s) {
+    return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+  }
 }
@@ -0,0 +1,78 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class LongFloatHashMapTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void getOrPut() {
+    var map = new LongFloatHashMap(0);
+    assertThat(map.getOrPut(42L, 1.5f)).isEqualTo(1.5f);
+    // The first value sticks.
+    assertThat(map.getOrPut(42L, 2.5f)).isEqualTo(1.5f);
+    // Key 0 is special inside, but not outside.
+    assertThat(map.containsKey(0L)).isFalse();
+    assertThat(map.getOrPut(0L, 3.0f)).isEqualTo(3.0f);
+    assertThat(map.getOrPut(0L, 4.0f)).isEqualTo(3.0f);
+    assertThat(map.getOrPut(-1L, Float.NaN)).isNaN();
+    assertThat(map.getOrPut(-1L, 1.0f)).isNaN();
+    assertThat(map.containsKey(0L)).isTrue();
+    assertThat(map.containsKey(42L)).isTrue();
+    assertThat(map.containsKey(43L)).isFalse();
+    assertThat(map.size()).isEqualTo(3);
+  }
+
+  @Test
+  public void growHeap() {
+    checkAgainstHashMap(new LongFloatHashMap(10));
+  }
+
+  @Test
+  public void growOffHeap() {
+    checkAgainstHashMap(new LongFloatHashMap(10, LongFloatHashMap.Storage.OFF_HEAP, null));
+  }
+
+  @Test
+  public void growMappedFile() {
+    checkAgainstHashMap(
+        new LongFloatHashMap(
+            10, LongFloatHashMap.Storage.MAPPED_FILE, testFolder.getRoot().toPath()));
+  }
+
+  private static void checkAgainstHashMap(LongFloatHashMap map) {
+    Map<Long, Float> expected = new HashMap<>();
+    Random random = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      long key = random.nextInt(20000) * 0x100000001L;
+      float value = random.nextFloat();
+      Float first = expected.putIfAbsent(key, value);
+      assertThat(map.getOrPut(key, value)).isEqualTo(first == null ? value : first);
+    }
+    assertThat(map.size()).isEqualTo(expected.size());
+    for (long key : expected.keySet()) {
+      assertThat(map.containsKey(key)).isTrue();
+    }
+  }
+}
@@ -21,7 +21,10 @@ import static org.junit.Assert.*;
 import java.io.IOException;
 import java.net.URISyntaxException;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import org.apache.commons.io.IOUtils;
 import org.datacommons.proto.Debug;
@@ -29,9 +32,13 @@ import org.datacommons.proto.Debug.Log.Level;
 import org.datacommons.proto.Mcf.McfGraph;
 import org.datacommons.proto.Mcf.McfType;
 import org.datacommons.proto.Mcf.ValueType;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 public class McfParserTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
   @Test
   public void testQuoting() throws IOException, URISyntaxException {
     Debug.Log.Builder logCtx = Debug.Log.newBuilder();
@@ -121,6 +128,114 @@ public class McfParserTest {
     assertThat(act).ignoringRepeatedFieldOrder().isEqualTo(exp);
   }
 
+  @Test
+  public void funcParseFileAcrossMappedWindows() throws IOException {
+    String mcf =
+        "// Comment\r\n"
+            + "Node: dcid:US\r\n"
+            + "typeOf: dcs:Country\r\n"
+            + "name: \"United States\", \"États-Unis\"\r"
+            + "containedInPlace: dcid:Earth, dcid:Earth\r\r\n"
+            + "\n"
+            + "# Comment\n"
+            + "Node: dcid:geoId/06\n"
+            + "  typeOf :  schema:State  \n"
+            + "url: https://www.ca.gov\n"
+            + "containedInPlace: dcid:US\n";
+    Path file = testFolder.newFile("windows.mcf").toPath();
+    Files.writeString(file, mcf);
+    // Windows small enough for most lines to span them.
+    McfGraph act = McfParser.parseInstanceMcfFile(file.toString(), true, TestUtil.newLogCtx(), 48);
+    // Unlike files, strings are only split on "\n" and "\r\n".
+    McfGraph exp =
+        McfParser.parseInstanceMcfString(
+            mcf.replaceAll("\\r\\n?", "\n"), true, TestUtil.newLogCtx());
+    // The locations only differ in the file name.
+    assertThat(TestUtil.trimLocations(act))
+        .ignoringRepeatedFieldOrder()
+        .isEqualTo(TestUtil.trimLocations(exp));
+    assertEquals(2, act.getNodesCount());
+    assertEquals(
+        1,
+        act.getNodesMap().get("dcid:US").getPvsMap().get("containedInPlace").getTypedValuesCount());
+  }
+
+  @Test
+  public void funcParseDedupsValues() throws IOException {
+    String mcf =
+        "Node: USA\n"
+            + "typeOf: dcs:Country\n"
+            + "Node: Obs\n"
+            + "typeOf: dcs:StatVarObservation\n"
+            + "value: 20, \"10\", 20, 10\n"
+            + "value: \"10\"\n";
+    Path file = testFolder.newFile("dups.mcf").toPath();
+    Files.writeString(file, mcf);
+    List<McfGraph> nodes =
+        parseAll(
+            McfParser.init(McfType.INSTANCE_MCF, file.toString(), false, TestUtil.newLogCtx()));
+    assertEquals(2, nodes.size());
+    // Only exact duplicates are dropped, so the number 10 and the text "10" are both kept, and
+    // the values stay in the order they were first seen.
+    McfGraph.Values values = nodes.get(1).getNodesMap().get("Obs").getPvsMap().get("value");
+    assertEquals(3, values.getTypedValuesCount());
+    assertEquals(ValueType.NUMBER, values.getTypedValues(0).getType());
+    assertEquals("20", values.getTypedValues(0).getValue());
+    assertEquals(ValueType.TEXT, values.getTypedValues(1).getType());
+    assertEquals("10", values.getTypedValues(1).getValue());
+    assertEquals(ValueType.NUMBER, values.getTypedValues(2).getType());
+    assertEquals("10", values.getTypedValues(2).getValue());
+  }
+
+  @Test
+  public void chunks() throws IOException {
+    StringBuilder mcf = new StringBuilder("// Header comment\n\n");
+    for (int i = 0; i < 50; i++) {
+      mcf.append("Node: dcid:node").append(i).append("\n");
+      if (i % 7 == 3) {
+        // Without properties on node i, the next node cannot start a chunk.
+        mcf.append("\nNode: dcid:empty").append(i).append("\n");
+      }
+      if (i % 11 == 5) {
+        mcf.append("\nNode: \"malformed\"\n");
+      }
+      mcf.append("typeOf: schema:Place\n");
+      mcf.append("name: \"Node ").append(i).append("\"\n");
+      if (i % 5 == 0) {
+        mcf.append("# Comment\n\n");
+      }
+      mcf.append("\n");
+    }
+    Path file = testFolder.newFile("chunks.mcf").toPath();
+    Files.writeString(file, mcf);
+
+    LogWrapper wantLog = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+    List<McfGraph> want =
+        parseAll(McfParser.init(McfType.INSTANCE_MCF, file.toString(), true, wantLog));
+    for (int numChunks = 1; numChunks <= 8; numChunks++) {
+      List<McfParser.McfChunk> chunks = McfParser.splitIntoChunks(file.toString(), numChunks);
+      assertEquals(numChunks, chunks.size());
+      LogWrapper gotLog = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+      List<McfGraph> got = new ArrayList<>();
+      for (McfParser.McfChunk chunk : chunks) {
+        got.addAll(
+            parseAll(McfParser.init(McfType.INSTANCE_MCF, file.toString(), true, gotLog, chunk)));
+      }
+      // Including the line numbers in the node locations and the log.
+      assertEquals(want, got);
+      assertEquals(wantLog.getLog().getEntriesList(), gotLog.getLog().getEntriesList());
+    }
+  }
+
+  private static List<McfGraph> parseAll(McfParser parser) {
+    List<McfGraph> result = new ArrayList<>();
+    McfGraph n;
+    while ((n = parser.parseNextNode()) != null) {
+      result.add(n);
+    }
+    return result;
+  }
+
   private McfGraph actual(String file_name, boolean isResolved)
       throws IOException, URISyntaxException {
     String mcfFile = this.getClass().getResource(file_name).getPath();
@@ -76,6 +76,36 @@ public class McfResolverTest {
         TestUtil.mcfFromFile(getFile("McfResolverTest_Resolved_TmcfCsvFailure.mcf")));
   }
 
+  @Test
+  public void tmcfCsv_reusedResolver() throws IOException, InterruptedException {
+    TmcfCsvParser.TEST_mode = true;
+
+    Debug.Log.Builder log = Debug.Log.newBuilder();
+    LogWrapper logCtx = new LogWrapper(log, Paths.get("."));
+    TmcfCsvParser parser =
+        TmcfCsvParser.init(
+            getFile("McfResolverTest_TmcfCsv.tmcf"),
+            getFile("McfResolverTest_TmcfCsv.csv"),
+            ',',
+            logCtx);
+    List<Mcf.McfGraph> passList = new ArrayList<>();
+    List<Mcf.McfGraph> failList = new ArrayList<>();
+    // A single resolver for all the rows should give the same results as one per row.
+    McfResolver resolver = new McfResolver(true, null, logCtx);
+    Mcf.McfGraph graph;
+    while ((graph = parser.parseNextRow()) != null) {
+      resolver.resolve(graph);
+      passList.add(resolver.resolvedGraph());
+      failList.add(resolver.failedGraph());
+    }
+    assertEquals(
+        McfUtil.serializeMcfGraph(McfUtil.mergeGraphs(passList), true),
+        TestUtil.mcfFromFile(getFile("McfResolverTest_Resolved_TmcfCsvSuccess.mcf")));
+    assertEquals(
+        McfUtil.serializeMcfGraph(McfUtil.mergeGraphs(failList), true),
+        TestUtil.mcfFromFile(getFile("McfResolverTest_Resolved_TmcfCsvFailure.mcf")));
+  }
+
   @Test
   public void multiRoundLocalRefChain() throws IOException {
     Debug.Log.Builder log = Debug.Log.newBuilder();
@@ -120,6 +150,120 @@ public class McfResolverTest {
     assertTrue(!McfUtil.getPropVal(observationNode, Vocabulary.DCID).isEmpty());
   }
 
+  @Test
+  public void deepLocalRefChain() throws IOException {
+    Debug.Log.Builder log = Debug.Log.newBuilder();
+    LogWrapper logCtx = new LogWrapper(log, Paths.get("."));
+    // Each population is located in the previous one, so only one link of the chain can be
+    // resolved per round.
+    List<String> mcf = new ArrayList<>();
+    mcf.addAll(List.of("Node: Pop0", "dcid: \"geoId/06\"", "typeOf: schema:State", ""));
+    for (int i = 1; i <= 50; i++) {
+      mcf.addAll(
+          List.of(
+              "Node: Pop" + i,
+              "typeOf: dcs:StatisticalPopulation",
+              "location: l:Pop" + (i - 1),
+              "populationType: schema:Person",
+              ""));
+    }
+    McfResolver resolver =
+        new McfResolver(TestUtil.graphFromMcf(String.join("\n", mcf)), false, null, logCtx);
+
+    resolver.resolve();
+
+    assertEquals(0, resolver.failedGraph().getNodesCount());
+    var resolvedGraph = resolver.resolvedGraph();
+    for (int i = 1; i <= 50; i++) {
+      var node = resolvedGraph.getNodesOrThrow("Pop" + i);
+      var previous = resolvedGraph.getNodesOrThrow("Pop" + (i - 1));
+      assertTrue(!McfUtil.getPropVal(node, Vocabulary.DCID).isEmpty());
+      assertEquals(
+          McfUtil.getPropVal(previous, Vocabulary.DCID),
+          McfUtil.getPropVal(node, Vocabulary.LOCATION));
+    }
+  }
+
+  @Test
+  public void localRefCycle() throws IOException {
+    Debug.Log.Builder log = Debug.Log.newBuilder();
+    LogWrapper logCtx = new LogWrapper(log, Paths.get("."));
+    McfResolver resolver =
+        new McfResolver(
+            TestUtil.graphFromMcf(
+                String.join(
+                    "\n",
+                    "Node: PopA",
+                    "typeOf: dcs:StatisticalPopulation",
+                    "location: l:PopB",
+                    "populationType: schema:Person",
+                    "",
+                    "Node: PopB",
+                    "typeOf: dcs:StatisticalPopulation",
+                    "location: l:PopA",
+                    "populationType: schema:Person",
+                    "",
+                    "Node: ObsLocalId",
+                    "typeOf: dcs:Observation",
+                    "observationDate: \"2017-01\"",
+                    "observedNode: l:PopA",
+                    "measuredProperty: dcs:count",
+                    "measuredValue: 10000",
+                    "")),
+            false,
+            null,
+            logCtx);
+
+    resolver.resolve();
+
+    assertEquals(0, resolver.resolvedGraph().getNodesCount());
+    assertEquals(3, resolver.failedGraph().getNodesCount());
+    Debug.Log resultLog = logCtx.getLog();
+    assertTrue(TestUtil.checkCounter(resultLog, "Resolution_IrreplaceableLocalRef", 3));
+    assertTrue(TestUtil.checkCounter(resultLog, "Resolution_UnassignableNodeDcid", 3));
+    assertTrue(
+        TestUtil.checkLog(
+            resultLog, "Resolution_UnassignableNodeDcid", "ref: 'PopB', node: 'PopA'"));
+  }
+
+  @Test
+  public void parallelDcidAssignment() throws IOException {
+    List<String> mcf = new ArrayList<>();
+    for (int i = 0; i < 20; i++) {
+      mcf.addAll(
+          List.of("Node: Place" + i, "dcid: \"geoId/" + i + "\"", "typeOf: schema:City", ""));
+    }
+    for (int i = 0; i < 500; i++) {
+      mcf.addAll(
+          List.of(
+              "Node: SVObs" + i,
+              "typeOf: dcs:StatVarObservation",
+              "variableMeasured: dcs:Count_Person",
+              "observationAbout: l:Place" + (i % 20),
+              "observationDate: \"" + (2000 + i / 20) + "\"",
+              // Some of the observations have no value, and fail DCID assignment.
+              i % 50 == 0 ? "" : "value: " + i,
+              ""));
+    }
+    Mcf.McfGraph graph = TestUtil.graphFromMcf(String.join("\n", mcf));
+
+    LogWrapper sequentialLog = TestUtil.newLogCtx();
+    McfResolver sequential = new McfResolver(graph, false, null, sequentialLog);
+    sequential.resolve();
+    LogWrapper parallelLog = TestUtil.newLogCtx();
+    McfResolver parallel = new McfResolver(graph, false, null, parallelLog, 1);
+    parallel.resolve();
+
+    assertEquals(10, sequential.failedGraph().getNodesCount());
+    assertEquals(
+        McfUtil.serializeMcfGraph(sequential.resolvedGraph(), false),
+        McfUtil.serializeMcfGraph(parallel.resolvedGraph(), false));
+    assertEquals(
+        McfUtil.serializeMcfGraph(sequential.failedGraph(), false),
+        McfUtil.serializeMcfGraph(parallel.failedGraph(), false));
+    assertEquals(sequentialLog.getLog(), parallelLog.getLog());
+  }
+
   @Test
   public void multiEntityPropertiesReferenceResolution() throws IOException {
     Debug.Log.Builder log = Debug.Log.newBuilder();
@@ -0,0 +1,90 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.datacommons.proto.Debug;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class PersistentCacheTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  private static final Duration TTL = Duration.ofHours(1);
+
+  @Test
+  public void roundTrip() throws IOException {
+    Path file = testFolder.getRoot().toPath().resolve(PersistentCache.FILE_NAME);
+    LogWrapper lw = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+
+    var cache = PersistentCache.open(file, TTL, 1000L, lw);
+    assertThat(cache.get(PersistentCache.EXISTENCE, "geoId/06")).isNull();
+    cache.put(PersistentCache.EXISTENCE, "geoId/06", "1");
+    cache.put(PersistentCache.STAT_TYPE, "Count_Person", "measuredValue");
+    cache.save();
+
+    lw = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+    cache = PersistentCache.open(file, TTL, 2000L, lw);
+    assertThat(cache.size()).isEqualTo(2);
+    assertThat(cache.get(PersistentCache.EXISTENCE, "geoId/06")).isEqualTo("1");
+    assertThat(cache.get(PersistentCache.STAT_TYPE, "Count_Person")).isEqualTo("measuredValue");
+    // Namespaces are independent.
+    assertThat(cache.get(PersistentCache.STAT_TYPE, "geoId/06")).isNull();
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "PersistentCache_NumLoaded", 2));
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "PersistentCache_Hits", 2));
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "PersistentCache_Misses", 1));
+  }
+
+  @Test
+  public void expiredEntries() throws IOException {
+    Path file = testFolder.getRoot().toPath().resolve(PersistentCache.FILE_NAME);
+    LogWrapper lw = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+
+    var cache = PersistentCache.open(file, TTL, 0L, lw);
+    cache.put(PersistentCache.EXISTENCE, "geoId/06", "1");
+    cache.save();
+    cache = PersistentCache.open(file, TTL, TTL.toMillis() / 2, lw);
+    cache.put(PersistentCache.EXISTENCE, "geoId/07", "0");
+    cache.save();
+
+    // Only the entry fetched in the second run is still fresh.
+    lw = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+    cache = PersistentCache.open(file, TTL, TTL.toMillis(), lw);
+    assertThat(cache.get(PersistentCache.EXISTENCE, "geoId/06")).isNull();
+    assertThat(cache.get(PersistentCache.EXISTENCE, "geoId/07")).isEqualTo("0");
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "PersistentCache_NumLoaded", 1));
+    assertTrue(TestUtil.checkCounter(lw.getLog(), "PersistentCache_NumExpired", 1));
+  }
+
+  @Test
+  public void unreadableFile() throws IOException {
+    Path file = testFolder.getRoot().toPath().resolve(PersistentCache.FILE_NAME);
+    Files.writeString(file, "not a cache");
+    LogWrapper lw = new LogWrapper(Debug.Log.newBuilder(), Path.of("InMemory"));
+
+    var cache = PersistentCache.open(file, TTL, lw);
+    assertThat(cache.size()).isEqualTo(0);
+    cache.put(PersistentCache.EXISTENCE, "geoId/06", "1");
+    cache.save();
+    assertThat(PersistentCache.open(file, TTL, lw).size()).isEqualTo(1);
+  }
+}
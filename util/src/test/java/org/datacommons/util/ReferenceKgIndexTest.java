@@ -0,0 +1,68 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class ReferenceKgIndexTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @Test
+  public void lookupAndSaveLoad() throws IOException {
+    List<byte[]> keys = new ArrayList<>();
+    for (String key :
+        List.of("geoId/06", "Person", "gender,domainIncludes,Person", "Person", "país/ES")) {
+      keys.add(key.getBytes(StandardCharsets.UTF_8));
+    }
+    var index = ReferenceKgIndex.fromKeys(keys);
+    // Duplicates are dropped.
+    assertThat(index.size()).isEqualTo(4);
+    verifyLookups(index);
+
+    Path file = testFolder.getRoot().toPath().resolve("reference_kg.idx");
+    index.save(file);
+    var loaded = ReferenceKgIndex.load(file);
+    assertThat(loaded.size()).isEqualTo(4);
+    verifyLookups(loaded);
+  }
+
+  @Test
+  public void empty() {
+    var index = ReferenceKgIndex.fromKeys(new ArrayList<>());
+    assertThat(index.size()).isEqualTo(0);
+    assertThat(index.contains("Person", Vocabulary.TYPE_OF, "")).isFalse();
+  }
+
+  private static void verifyLookups(ReferenceKgIndex index) {
+    assertThat(index.contains("geoId/06", Vocabulary.TYPE_OF, "")).isTrue();
+    assertThat(index.contains("Person", Vocabulary.TYPE_OF, "")).isTrue();
+    assertThat(index.contains("país/ES", Vocabulary.TYPE_OF, "")).isTrue();
+    assertThat(index.contains("gender", Vocabulary.DOMAIN_INCLUDES, "Person")).isTrue();
+    assertThat(index.contains("gender", Vocabulary.DOMAIN_INCLUDES, "Place")).isFalse();
+    assertThat(index.contains("geoId/0", Vocabulary.TYPE_OF, "")).isFalse();
+    assertThat(index.contains("geoId/060", Vocabulary.TYPE_OF, "")).isFalse();
+    assertThat(index.contains("A", Vocabulary.TYPE_OF, "")).isFalse();
+    assertThat(index.contains("zzz", Vocabulary.TYPE_OF, "")).isFalse();
+  }
+}
@@ -27,6 +27,9 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.apache.commons.io.FileUtils;
 import org.datacommons.proto.Debug;
 import org.datacommons.proto.Debug.DataPoint;
@@ -68,6 +71,40 @@ public class StatCheckerTest {
         .containsExactlyElementsIn(expectedLog.getStatsCheckSummaryList());
   }
 
+  @Test
+  public void testConcurrentExtractStats() throws Exception {
+    Debug.Log.Builder logCtx = Debug.Log.newBuilder();
+    LogWrapper lw = new LogWrapper(logCtx, testFolder.getRoot().toPath());
+    String mcfPath = this.getClass().getResource("StatCheckerTest.mcf").getPath();
+    Mcf.McfGraph graph = McfParser.parseInstanceMcfFile(mcfPath, false, lw);
+
+    // Extract the stats one node at a time from several threads.
+    StatChecker sc = new StatChecker(lw, null);
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<?>> futures = new ArrayList<>();
+    for (var node : graph.getNodesMap().entrySet()) {
+      Mcf.McfGraph single =
+          graph.toBuilder().clearNodes().putNodes(node.getKey(), node.getValue()).build();
+      futures.add(executor.submit(() -> sc.extractStatsFromGraph(single)));
+    }
+    for (Future<?> f : futures) {
+      f.get();
+    }
+    executor.shutdown();
+
+    StatChecker expected = new StatChecker(lw, null);
+    expected.extractStatsFromGraph(graph);
+    assertEquals(expected.getSVSummaryMap().keySet(), sc.getSVSummaryMap().keySet());
+    for (var entry : expected.getSVSummaryMap().entrySet()) {
+      var actual = sc.getSVSummaryMap().get(entry.getKey());
+      assertEquals(entry.getValue().getNumObservations(), actual.getNumObservations());
+      assertEquals(entry.getValue().getMinValue(), actual.getMinValue(), 0);
+      assertEquals(entry.getValue().getMaxValue(), actual.getMaxValue(), 0);
+      assertEquals(entry.getValue().getPlaces(), actual.getPlaces());
+      assertEquals(entry.getValue().getUniqueDates(), actual.getUniqueDates());
+    }
+  }
+
   @Test
   public void testCheckSvObsInGraph() throws IOException {
     Debug.Log.Builder log = Debug.Log.newBuilder();
@@ -0,0 +1,94 @@
+// Copyright 2026 Google LLC
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     https://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.datacommons.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.datacommons.proto.Mcf;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StringPoolTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
+  @After
+  public void tearDown() {
+    StringPool.disableShared();
+  }
+
+  @Test
+  public void intern() {
+    StringPool pool = new StringPool(16);
+    String first = new String("Count_Person");
+    String second = new String("Count_Person");
+    assertThat(pool.intern(first)).isSameInstanceAs(first);
+    assertThat(pool.intern(second)).isSameInstanceAs(first);
+    assertThat(pool.intern(null)).isNull();
+
+    // Long values are not pooled.
+    String longValue = "x".repeat(StringPool.MAX_LENGTH + 1);
+    pool.intern(longValue);
+    assertThat(pool.intern(new String(longValue))).isNotSameInstanceAs(longValue);
+  }
+
+  @Test
+  public void intern_bounded() {
+    // With a single slot, each new value replaces the previous one.
+    StringPool pool = new StringPool(1);
+    String a = new String("a");
+    String b = new String("b");
+    pool.intern(a);
+    pool.intern(b);
+    String a2 = new String("a");
+    assertThat(pool.intern(a2)).isSameInstanceAs(a2);
+  }
+
+  @Test
+  public void internShared_disabled() {
+    String value = new String("dcid:geoId/06");
+    StringPool.internShared(value);
+    assertThat(StringPool.internShared(new String(value))).isNotSameInstanceAs(value);
+  }
+
+  @Test
+  public void mcfParser_sharesValues() throws IOException {
+    StringPool.enableShared(StringPool.DEFAULT_CAPACITY);
+    Path mcf = testFolder.getRoot().toPath().resolve("obs.mcf");
+    Files.writeString(
+        mcf,
+        "Node: obs1\n"
+            + "typeOf: dcs:StatVarObservation\n"
+            + "variableMeasured: dcs:Count_Person\n"
+            + "observationDate: 2020\n"
+            + "\n"
+            + "Node: obs2\n"
+            + "typeOf: dcs:StatVarObservation\n"
+            + "variableMeasured: dcs:Count_Person\n"
+            + "observationDate: 2020\n");
+    Mcf.McfGraph graph =
+        McfParser.parseInstanceMcfFile(mcf.toString(), false, TestUtil.newLogCtx());
+    Mcf.McfGraph.PropertyValues obs1 = graph.getNodesOrThrow("obs1");
+    Mcf.McfGraph.PropertyValues obs2 = graph.getNodesOrThrow("obs2");
+    for (String prop : new String[] {"variableMeasured", "observationDate"}) {
+      assertThat(obs2.getPvsOrThrow(prop).getTypedValues(0).getValue())
+          .isSameInstanceAs(obs1.getPvsOrThrow(prop).getTypedValues(0).getValue());
+    }
+  }
+}
@@ -1,6 +1,7 @@
 package org.datacommons.util;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
@@ -9,6 +10,7 @@ import static org.junit.Assert.assertTrue;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import org.junit.Test;
 
@@ -96,6 +98,48 @@ public class StringUtilTest {
         .containsExactly("{ \"type\": \"feature\" }");
   }
 
+  @Test
+  public void funcSplitAndStripWithQuoteEscape_matchesSplitStructuredLine() {
+    // Random strings of the characters that matter to splitting.
+    char[] chars = {'a', 'b', ' ', ',', '"', '\\', '\t'};
+    Random random = new Random(7);
+    for (int i = 0; i < 100000; i++) {
+      StringBuilder sb = new StringBuilder();
+      int length = random.nextInt(12);
+      for (int j = 0; j < length; j++) {
+        sb.append(chars[random.nextInt(chars.length)]);
+      }
+      StringUtil.SplitAndStripArg arg = new StringUtil.SplitAndStripArg();
+      arg.includeEmpty = random.nextBoolean();
+      arg.stripEnclosingQuotes = random.nextBoolean();
+      arg.stripEscapesBeforeQuotes = random.nextBoolean();
+      String value = sb.toString();
+      assertWithMessage("value: '%s'", value)
+          .that(StringUtil.splitAndStripWithQuoteEscape(value, arg, null))
+          .containsExactlyElementsIn(splitThenStrip(value, arg))
+          .inOrder();
+    }
+  }
+
+  // Splits with SplitStructuredLineWithEscapes(), then trims and strips each part.
+  private static List<String> splitThenStrip(String value, StringUtil.SplitAndStripArg arg) {
+    List<String> parts = new ArrayList<>();
+    List<String> results = new ArrayList<>();
+    if (!StringUtil.SplitStructuredLineWithEscapes(value, arg.delimiter, '"', parts)) {
+      return results;
+    }
+    for (String part : parts) {
+      String s = part.trim();
+      if (arg.stripEnclosingQuotes) {
+        s = StringUtil.stripEnclosingQuotePair(s);
+      }
+      if (arg.includeEmpty || !s.isEmpty()) {
+        results.add(arg.stripEscapesBeforeQuotes ? s.replace("\\\"", "\"") : s);
+      }
+    }
+    return results;
+  }
+
   @Test
   public void funcISO8601Date() {
     // Year.
@@ -14,21 +14,39 @@
 
 package org.datacommons.util;
 
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import org.apache.parquet.example.data.Group;
+import org.apache.parquet.example.data.simple.SimpleGroupFactory;
+import org.apache.parquet.hadoop.ParquetWriter;
+import org.apache.parquet.hadoop.example.ExampleParquetWriter;
+import org.apache.parquet.schema.MessageType;
+import org.apache.parquet.schema.MessageTypeParser;
 import org.datacommons.proto.Debug;
 import org.datacommons.proto.Mcf.McfGraph;
 import org.junit.Before;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 // TODO: Add test once sanity-check is implemented.
 public class TmcfCsvParserTest {
+  @Rule public TemporaryFolder testFolder = new TemporaryFolder();
+
   private Debug.Log.Builder log = Debug.Log.newBuilder();
   private LogWrapper logCtx = new LogWrapper(log, Paths.get("."));
 
@@ -85,17 +103,216 @@ public class TmcfCsvParserTest {
             logCtx.getLog(), "Sanity_TmcfMissingColumn", "Count_CriminalActivities_Missing"));
   }
 
+  @Test
+  public void tmcfFailure_reportedPerTable()
+      throws IOException, URISyntaxException, InterruptedException {
+    // Problems with the TMCF are reported for every table, even though clean templates are only
+    // parsed and checked once.
+    for (int i = 0; i < 2; i++) {
+      assertEquals(
+          null,
+          TmcfCsvParser.init(
+              resourceFile("TmcfCsvParser_SVO_Failure.tmcf"),
+              resourceFile("TmcfCsvParser_SVO.csv"),
+              ',',
+              logCtx));
+    }
+    assertEquals(2, TestUtil.getCounter(logCtx.getLog(), "CSV_TmcfCheckFailure"));
+  }
+
+  @Test
+  public void cachedTemplate() throws IOException, URISyntaxException, InterruptedException {
+    // A second table with the same TMCF and header reuses the compiled template.
+    String want = run("TmcfCsvParser_PopObs.tmcf", "TmcfCsvParser_PopObs.csv");
+    File csvFile = testFolder.newFile("PopObs2.csv");
+    Files.copy(
+        Paths.get(resourceFile("TmcfCsvParser_PopObs.csv")), csvFile.toPath(), REPLACE_EXISTING);
+    TmcfCsvParser parser =
+        TmcfCsvParser.init(
+            resourceFile("TmcfCsvParser_PopObs.tmcf"), csvFile.getPath(), ',', logCtx);
+    String got = McfUtil.serializeMcfGraph(parseAll(parser), true);
+    assertEquals(want, got);
+
+    String tmcfFile = resourceFile("TmcfCsvParser_PopObs.tmcf");
+    Map<String, Integer> header = new HashMap<>();
+    for (String column :
+        List.of(
+            "City", "Gender", "AgeRange", "Count", "Year", "StateName", "StateId", "CountyId")) {
+      header.put(column, header.size());
+    }
+    TmcfCsvParser.CompiledTemplate template = TmcfCsvParser.compileTemplate(tmcfFile, header);
+    assertNotNull(template);
+    assertSame(template, TmcfCsvParser.compileTemplate(tmcfFile, new HashMap<>(header)));
+
+    // Fill the cache with templates for other headers (each with an extra column).
+    List<Map<String, Integer>> otherHeaders = new ArrayList<>();
+    for (int i = 0; i < TmcfCsvParser.MAX_CACHED_TEMPLATES; i++) {
+      Map<String, Integer> otherHeader = new HashMap<>(header);
+      otherHeader.put("Extra" + i, header.size());
+      otherHeaders.add(otherHeader);
+    }
+    TmcfCsvParser.CompiledTemplate firstOther =
+        TmcfCsvParser.compileTemplate(tmcfFile, otherHeaders.get(0));
+    assertNotNull(firstOther);
+    for (int i = 1; i < TmcfCsvParser.MAX_CACHED_TEMPLATES - 1; i++) {
+      assertNotNull(TmcfCsvParser.compileTemplate(tmcfFile, otherHeaders.get(i)));
+    }
+    // Using the template makes the first other template the least recently used, so that is the
+    // one evicted by one more template.
+    assertSame(template, TmcfCsvParser.compileTemplate(tmcfFile, header));
+    assertNotNull(
+        TmcfCsvParser.compileTemplate(
+            tmcfFile, otherHeaders.get(TmcfCsvParser.MAX_CACHED_TEMPLATES - 1)));
+    assertSame(template, TmcfCsvParser.compileTemplate(tmcfFile, header));
+    assertNotSame(firstOther, TmcfCsvParser.compileTemplate(tmcfFile, otherHeaders.get(0)));
+  }
+
+  @Test
+  public void chunks() throws IOException, URISyntaxException, InterruptedException {
+    for (String name : List.of("TmcfCsvParser_SVO", "TmcfCsvParser_MultiValue")) {
+      String want = run(name + ".tmcf", name + ".csv");
+      for (int numChunks = 1; numChunks <= 4; numChunks++) {
+        List<TmcfCsvParser.CsvChunk> chunks =
+            TmcfCsvParser.splitIntoChunks(resourceFile(name + ".csv"), ',', numChunks);
+        assertTrue(chunks.size() <= numChunks);
+        List<McfGraph> result = new ArrayList<>();
+        for (TmcfCsvParser.CsvChunk chunk : chunks) {
+          TmcfCsvParser parser =
+              TmcfCsvParser.init(
+                  resourceFile(name + ".tmcf"), resourceFile(name + ".csv"), ',', logCtx, chunk);
+          result.add(parseAll(parser));
+        }
+        String got = McfUtil.serializeMcfGraph(McfUtil.mergeGraphs(result), true);
+        assertEquals(want, got);
+      }
+    }
+  }
+
+  @Test
+  public void parquet() throws IOException, URISyntaxException, InterruptedException {
+    File csvFile = testFolder.newFile("CityStats.csv");
+    Files.writeString(
+        csvFile.toPath(),
+        "City,Gender,AgeRange,Count,Year,StateName,StateId,CountyId\n"
+            + "New York City,dcs:Male,[10 20 Years],20000000,2012,New York,,geoId/NYCounty\n"
+            + "San Francisco,dcs:Female,[20 30 Years],10000000.5,2007,,geoId/CA,geoId/SFCounty\n");
+
+    File parquetFile = new File(testFolder.getRoot(), "CityStats.parquet");
+    MessageType schema =
+        MessageTypeParser.parseMessageType(
+            "message CityStats {\n"
+                + "  optional binary City (STRING);\n"
+                + "  optional binary Gender (STRING);\n"
+                + "  optional binary AgeRange (STRING);\n"
+                + "  optional double Count;\n"
+                + "  optional int32 Year;\n"
+                + "  optional binary StateName (STRING);\n"
+                + "  optional binary StateId (STRING);\n"
+                + "  optional binary CountyId (STRING);\n"
+                + "}");
+    SimpleGroupFactory groups = new SimpleGroupFactory(schema);
+    try (ParquetWriter<Group> writer =
+        ExampleParquetWriter.builder(new org.apache.hadoop.fs.Path(parquetFile.toURI()))
+            .withType(schema)
+            .build()) {
+      writer.write(
+          groups
+              .newGroup()
+              .append("City", "New York City")
+              .append("Gender", "dcs:Male")
+              .append("AgeRange", "[10 20 Years]")
+              .append("Count", 2.0e7)
+              .append("Year", 2012)
+              .append("StateName", "New York")
+              .append("CountyId", "geoId/NYCounty"));
+      writer.write(
+          groups
+              .newGroup()
+              .append("City", "San Francisco")
+              .append("Gender", "dcs:Female")
+              .append("AgeRange", "[20 30 Years]")
+              .append("Count", 10000000.5)
+              .append("Year", 2007)
+              .append("StateId", "geoId/CA")
+              .append("CountyId", "geoId/SFCounty"));
+    }
+
+    String tmcf = resourceFile("TmcfCsvParser_PopObs.tmcf");
+    String want =
+        McfUtil.serializeMcfGraph(
+            parseAll(TmcfCsvParser.init(tmcf, csvFile.getPath(), ',', logCtx)), true);
+    String got =
+        McfUtil.serializeMcfGraph(
+            parseAll(TmcfCsvParser.init(tmcf, parquetFile.getPath(), ',', logCtx)), true);
+    assertEquals(want, got);
+    assertTrue(got.contains("measuredValue: 10000000.5"));
+  }
+
+  @Test
+  public void parquet_unsignedIntegers()
+      throws IOException, URISyntaxException, InterruptedException {
+    File csvFile = testFolder.newFile("CityStats.csv");
+    Files.writeString(
+        csvFile.toPath(),
+        "City,Gender,AgeRange,Count,Year,StateName,StateId,CountyId\n"
+            + "New York City,dcs:Male,[10 20 Years],3000000000,2012,New York,,geoId/NYCounty\n");
+
+    File parquetFile = new File(testFolder.getRoot(), "CityStats.parquet");
+    MessageType schema =
+        MessageTypeParser.parseMessageType(
+            "message CityStats {\n"
+                + "  optional binary City (STRING);\n"
+                + "  optional binary Gender (STRING);\n"
+                + "  optional binary AgeRange (STRING);\n"
+                + "  optional int32 Count (INTEGER(32,false));\n"
+                + "  optional int64 Year (INTEGER(64,false));\n"
+                + "  optional binary StateName (STRING);\n"
+                + "  optional binary StateId (STRING);\n"
+                + "  optional binary CountyId (STRING);\n"
+                + "}");
+    SimpleGroupFactory groups = new SimpleGroupFactory(schema);
+    try (ParquetWriter<Group> writer =
+        ExampleParquetWriter.builder(new org.apache.hadoop.fs.Path(parquetFile.toURI()))
+            .withType(schema)
+            .build()) {
+      writer.write(
+          groups
+              .newGroup()
+              .append("City", "New York City")
+              .append("Gender", "dcs:Male")
+              .append("AgeRange", "[10 20 Years]")
+              // 3000000000 does not fit in a signed int32, so it is stored as a negative int.
+              .append("Count", (int) 3000000000L)
+              .append("Year", 2012L)
+              .append("StateName", "New York")
+              .append("CountyId", "geoId/NYCounty"));
+    }
+
+    String tmcf = resourceFile("TmcfCsvParser_PopObs.tmcf");
+    String want =
+        McfUtil.serializeMcfGraph(
+            parseAll(TmcfCsvParser.init(tmcf, csvFile.getPath(), ',', logCtx)), true);
+    String got =
+        McfUtil.serializeMcfGraph(
+            parseAll(TmcfCsvParser.init(tmcf, parquetFile.getPath(), ',', logCtx)), true);
+    assertEquals(want, got);
+    assertTrue(got.contains("measuredValue: 3000000000"));
+  }
+
   private String run(String mcfFile, String csvFile)
       throws IOException, URISyntaxException, InterruptedException {
     TmcfCsvParser parser =
         TmcfCsvParser.init(resourceFile(mcfFile), resourceFile(csvFile), ',', logCtx);
+    return McfUtil.serializeMcfGraph(parseAll(parser), true);
+  }
+
+  private McfGraph parseAll(TmcfCsvParser parser) throws IOException, InterruptedException {
     List<McfGraph> result = new ArrayList<>();
     McfGraph graph;
     while ((graph = parser.parseNextRow()) != null) {
       result.add(graph);
     }
-    graph = McfUtil.mergeGraphs(result);
-    return McfUtil.serializeMcfGraph(graph, true);
+    return McfUtil.mergeGraphs(result);
   }
 
   private String resourceFile(String resource) {